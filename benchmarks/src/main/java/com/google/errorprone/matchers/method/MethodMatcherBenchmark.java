@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.matchers.method;
+
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for evaluating many method matchers, as the checks of a compilation do, on every
+ * method invocation in a compilation unit.
+ *
+ * <p>With {@code shared} set, all the matchers of a node see the same {@link VisitorState}, as
+ * they do when run by the scanner, and share the symbol and receiver type they extract from it.
+ * Without it, the node cache is cleared before each matcher, which measures the cost of extracting
+ * them again for every matcher.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+    })
+@State(Scope.Benchmark)
+public class MethodMatcherBenchmark {
+
+  private static final ImmutableList<String> NAMES =
+      ImmutableList.of(
+          "add", "contains", "equals", "get", "hashCode", "isEmpty", "length", "remove", "size",
+          "substring", "toString", "trim", "valueOf", "format", "max", "min");
+
+  /** The number of times the statements of the target are repeated. */
+  @Param({"200"})
+  int repetitions;
+
+  /** Whether the matchers of a node share the state extracted from it. */
+  @Param({"true", "false"})
+  boolean shared;
+
+  private VisitorState state;
+  private ImmutableList<Matcher<ExpressionTree>> matchers;
+  private ImmutableList<TreePath> targets;
+
+  @Setup
+  public void setUp() {
+    JavacTool tool = JavacTool.create();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of("-proc:none"),
+                null,
+                ImmutableList.of(source("Target", targetSource(repetitions))));
+    CompilationUnitTree unit;
+    try {
+      unit = Iterables.getOnlyElement(task.parse());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    task.analyze();
+    state = VisitorState.createForUtilityPurposes(task.getContext());
+
+    ImmutableList.Builder<Matcher<ExpressionTree>> matchers = ImmutableList.builder();
+    for (String name : NAMES) {
+      matchers.add(instanceMethod().onDescendantOf("java.util.Collection").named(name));
+      matchers.add(instanceMethod().onExactClass("java.lang.String").named(name));
+      matchers.add(instanceMethod().anyClass().named(name).withNoParameters());
+      matchers.add(staticMethod().onClass("java.lang.Math").named(name));
+      matchers.add(staticMethod().onClass("java.lang.String").named(name));
+      matchers.add(instanceMethod().onDescendantOf("java.lang.CharSequence").named(name));
+    }
+    this.matchers = matchers.build();
+
+    List<TreePath> targets = new ArrayList<>();
+    new TreePathScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        targets.add(getCurrentPath());
+        return super.visitMethodInvocation(tree, null);
+      }
+    }.scan(unit, null);
+    this.targets = ImmutableList.copyOf(targets);
+  }
+
+  @Benchmark
+  public void match(Blackhole blackhole) {
+    for (TreePath target : targets) {
+      VisitorState nodeState = state.withPath(target);
+      ExpressionTree tree = (ExpressionTree) target.getLeaf();
+      for (Matcher<ExpressionTree> matcher : matchers) {
+        if (!shared) {
+          // Moving off the node and back clears the cache.
+          nodeState = nodeState.withPath(null).withPath(target);
+        }
+        blackhole.consume(matcher.matches(tree, nodeState));
+      }
+    }
+  }
+
+  /** Returns a class with invocations of instance and static methods on a few receiver types. */
+  private static String targetSource(int repetitions) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("import java.util.List;\n");
+    sb.append("class Target {\n");
+    sb.append("  void f(int x, String s, List<String> l) {\n");
+    for (int i = 0; i < repetitions; i++) {
+      sb.append("    int a").append(i).append(" = s.length() + l.size();\n");
+      sb.append("    String b").append(i).append(" = s.substring(x).trim();\n");
+      sb.append("    boolean c").append(i).append(" = l.contains(s) || l.isEmpty();\n");
+      sb.append("    int d").append(i).append(" = Math.max(x, Math.min(x, 3));\n");
+      sb.append("    String e").append(i).append(" = String.valueOf(x) + s.hashCode();\n");
+      sb.append("    String g").append(i).append(" = String.format(s, l.get(x));\n");
+    }
+    return sb.append("  }\n}\n").toString();
+  }
+
+  private static JavaFileObject source(String className, String source) {
+    return new SimpleJavaFileObject(
+        URI.create("file:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}
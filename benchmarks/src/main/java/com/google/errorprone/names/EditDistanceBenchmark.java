@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.names;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for comparing every pair of a list of identifiers, as checks that suggest a similar
+ * name or look for swapped arguments do.
+ *
+ * <p>{@code levenshteinBounded} only asks whether the distance is at most 4, like the Javadoc
+ * checks that suggest a parameter name do. With {@code longNames}, the names are longer than 64
+ * characters, so the Levenshtein distance can't be computed with bit vectors and the two-row
+ * algorithm is measured instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EditDistanceBenchmark {
+
+  private static final ImmutableList<String> IDENTIFIERS =
+      ImmutableList.of(
+          "index", "indices", "count", "counter", "value", "values", "key", "keys", "name",
+          "names", "source", "target", "sourcePosition", "targetPosition", "startPosition",
+          "endPosition", "compilationUnit", "visitorState", "methodInvocation", "methodSymbol",
+          "receiverType", "returnType", "parameterTypes", "typeArguments", "maxEditDistance",
+          "caseSensitive", "changeCost", "openGapCost", "continueGapCost", "suggestedFix");
+
+  /** Whether the identifiers are made longer than 64 characters. */
+  @Param({"false", "true"})
+  boolean longNames;
+
+  private ImmutableList<String> names;
+  private TermEditDistance termEditDistance;
+
+  @Setup
+  public void setUp() {
+    names =
+        longNames
+            ? IDENTIFIERS.stream()
+                .map(name -> Strings.repeat(name, 64 / name.length() + 1))
+                .collect(ImmutableList.toImmutableList())
+            : IDENTIFIERS;
+    termEditDistance = new TermEditDistance();
+  }
+
+  @Benchmark
+  public void levenshtein(Blackhole blackhole) {
+    for (String source : names) {
+      for (String target : names) {
+        blackhole.consume(LevenshteinEditDistance.getEditDistance(source, target));
+      }
+    }
+  }
+
+  @Benchmark
+  public void levenshteinCaseInsensitive(Blackhole blackhole) {
+    for (String source : names) {
+      for (String target : names) {
+        blackhole.consume(
+            LevenshteinEditDistance.getEditDistance(source, target, /* caseSensitive= */ false));
+      }
+    }
+  }
+
+  @Benchmark
+  public void levenshteinBounded(Blackhole blackhole) {
+    for (String source : names) {
+      for (String target : names) {
+        blackhole.consume(
+            LevenshteinEditDistance.getEditDistance(
+                source, target, /* caseSensitive= */ true, /* maxEditDistance= */ 4));
+      }
+    }
+  }
+
+  @Benchmark
+  public void needlemanWunsch(Blackhole blackhole) {
+    for (String source : names) {
+      for (String target : names) {
+        // The costs used by ArgumentSelectionDefectChecker.
+        blackhole.consume(
+            NeedlemanWunschEditDistance.getNormalizedEditDistance(
+                source,
+                target,
+                /* caseSensitive= */ false,
+                /* changeCost= */ 8,
+                /* openGapCost= */ 8,
+                /* continueGapCost= */ 1));
+      }
+    }
+  }
+
+  @Benchmark
+  public void termEditDistance(Blackhole blackhole) {
+    for (String source : names) {
+      for (String target : names) {
+        blackhole.consume(termEditDistance.getNormalizedEditDistance(source, target));
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks for applying increasing numbers of Refaster rules to a single compilation unit. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+    })
+@State(Scope.Benchmark)
+public class RefasterBenchmark {
+
+  /** The number of rules to apply. */
+  @Param({"10", "100", "300"})
+  int rules;
+
+  /** The number of statements in the compilation unit the rules are applied to. */
+  @Param({"1000"})
+  int statements;
+
+  /**
+   * Whether to apply the rules in a single pass with a {@link RefasterEngine}, rather than one
+   * after another.
+   */
+  @Param({"false", "true"})
+  boolean engine;
+
+  private Context context;
+  private JCCompilationUnit target;
+  private CodeTransformer transformer;
+
+  @Setup
+  public void setUp() {
+    JavacTool tool = JavacTool.create();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of(
+                    "-proc:none", "-classpath", System.getProperty("java.class.path")),
+                null,
+                ImmutableList.of(
+                    source("Helper", helperSource(rules)),
+                    source("Rules", rulesSource(rules)),
+                    source("Target", targetSource(rules, statements))));
+    ImmutableList<JCCompilationUnit> units;
+    try {
+      units = ImmutableList.copyOf(Iterables.filter(task.parse(), JCCompilationUnit.class));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    task.analyze();
+    context = task.getContext();
+    target = units.get(2);
+    List<CodeTransformer> transformers = new ArrayList<>();
+    ClassTree rulesClass = (ClassTree) getOnlyElement(units.get(1).getTypeDecls());
+    for (Tree member : rulesClass.getMembers()) {
+      if (member instanceof ClassTree) {
+        transformers.addAll(RefasterRuleBuilderScanner.extractRules((ClassTree) member, context));
+      }
+    }
+    transformer =
+        engine
+            ? RefasterEngine.create(transformers)
+            : CompositeCodeTransformer.compose(transformers);
+  }
+
+  @Benchmark
+  public void apply(Blackhole blackhole) {
+    transformer.apply(new TreePath(target), context, blackhole::consume);
+  }
+
+  private static String helperSource(int rules) {
+    StringBuilder sb = new StringBuilder("class Helper {\n");
+    for (int i = 0; i < rules; i++) {
+      sb.append("  static int m").append(i).append("(int x) { return x; }\n");
+      sb.append("  static int n").append(i).append("(int x) { return x; }\n");
+    }
+    return sb.append("}\n").toString();
+  }
+
+  /**
+   * Returns a class with one nested rule class per rule, rewriting either a static method call, a
+   * comparison or an addition.
+   */
+  private static String rulesSource(int rules) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("import com.google.errorprone.refaster.annotation.AfterTemplate;\n");
+    sb.append("import com.google.errorprone.refaster.annotation.BeforeTemplate;\n");
+    sb.append("class Rules {\n");
+    for (int i = 0; i < rules; i++) {
+      sb.append("  static class Rule").append(i).append(" {\n");
+      switch (i % 3) {
+        case 0:
+          sb.append("    @BeforeTemplate int before(int x) { return Helper.m")
+              .append(i)
+              .append("(x); }\n");
+          sb.append("    @AfterTemplate int after(int x) { return Helper.n")
+              .append(i)
+              .append("(x); }\n");
+          break;
+        case 1:
+          sb.append("    @BeforeTemplate boolean before(String s) { return s.length() == ")
+              .append(i)
+              .append("; }\n");
+          sb.append("    @AfterTemplate boolean after(String s) { return ")
+              .append(i)
+              .append(" == s.length(); }\n");
+          break;
+        default:
+          sb.append("    @BeforeTemplate int before(int x) { return x * ")
+              .append(i)
+              .append("; }\n");
+          sb.append("    @AfterTemplate int after(int x) { return ")
+              .append(i)
+              .append(" * x; }\n");
+          break;
+      }
+      sb.append("  }\n");
+    }
+    return sb.append("}\n").toString();
+  }
+
+  private static String targetSource(int rules, int statements) {
+    StringBuilder sb = new StringBuilder("class Target {\n");
+    sb.append("  void f(String s) {\n");
+    for (int i = 0; i < statements; i++) {
+      sb.append("    int v")
+          .append(i)
+          .append(" = Helper.m")
+          .append(i % rules)
+          .append("(")
+          .append(i)
+          .append(") + s.hashCode() * ")
+          .append(i)
+          .append(";\n");
+      sb.append("    boolean b").append(i).append(" = s.length() == ").append(i).append(";\n");
+    }
+    return sb.append("  }\n}\n").toString();
+  }
+
+  private static JavaFileObject source(String className, String source) {
+    return new SimpleJavaFileObject(
+        URI.create("file:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}
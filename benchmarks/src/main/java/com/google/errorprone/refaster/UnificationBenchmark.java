@@ -0,0 +1,236 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.CodeTransformer;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for unifying the before templates of the rules in Refaster's test data with every
+ * expression in a compilation unit, without the {@link TemplateIndex} that usually narrows down
+ * which templates are tried.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+    })
+@State(Scope.Benchmark)
+public class UnificationBenchmark {
+
+  /**
+   * The before templates of BinaryTemplate, ParenthesesOptionalTemplate, LiteralTemplate,
+   * MethodInvocationTemplate, AnyOfTemplate and VarargTemplate.
+   */
+  private static final String RULES =
+      String.join(
+          "\n",
+          "import com.google.errorprone.refaster.Refaster;",
+          "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+          "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+          "import com.google.errorprone.refaster.annotation.Repeated;",
+          "import java.nio.charset.Charset;",
+          "import java.nio.charset.StandardCharsets;",
+          "import java.security.MessageDigest;",
+          "class Rules {",
+          "  static class Binary {",
+          "    @BeforeTemplate int before(int a, int b) { return (a + b) / 2; }",
+          "    @AfterTemplate int after(int a, int b) { return (a + b) >> 1; }",
+          "  }",
+          "  static class ParenthesesOptional {",
+          "    @BeforeTemplate int before(int a, int b) { return (a * b) + 5; }",
+          "    @AfterTemplate int after(int a, int b) { return 5 + (a * b); }",
+          "  }",
+          "  static class Literal {",
+          "    @BeforeTemplate Charset before() { return Charset.forName(\"UTF-8\"); }",
+          "    @AfterTemplate Charset after() { return StandardCharsets.UTF_8; }",
+          "  }",
+          "  static class MethodInvocation {",
+          "    @BeforeTemplate byte[] before(MessageDigest md, String str) {",
+          "      return md.digest(str.getBytes());",
+          "    }",
+          "    @AfterTemplate byte[] after(MessageDigest md, String str) {",
+          "      return md.digest(str.getBytes(Charset.defaultCharset()));",
+          "    }",
+          "  }",
+          "  static class AnyOf {",
+          "    @BeforeTemplate boolean before(double d) {",
+          "      return Refaster.anyOf(Math.signum(d) == 0.0, 0.0 == Math.signum(d));",
+          "    }",
+          "    @AfterTemplate boolean after(double d) { return d == 0.0; }",
+          "  }",
+          "  static class Vararg {",
+          "    @BeforeTemplate String before(String template, @Repeated Object vararg) {",
+          "      return String.format(template, new Object[] {vararg});",
+          "    }",
+          "    @AfterTemplate String after(String template, @Repeated Object vararg) {",
+          "      return String.format(template, vararg);",
+          "    }",
+          "  }",
+          "}",
+          "");
+
+  /** The number of times the statements matched by the rules are repeated. */
+  @Param({"200"})
+  int repetitions;
+
+  private Context context;
+  private ImmutableList<ExpressionTemplate> templates;
+  private ImmutableList<JCExpression> targets;
+
+  @Setup
+  public void setUp() {
+    JavacTool tool = JavacTool.create();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of(
+                    "-proc:none", "-classpath", System.getProperty("java.class.path")),
+                null,
+                ImmutableList.of(
+                    source("Rules", RULES), source("Target", targetSource(repetitions))));
+    ImmutableList<JCCompilationUnit> units;
+    try {
+      units = ImmutableList.copyOf(Iterables.filter(task.parse(), JCCompilationUnit.class));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    task.analyze();
+    ImmutableList.Builder<ExpressionTemplate> templates = ImmutableList.builder();
+    ClassTree rulesClass = (ClassTree) getOnlyElement(units.get(0).getTypeDecls());
+    for (Tree member : rulesClass.getMembers()) {
+      if (member instanceof ClassTree) {
+        for (CodeTransformer transformer :
+            RefasterRuleBuilderScanner.extractRules((ClassTree) member, task.getContext())) {
+          for (Template<?> template : ((RefasterRule<?, ?>) transformer).beforeTemplates()) {
+            templates.add((ExpressionTemplate) template);
+          }
+        }
+      }
+    }
+    this.templates = templates.build();
+    JCCompilationUnit target = units.get(1);
+    context = RefasterRule.prepareContext(task.getContext(), target);
+    List<JCExpression> targets = new ArrayList<>();
+    new TreeScanner() {
+      @Override
+      public void scan(JCTree tree) {
+        if (tree instanceof JCExpression) {
+          targets.add((JCExpression) tree);
+        }
+        super.scan(tree);
+      }
+    }.scan(target);
+    this.targets = ImmutableList.copyOf(targets);
+  }
+
+  @Benchmark
+  public void match(Blackhole blackhole) {
+    for (ExpressionTemplate template : templates) {
+      for (JCExpression target : targets) {
+        blackhole.consume(template.match(target, context));
+      }
+    }
+  }
+
+  /**
+   * Returns a class with expressions that each template matches, and similar expressions that
+   * only some of its subtrees match.
+   */
+  private static String targetSource(int repetitions) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("import java.nio.charset.Charset;\n");
+    sb.append("import java.security.MessageDigest;\n");
+    sb.append("class Target {\n");
+    sb.append("  void f(int x, int y, double d, String s, MessageDigest md) {\n");
+    for (int i = 0; i < repetitions; i++) {
+      sb.append("    int a").append(i).append(" = (x + y) / 2;\n");
+      sb.append("    int b").append(i).append(" = (x - y) / ").append(i + 3).append(";\n");
+      sb.append("    int c").append(i).append(" = (x * y) + 5;\n");
+      sb.append("    int e").append(i).append(" = (x * y) + ").append(i + 6).append(";\n");
+      sb.append("    Charset f").append(i).append(" = Charset.forName(\"UTF-8\");\n");
+      sb.append("    Charset g").append(i).append(" = Charset.forName(\"US-ASCII\");\n");
+      sb.append("    byte[] h").append(i).append(" = md.digest(s.getBytes());\n");
+      sb.append("    byte[] j").append(i).append(" = md.digest(s.getBytes(\"UTF-8\"));\n");
+      sb.append("    boolean k").append(i).append(" = Math.signum(d) == 0.0;\n");
+      sb.append("    boolean l").append(i).append(" = Math.abs(d) == 1.0;\n");
+      sb.append("    String m").append(i).append(" = String.format(s, new Object[] {x, y});\n");
+      sb.append("    String n").append(i).append(" = String.valueOf(s.length() + x);\n");
+    }
+    return sb.append("  }\n}\n").toString();
+  }
+
+  private static JavaFileObject source(String className, String source) {
+    return new SimpleJavaFileObject(
+        URI.create("file:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}
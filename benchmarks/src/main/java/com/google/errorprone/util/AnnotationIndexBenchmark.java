@@ -0,0 +1,240 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Attribute.Compound;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.util.Name;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for asking which of a few dozen annotations are on the declarations of a class that
+ * is annotated like Dagger and Immutables code, as checks like UnusedVariable and the inject checks
+ * do.
+ *
+ * <p>{@code hasAnnotation} and {@code annotationsAmong} use the {@link AnnotationIndex}, and {@code
+ * scan} looks through each symbol's annotations and superclasses for every question, as they did
+ * before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+    })
+@State(Scope.Benchmark)
+public class AnnotationIndexBenchmark {
+
+  /** The annotations declared by the target, and the ones that are {@code @Inherited}. */
+  private static final ImmutableList<String> ANNOTATIONS =
+      ImmutableList.of(
+          "Inject", "Singleton", "Provides", "Binds", "Module", "Component", "Named", "Qualifier",
+          "Immutable", "Style", "Default", "Derived", "Lazy", "Check", "Nullable", "Keep");
+
+  private static final ImmutableSet<String> INHERITED = ImmutableSet.of("Style", "Keep");
+
+  /** The number of classes in the target, each extending the previous one. */
+  @Param({"50"})
+  int classes;
+
+  private VisitorState state;
+  private ImmutableList<Symbol> symbols;
+  private ImmutableList<String> queries;
+  private ImmutableSet<Name> queryNames;
+  private ImmutableSet<Name> inherited;
+
+  @Setup
+  public void setUp() {
+    JavacTool tool = JavacTool.create();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of("-proc:none"),
+                null,
+                ImmutableList.of(source("Target", targetSource(classes))));
+    CompilationUnitTree unit;
+    try {
+      unit = Iterables.getOnlyElement(task.parse());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    task.analyze();
+    state = VisitorState.createForUtilityPurposes(task.getContext());
+
+    List<Symbol> symbols = new ArrayList<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitClass(ClassTree tree, Void unused) {
+        symbols.add(ASTHelpers.getSymbol(tree));
+        return super.visitClass(tree, null);
+      }
+
+      @Override
+      public Void visitMethod(MethodTree tree, Void unused) {
+        symbols.add(ASTHelpers.getSymbol(tree));
+        return super.visitMethod(tree, null);
+      }
+
+      @Override
+      public Void visitVariable(VariableTree tree, Void unused) {
+        symbols.add(ASTHelpers.getSymbol(tree));
+        return super.visitVariable(tree, null);
+      }
+    }.scan(unit, null);
+    this.symbols = ImmutableList.copyOf(symbols);
+    this.queries =
+        ANNOTATIONS.stream().map(a -> "Target$" + a).collect(ImmutableList.toImmutableList());
+    this.queryNames = queries.stream().map(state::getName).collect(toImmutableSet());
+    this.inherited =
+        INHERITED.stream().map(a -> state.getName("Target$" + a)).collect(toImmutableSet());
+  }
+
+  @Benchmark
+  public void hasAnnotation(Blackhole blackhole) {
+    for (Symbol symbol : symbols) {
+      for (String query : queries) {
+        blackhole.consume(ASTHelpers.hasAnnotation(symbol, query, state));
+      }
+    }
+  }
+
+  @Benchmark
+  public void annotationsAmong(Blackhole blackhole) {
+    for (Symbol symbol : symbols) {
+      blackhole.consume(ASTHelpers.annotationsAmong(symbol, queryNames, state));
+    }
+  }
+
+  @Benchmark
+  public void scan(Blackhole blackhole) {
+    for (Symbol symbol : symbols) {
+      for (Name query : queryNames) {
+        blackhole.consume(scan(symbol, query));
+      }
+    }
+  }
+
+  /** Looks for an annotation on a symbol and, if it's inherited, on superclasses. */
+  private boolean scan(Symbol symbol, Name annotation) {
+    boolean isInherited = inherited.contains(annotation);
+    do {
+      for (Compound a : symbol.getRawAttributes()) {
+        if (a.type.tsym.flatName().equals(annotation)) {
+          return true;
+        }
+      }
+      if (!isInherited || !(symbol instanceof ClassSymbol)) {
+        return false;
+      }
+      symbol = ((ClassSymbol) symbol).getSuperclass().tsym;
+    } while (symbol instanceof ClassSymbol);
+    return false;
+  }
+
+  /**
+   * Returns a class that declares a few annotations, and a chain of subclasses whose declarations
+   * each have several of them.
+   */
+  private static String targetSource(int classes) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("import java.lang.annotation.Inherited;\n");
+    sb.append("class Target {\n");
+    for (String annotation : ANNOTATIONS) {
+      if (INHERITED.contains(annotation)) {
+        sb.append("  @Inherited\n");
+      }
+      sb.append("  @interface ").append(annotation).append(" {}\n");
+    }
+    for (int i = 0; i < classes; i++) {
+      sb.append(i == 0 ? "  @Style @Keep\n" : "  @Immutable @Module\n");
+      sb.append("  static class C").append(i);
+      if (i > 0) {
+        sb.append(" extends C").append(i - 1);
+      }
+      sb.append(" {\n");
+      sb.append("    @Inject @Named @Nullable Object a").append(i).append(";\n");
+      sb.append("    @Inject C").append(i).append("(@Named @Nullable String s) {");
+      sb.append(i > 0 ? " super(s); }\n" : " }\n");
+      sb.append("    @Provides @Singleton @Named String b").append(i);
+      sb.append("(@Nullable Object o, int x) { return null; }\n");
+      sb.append("    @Default @Derived @Lazy @Check int c").append(i).append("() { return 0; }\n");
+      sb.append("    void d").append(i).append("() {}\n");
+      sb.append("  }\n");
+    }
+    return sb.append("}\n").toString();
+  }
+
+  private static JavaFileObject source(String className, String source) {
+    return new SimpleJavaFileObject(
+        URI.create("file:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.util.Context;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks for tokenizing comment-dense sources with {@link ErrorProneTokens}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+      "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+    })
+@State(Scope.Benchmark)
+public class ErrorProneTokensBenchmark {
+
+  /** The number of documented methods in the generated source. */
+  @Param({"100", "1000"})
+  int methods;
+
+  private Context context;
+  private String source;
+
+  @Setup
+  public void setUp() {
+    context = new Context();
+    new JavacFileManager(context, /* register= */ true, UTF_8);
+    source = commentDenseSource(methods);
+  }
+
+  @Benchmark
+  public void getTokens(Blackhole blackhole) {
+    for (ErrorProneToken token : ErrorProneTokens.getTokens(source, context)) {
+      for (Comment comment : token.comments()) {
+        blackhole.consume(comment.getText());
+      }
+    }
+  }
+
+  @Benchmark
+  public CompilationUnitTokens compilationUnitTokens() {
+    return CompilationUnitTokens.create(source, context);
+  }
+
+  /** Returns a class in which every member is surrounded by javadoc, line and block comments. */
+  private static String commentDenseSource(int methods) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("/** A class with lots of comments. */\n");
+    sb.append("class Test {\n");
+    for (int i = 0; i < methods; i++) {
+      sb.append("  /**\n");
+      sb.append("   * Returns the sum of its arguments.\n");
+      sb.append("   *\n");
+      sb.append("   * @param a the first summand\n");
+      sb.append("   * @param b the second summand\n");
+      sb.append("   */\n");
+      sb.append("  // TODO: overflow?\n");
+      sb.append("  int add").append(i).append("(int a /* first */, int b /* second */) {\n");
+      sb.append("    // add them up\n");
+      sb.append("    return a + /* plus */ b; // done\n");
+      sb.append("  }\n");
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+}
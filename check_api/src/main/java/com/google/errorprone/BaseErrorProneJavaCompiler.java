@@ -21,6 +21,7 @@ import static com.google.common.base.StandardSystemProperty.JAVA_SPECIFICATION_V
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.RefactoringCollection.RefactoringResult;
+import com.google.errorprone.descriptionlistener.AsyncDescriptionDelivery;
 import com.google.errorprone.hubspot.HubSpotErrorProneAnalyzer;
 import com.google.errorprone.scanner.ErrorProneScannerTransformer;
 import com.google.errorprone.scanner.ScannerSupplier;
@@ -262,23 +263,47 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
 
     @Override
     public void finished(TaskEvent event) {
+      if (event.getKind() == Kind.COMPILATION) {
+        AsyncDescriptionDelivery.instance(context).flush();
+        if (refactoringCollection.parallel()) {
+          try {
+            refactoringCollection.awaitChanges(this::report, this::reportFailure);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reportFailure(e);
+          }
+        }
+        return;
+      }
       if (event.getKind() != Kind.GENERATE) {
         return;
       }
+      if (refactoringCollection.parallel()) {
+        refactoringCollection.applyChangesInParallel(event.getSourceFile().toUri());
+        return;
+      }
       RefactoringResult refactoringResult;
       try {
         refactoringResult = refactoringCollection.applyChanges(event.getSourceFile().toUri());
       } catch (Exception e) {
-        PrintWriter out = Log.instance(context).getWriter(WriterKind.ERROR);
-        out.println(e.getMessage());
-        out.flush();
+        reportFailure(e);
         return;
       }
+      report(refactoringResult);
+    }
+
+    private void report(RefactoringResult refactoringResult) {
       if (refactoringResult.type() == RefactoringCollection.RefactoringResultType.CHANGED) {
         PrintWriter out = Log.instance(context).getWriter(WriterKind.NOTICE);
         out.println(refactoringResult.message());
         out.flush();
       }
     }
+
+    private void reportFailure(Exception e) {
+      PrintWriter out = Log.instance(context).getWriter(WriterKind.ERROR);
+      out.println(e.getMessage());
+      out.flush();
+    }
   }
 }
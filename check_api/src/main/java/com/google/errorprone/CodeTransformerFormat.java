@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A file format for {@link CodeTransformer}s, such as compiled Refaster rules, that can be passed
+ * to {@code -XepPatchChecks:refaster:<path>}.
+ *
+ * <p>Implementations are found with {@link java.util.ServiceLoader}. Files in none of the available
+ * formats are read with Java serialization.
+ */
+public interface CodeTransformerFormat {
+
+  /** Returns true if a file that starts with the given bytes is in this format. */
+  boolean accepts(byte[] header);
+
+  /** Reads the {@link CodeTransformer} in the file at the given path. */
+  CodeTransformer read(Path path) throws IOException;
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.hubspot.HubSpotUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Loads the {@link CodeTransformer}s passed to {@code -XepPatchChecks:refaster:<path>}.
+ *
+ * <p>Loaded transformers are cached for the lifetime of the JVM, so that the many compilations run
+ * by a build daemon don't each load the same file again. A cached transformer is reused as long as
+ * the file's modification time and size are unchanged, and is softly referenced so that it can be
+ * reclaimed under memory pressure.
+ */
+public final class CodeTransformerLoader {
+
+  /** The number of bytes at the start of a file that are used to detect its format. */
+  private static final int HEADER_LENGTH = 8;
+
+  private static final Supplier<ImmutableList<CodeTransformerFormat>> FORMATS =
+      Suppliers.memoize(
+          () ->
+              ImmutableList.copyOf(
+                  ServiceLoader.load(
+                      CodeTransformerFormat.class, CodeTransformerLoader.class.getClassLoader())));
+
+  private static final ConcurrentHashMap<Path, CachedTransformer> CACHE =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the {@link CodeTransformer} in the file at the given path, from the cache if the file
+   * hasn't changed since it was last loaded.
+   */
+  public static CodeTransformer load(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    FileTime lastModified = attributes.lastModifiedTime();
+    long size = attributes.size();
+    CachedTransformer cached = CACHE.get(key);
+    CodeTransformer transformer = cached == null ? null : cached.get(lastModified, size);
+    if (transformer != null) {
+      HubSpotUtils.recordRefasterRuleCacheHit();
+      return transformer;
+    }
+    // Concurrent compilations may both load the file on a miss, which is harmless.
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    transformer = read(key);
+    HubSpotUtils.recordRefasterRuleLoad(stopwatch.elapsed());
+    CACHE.put(key, new CachedTransformer(lastModified, size, transformer));
+    return transformer;
+  }
+
+  /**
+   * Reads the {@link CodeTransformer} in the file at the given path, using the first {@link
+   * CodeTransformerFormat} that accepts it, or Java serialization if none do.
+   */
+  static CodeTransformer read(Path path) throws IOException {
+    byte[] header = new byte[HEADER_LENGTH];
+    int length;
+    try (InputStream in = Files.newInputStream(path)) {
+      length = in.readNBytes(header, 0, header.length);
+    }
+    header = Arrays.copyOf(header, length);
+    for (CodeTransformerFormat format : FORMATS.get()) {
+      if (format.accepts(header)) {
+        return format.read(path);
+      }
+    }
+    try (InputStream in = Files.newInputStream(path);
+        ObjectInputStream ois = new ObjectInputStream(in)) {
+      return (CodeTransformer) ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** A softly referenced transformer, and the version of the file it was loaded from. */
+  private static final class CachedTransformer {
+    private final FileTime lastModified;
+    private final long size;
+    private final SoftReference<CodeTransformer> transformer;
+
+    CachedTransformer(FileTime lastModified, long size, CodeTransformer transformer) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.transformer = new SoftReference<>(transformer);
+    }
+
+    /** Returns the transformer if it was loaded from the given version of the file. */
+    @Nullable
+    CodeTransformer get(FileTime lastModified, long size) {
+      if (!this.lastModified.equals(lastModified) || this.size != size) {
+        return null;
+      }
+      return transformer.get();
+    }
+  }
+
+  private CodeTransformerLoader() {}
+}
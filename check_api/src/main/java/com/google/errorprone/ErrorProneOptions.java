@@ -26,10 +26,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.apply.ImportOrganizer;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -50,6 +47,7 @@ public class ErrorProneOptions {
   private static final String PATCH_CHECKS_PREFIX = "-XepPatchChecks:";
   private static final String PATCH_OUTPUT_LOCATION = "-XepPatchLocation:";
   private static final String PATCH_IMPORT_ORDER_PREFIX = "-XepPatchImportOrder:";
+  private static final String PATCH_PARALLEL = "-XepPatchParallel";
   private static final String EXCLUDED_PATHS_PREFIX = "-XepExcludedPaths:";
   private static final String IGNORE_LARGE_CODE_GENERATORS = "-XepIgnoreLargeCodeGenerators:";
 
@@ -78,7 +76,8 @@ public class ErrorProneOptions {
             || option.equals(DISABLE_ALL_CHECKS)
             || option.equals(IGNORE_SUPPRESSION_ANNOTATIONS)
             || option.equals(COMPILING_TEST_ONLY_CODE)
-            || option.equals(DISABLE_ALL_WARNINGS);
+            || option.equals(DISABLE_ALL_WARNINGS)
+            || option.equals(PATCH_PARALLEL);
     return isSupported ? 0 : -1;
   }
 
@@ -118,11 +117,18 @@ public class ErrorProneOptions {
 
     abstract ImportOrganizer importOrganizer();
 
+    /**
+     * Whether the changes to each file are applied on a background thread, rather than on javac's
+     * thread once the file has been generated.
+     */
+    abstract boolean parallel();
+
     static Builder builder() {
       return new AutoValue_ErrorProneOptions_PatchingOptions.Builder()
           .baseDirectory("")
           .inPlace(false)
           .namedCheckers(ImmutableSet.of())
+          .parallel(false)
           .importOrganizer(ImportOrganizer.STATIC_FIRST_ORGANIZER);
     }
 
@@ -139,6 +145,8 @@ public class ErrorProneOptions {
 
       abstract Builder importOrganizer(ImportOrganizer importOrganizer);
 
+      abstract Builder parallel(boolean parallel);
+
       abstract PatchingOptions autoBuild();
 
       final PatchingOptions build() {
@@ -152,6 +160,10 @@ public class ErrorProneOptions {
           throw new InvalidCommandLineOptionException(
               "-XepPatchChecks and -XepPatchLocation must be specified together");
         }
+        if (patchingOptions.parallel() && !patchingOptions.doRefactor()) {
+          throw new InvalidCommandLineOptionException(
+              "-XepPatchParallel requires -XepPatchChecks and -XepPatchLocation");
+        }
         return patchingOptions;
       }
     }
@@ -419,6 +431,9 @@ public class ErrorProneOptions {
         case DISABLE_ALL_WARNINGS:
           builder.setDisableAllWarnings(true);
           break;
+        case PATCH_PARALLEL:
+          builder.patchingOptionsBuilder().parallel(true);
+          break;
         default:
           if (arg.startsWith(SEVERITY_PREFIX)) {
             builder.parseSeverity(arg);
@@ -437,17 +452,16 @@ public class ErrorProneOptions {
           } else if (arg.startsWith(PATCH_CHECKS_PREFIX)) {
             String remaining = arg.substring(PATCH_CHECKS_PREFIX.length());
             if (remaining.startsWith("refaster:")) {
-              // Refaster rule, load from InputStream at file
+              // Refaster rule, load from file
               builder
                   .patchingOptionsBuilder()
                   .customRefactorer(
                       () -> {
                         String path = remaining.substring("refaster:".length());
-                        try (InputStream in =
-                                Files.newInputStream(FileSystems.getDefault().getPath(path));
-                            ObjectInputStream ois = new ObjectInputStream(in)) {
-                          return (CodeTransformer) ois.readObject();
-                        } catch (IOException | ClassNotFoundException e) {
+                        try {
+                          return CodeTransformerLoader.load(
+                              FileSystems.getDefault().getPath(path));
+                        } catch (IOException e) {
                           throw new RuntimeException("Can't load Refaster rule from " + path, e);
                         }
                       });
@@ -26,9 +26,21 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
-/** A collection of timing data for the runtime of individual checks. */
+/**
+ * A collection of timing data for the runtime of individual checks, and of other named timers and
+ * counters such as those of Refaster templates.
+ */
 public final class ErrorProneTimings {
 
+  /**
+   * The prefix of the counters and timers of individual Refaster templates. They overlap with each
+   * other, and are mostly counts, so they aren't included in the total time.
+   */
+  public static final String REFASTER_TEMPLATE_PREFIX = "refaster:";
+
+  /** The prefix of the hit and miss counts of {@link com.google.errorprone.util.SubtypeCache}. */
+  public static final String SUBTYPE_CACHE_PREFIX = "subtype-cache:";
+
   private static final Context.Key<ErrorProneTimings> timingsKey = new Context.Key<>();
 
   public static ErrorProneTimings instance(Context context) {
@@ -44,6 +56,7 @@ public final class ErrorProneTimings {
   }
 
   private final Map<String, Stopwatch> timers = new HashMap<>();
+  private final Map<String, Counter> counters = new HashMap<>();
 
   /** Creates a timing span for the given {@link Suppressible}. */
   public AutoCloseable span(Suppressible suppressible) {
@@ -52,9 +65,46 @@ public final class ErrorProneTimings {
     return () -> sw.stop();
   }
 
+  /**
+   * Returns the timer with the given name, which is reported by {@link #timings} alongside the
+   * timers of checks. Callers that time the same code repeatedly should hold on to the timer.
+   */
+  public Stopwatch timer(String name) {
+    return timers.computeIfAbsent(name, k -> Stopwatch.createUnstarted());
+  }
+
+  /**
+   * Returns the counter with the given name, which is reported by {@link #counts}. Callers that
+   * count the same event repeatedly should hold on to the counter.
+   */
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(name, k -> new Counter());
+  }
+
   /** Returns the elapsed durations of each timer. */
   public ImmutableMap<String, Duration> timings() {
     return timers.entrySet().stream()
         .collect(toImmutableMap(e -> e.getKey(), e -> e.getValue().elapsed()));
   }
+
+  /** Returns the value of each counter. */
+  public ImmutableMap<String, Long> counts() {
+    return counters.entrySet().stream()
+        .collect(toImmutableMap(e -> e.getKey(), e -> e.getValue().count));
+  }
+
+  /** A count of events, which like the rest of this class is confined to javac's thread. */
+  public static final class Counter {
+    private long count;
+
+    private Counter() {}
+
+    public void increment() {
+      count++;
+    }
+
+    public void add(long delta) {
+      count += delta;
+    }
+  }
 }
@@ -21,6 +21,7 @@ import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.SetMultimap;
@@ -46,7 +47,13 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -63,6 +70,10 @@ class RefactoringCollection implements DescriptionListener.Factory {
   private final Function<URI, RefactoringResult> postProcess;
   private final DescriptionListener.Factory descriptionsFactory;
   private final ImportOrganizer importOrganizer;
+  private final boolean parallel;
+
+  /** The changes being applied in parallel, in the order they were started. */
+  private final Map<URI, CompletableFuture<Void>> pendingChanges = new LinkedHashMap<>();
 
   @AutoValue
   abstract static class RefactoringResult {
@@ -70,7 +81,7 @@ class RefactoringCollection implements DescriptionListener.Factory {
 
     abstract RefactoringResultType type();
 
-    private static RefactoringResult create(String message, RefactoringResultType type) {
+    static RefactoringResult create(String message, RefactoringResultType type) {
       return new AutoValue_RefactoringCollection_RefactoringResult(message, type);
     }
   }
@@ -124,20 +135,36 @@ class RefactoringCollection implements DescriptionListener.Factory {
 
     ImportOrganizer importOrganizer = patchingOptions.importOrganizer();
     return new RefactoringCollection(
-        rootPath, fileDestination, postProcess, importOrganizer, context);
+        rootPath,
+        fileDestination,
+        postProcess,
+        importOrganizer,
+        patchingOptions.parallel(),
+        context);
   }
 
-  private RefactoringCollection(
+  @VisibleForTesting
+  RefactoringCollection(
       Path rootPath,
       FileDestination fileDestination,
       Function<URI, RefactoringResult> postProcess,
       ImportOrganizer importOrganizer,
+      boolean parallel,
       Context context) {
     this.rootPath = rootPath;
     this.fileDestination = fileDestination;
     this.postProcess = postProcess;
     this.descriptionsFactory = DescriptionListeners.factoryForRefactoring(context);
     this.importOrganizer = importOrganizer;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Returns true if changes should be applied with {@link #applyChangesInParallel} and {@link
+   * #awaitChanges}, rather than {@link #applyChanges}.
+   */
+  boolean parallel() {
+    return parallel;
   }
 
   private static Path buildRootPath() {
@@ -170,6 +197,63 @@ class RefactoringCollection implements DescriptionListener.Factory {
     return postProcess.apply(uri);
   }
 
+  /**
+   * Starts applying the changes to the given file on the common fork-join pool.
+   *
+   * <p>Matching has to happen on javac's thread, since javac's symbol tables and type caches aren't
+   * thread-safe, but reading each file, applying its fixes and computing its diff only depend on
+   * that file's {@link DescriptionBasedDiff}.
+   */
+  void applyChangesInParallel(URI uri) {
+    Collection<DelegatingDescriptionListener> listeners = foundSources.removeAll(uri);
+    if (listeners.isEmpty()) {
+      return;
+    }
+    for (DelegatingDescriptionListener listener : listeners) {
+      listener.base.resolveImports();
+    }
+    pendingChanges.put(
+        uri,
+        CompletableFuture.runAsync(
+            () -> doApplyProcess(fileDestination, new FsFileSource(rootPath), listeners),
+            ForkJoinPool.commonPool()));
+  }
+
+  /**
+   * Waits for the changes started by {@link #applyChangesInParallel}, and reports their results in
+   * the order they were started. Patch files are written here, on the calling thread. As with
+   * {@link #applyChanges}, a file that couldn't be changed is reported to {@code onFailure} without
+   * stopping the remaining files.
+   */
+  void awaitChanges(Consumer<RefactoringResult> onResult, Consumer<Exception> onFailure)
+      throws InterruptedException {
+    try {
+      for (Map.Entry<URI, CompletableFuture<Void>> entry : pendingChanges.entrySet()) {
+        RefactoringResult result;
+        try {
+          result = awaitChange(entry.getKey(), entry.getValue());
+        } catch (InterruptedException e) {
+          throw e;
+        } catch (Exception e) {
+          onFailure.accept(e);
+          continue;
+        }
+        onResult.accept(result);
+      }
+    } finally {
+      pendingChanges.clear();
+    }
+  }
+
+  private RefactoringResult awaitChange(URI uri, CompletableFuture<Void> change) throws Exception {
+    try {
+      change.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+    return postProcess.apply(uri);
+  }
+
   private static void writePatchFile(
       AtomicBoolean first, URI uri, PatchFileDestination fileDestination, Path patchFilePatch)
       throws IOException {
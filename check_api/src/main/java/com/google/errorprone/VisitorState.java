@@ -30,8 +30,12 @@ import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnalysis;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.util.CompilationUnitTokens;
 import com.google.errorprone.util.ErrorProneToken;
 import com.google.errorprone.util.ErrorProneTokens;
+import com.google.errorprone.util.LineIndex;
+import com.google.errorprone.util.SubtypeCache;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Kinds.Kind;
@@ -39,6 +43,7 @@ import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.code.Symbol.ModuleSymbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
 import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Type.ArrayType;
@@ -51,15 +56,19 @@ import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Convert;
 import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Options;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import javax.lang.model.util.Elements;
 
@@ -220,9 +229,25 @@ public class VisitorState {
   }
 
   public VisitorState withPath(TreePath path) {
+    if (this.path == null || path == null || this.path.getLeaf() != path.getLeaf()) {
+      sharedState.nodeCache.clear();
+    }
     return new VisitorState(context, path, suppressedState, sharedState);
   }
 
+  /**
+   * Returns the result of applying {@code compute} to {@code tree}, memoized for as long as the
+   * scanner is visiting the current node. Matchers that derive the same information from a tree,
+   * like the symbol of a method invocation, can use this to share it rather than recompute it for
+   * every matcher of every check.
+   *
+   * <p>Results are keyed by the identity of both {@code tree} and {@code compute}, which should
+   * therefore be a constant rather than a capturing lambda. Null results are memoized too.
+   */
+  public <T extends Tree, R> R memoizeForNode(T tree, Function<? super T, R> compute) {
+    return sharedState.nodeCache.get(tree, compute);
+  }
+
   public VisitorState withSuppression(SuppressedState suppressedState) {
     if (suppressedState == this.suppressedState) {
       return this;
@@ -246,6 +271,11 @@ public class VisitorState {
     return JavacElements.instance(context);
   }
 
+  /** Returns the cache of erased subtype checks for the current javac invocation. */
+  public SubtypeCache getSubtypeCache() {
+    return sharedState.subtypeCache;
+  }
+
   public Symtab getSymtab() {
     return sharedState.symtab;
   }
@@ -345,10 +375,18 @@ public class VisitorState {
    */
   @Nullable
   public Type getTypeFromString(String typeStr) {
-    return sharedState
-        .typeCache
-        .computeIfAbsent(typeStr, key -> Optional.ofNullable(getTypeFromStringInternal(key)))
-        .orElse(null);
+    Type type = sharedState.resolvedTypes.get(typeStr);
+    if (type != null || sharedState.unresolvedTypes.contains(typeStr)) {
+      return type;
+    }
+    // Not computeIfAbsent, since completing a symbol may look up other types.
+    type = getTypeFromStringInternal(typeStr);
+    if (type == null) {
+      sharedState.unresolvedTypes.add(typeStr);
+      return null;
+    }
+    Type previous = sharedState.resolvedTypes.putIfAbsent(typeStr, type);
+    return previous != null ? previous : type;
   }
 
   @Nullable
@@ -398,12 +436,32 @@ public class VisitorState {
     if (!modular) {
       return getSymbolFromString(getSymtab().noModule, name);
     }
+    // A class can only be in a module that has its package, and most packages are only in one, so
+    // only probe those modules rather than all of them.
+    Name packageName = Convert.packagePart(name);
+    ModuleSymbol only = null;
+    int count = 0;
+    for (PackageSymbol pkg : getSymtab().getPackagesForName(packageName)) {
+      only = pkg.modle;
+      count++;
+    }
+    if (count == 0) {
+      return null;
+    }
+    if (count == 1) {
+      return getSymbolFromString(only, name);
+    }
+    // Keep the order of allModules() if the package is split between modules.
+    Set<ModuleSymbol> modules = new HashSet<>();
+    for (PackageSymbol pkg : getSymtab().getPackagesForName(packageName)) {
+      modules.add(pkg.modle);
+    }
     for (ModuleSymbol msym : sharedState.modules.allModules()) {
+      if (!modules.contains(msym)) {
+        continue;
+      }
       ClassSymbol result = getSymbolFromString(msym, name);
       if (result != null) {
-        // TODO(cushon): the path where we iterate over all modules is probably slow.
-        // Try to learn some lessons from JDK-8189747, and consider disallowing this case and
-        // requiring users to call the getSymbolFromString(ModuleSymbol, Name) overload instead.
         return result;
       }
     }
@@ -564,35 +622,88 @@ public class VisitorState {
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from a token stream for the whole compilation unit, which is lexed
+   * the first time tokens are requested for any node in the file.
    */
   public List<ErrorProneToken> getTokensForNode(Tree tree) {
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), context);
+    int end = getEndPosition(tree);
+    if (end == -1) {
+      return ErrorProneTokens.getTokens(null, context);
+    }
+    return getCompilationUnitTokens().getTokens(getStartPosition(tree), end);
   }
 
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}, offset by the start position
    * of the tree within the overall source.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from a token stream for the whole compilation unit, which is lexed
+   * the first time tokens are requested for any node in the file.
    */
   public List<ErrorProneToken> getOffsetTokensForNode(Tree tree) {
     int start = getStartPosition(tree);
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), start, context);
+    int end = getEndPosition(tree);
+    if (end == -1) {
+      return ErrorProneTokens.getTokens(null, start, context);
+    }
+    return getCompilationUnitTokens().getOffsetTokens(start, end);
   }
 
   /**
    * Returns the list of {@link Token}s for source code between the given positions, offset by the
    * start position.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are served from a token stream for the whole compilation unit, which is lexed
+   * the first time tokens are requested for any node in the file.
    */
   public List<ErrorProneToken> getOffsetTokens(int start, int end) {
-    return ErrorProneTokens.getTokens(
-        getSourceCode().subSequence(start, end).toString(), start, context);
+    return getCompilationUnitTokens().getOffsetTokens(start, end);
+  }
+
+  /**
+   * Returns true if the source code between the given positions contains any comments.
+   *
+   * <p>This is answered from an index of the comments in the current compilation unit, which is
+   * built the first time tokens or comments are requested for any node in the file.
+   */
+  public boolean containsComments(int start, int end) {
+    return getCompilationUnitTokens().containsComments(start, end);
+  }
+
+  /**
+   * Returns an index of the lines of the current compilation unit's source, for mapping between
+   * source positions and lines. The index is built the first time it is requested for a file.
+   */
+  public LineIndex getLineIndex() {
+    CompilationUnitState compilationUnitState = getCompilationUnitState();
+    if (compilationUnitState.lineIndex == null) {
+      compilationUnitState.lineIndex = LineIndex.create(getSourceCode());
+    }
+    return compilationUnitState.lineIndex;
+  }
+
+  /** Returns the tokens of the current compilation unit, lexing it if necessary. */
+  private CompilationUnitTokens getCompilationUnitTokens() {
+    CompilationUnitState compilationUnitState = getCompilationUnitState();
+    if (compilationUnitState.tokens == null) {
+      compilationUnitState.tokens =
+          CompilationUnitTokens.create(getSourceCode().toString(), context);
+    }
+    return compilationUnitState.tokens;
+  }
+
+  /**
+   * Returns the cached state for the compilation unit of the current path, discarding the state of
+   * any previously visited compilation unit.
+   */
+  private CompilationUnitState getCompilationUnitState() {
+    CompilationUnitTree compilationUnit = getPath().getCompilationUnit();
+    CompilationUnitState compilationUnitState = sharedState.compilationUnitState;
+    if (compilationUnitState == null || compilationUnitState.compilationUnit != compilationUnit) {
+      compilationUnitState = new CompilationUnitState(compilationUnit);
+      sharedState.compilationUnitState = compilationUnitState;
+    }
+    return compilationUnitState;
   }
 
   /** Returns the end position of the node, or -1 if it is not available. */
@@ -663,8 +774,8 @@ public class VisitorState {
     /* Uses T instead of Optional<T> because we don't want to cache null results
     (b/138753468). These inline caches persist between compilation units, and a type that fails to
     resolve in one may become available in the next; we want to keep looking it up
-    (relying on the per-file cache in typeCache) if we don't have a result. If you want to cache a
-    computation which can return null, wrap it in an Optional at the call site.*/
+    (relying on the per-file cache in unresolvedTypes) if we don't have a result. If you want to
+    cache a computation which can return null, wrap it in an Optional at the call site.*/
 
     private SoftReference<T> cache = new SoftReference<>(null);
     private JavacInvocationInstance provenance;
@@ -721,16 +832,23 @@ public class VisitorState {
     private final Types types;
     private final TreeMaker treeMaker;
     private final JavacInvocationInstance javacInvocationInstance;
+    private final SubtypeCache subtypeCache;
 
     private final DescriptionListener descriptionListener;
     private final StatisticsCollector statisticsCollector;
     private final Map<String, SeverityLevel> severityMap;
     private final ErrorProneOptions errorProneOptions;
 
-    // TODO(ronshapiro): should we presize this with a reasonable size? We can check for the
-    // smallest build and see how many types are loaded and use that. Or perhaps a heuristic
-    // based on number of files?
-    private final Map<String, Optional<Type>> typeCache = new HashMap<>();
+    // The types that were found, which are shared by all compilation units of the invocation.
+    private final Map<String, Type> resolvedTypes;
+    // The types that weren't found for this compilation unit, but may be found for a later one.
+    private final Set<String> unresolvedTypes = new HashSet<>();
+
+    // Lazily computed information about the compilation unit currently being visited.
+    @Nullable private CompilationUnitState compilationUnitState;
+
+    // Values derived from the trees around the node currently being visited.
+    private final NodeCache nodeCache = new NodeCache();
 
     SharedState(
         Context context,
@@ -745,6 +863,8 @@ public class VisitorState {
       this.types = Types.instance(context);
       this.treeMaker = TreeMaker.instance(context);
       this.javacInvocationInstance = JavacInvocationInstance.instance(context);
+      this.subtypeCache = SubtypeCache.instance(context);
+      this.resolvedTypes = ResolvedTypes.instance(context).types;
 
       this.descriptionListener = descriptionListener;
       this.statisticsCollector = statisticsCollector;
@@ -753,6 +873,85 @@ public class VisitorState {
     }
   }
 
+  /**
+   * The types found by {@link #getTypeFromString} for a javac invocation. A type is only looked up
+   * once per invocation, rather than once per compilation unit, and lookups may come from
+   * compilation units that are scanned concurrently.
+   */
+  @VisibleForTesting
+  static final class ResolvedTypes {
+    private static final Context.Key<ResolvedTypes> KEY = new Context.Key<>();
+
+    // Most builds look up a few hundred types by name.
+    final Map<String, Type> types = new ConcurrentHashMap<>(1024);
+
+    static ResolvedTypes instance(Context context) {
+      synchronized (context) {
+        ResolvedTypes instance = context.get(KEY);
+        if (instance == null) {
+          instance = new ResolvedTypes();
+          context.put(KEY, instance);
+        }
+        return instance;
+      }
+    }
+  }
+
+  /**
+   * A small cache of values computed from trees, for {@link #memoizeForNode}. Most lookups are for
+   * the node being visited, and a few of its subtrees, so a handful of entries is enough, and a
+   * linear scan of them is cheaper than hashing.
+   */
+  private static final class NodeCache {
+    private static final int CAPACITY = 8;
+
+    private final Tree[] trees = new Tree[CAPACITY];
+    private final Function<?, ?>[] functions = new Function<?, ?>[CAPACITY];
+    private final Object[] values = new Object[CAPACITY];
+    private int size;
+    // The entry to replace next once the cache is full.
+    private int next;
+
+    @SuppressWarnings("unchecked") // values[i] was computed by functions[i]
+    <T extends Tree, R> R get(T tree, Function<? super T, R> compute) {
+      for (int i = 0; i < size; i++) {
+        if (trees[i] == tree && functions[i] == compute) {
+          return (R) values[i];
+        }
+      }
+      R value = compute.apply(tree);
+      trees[next] = tree;
+      functions[next] = compute;
+      values[next] = value;
+      next = (next + 1) % CAPACITY;
+      size = Math.min(size + 1, CAPACITY);
+      return value;
+    }
+
+    void clear() {
+      if (size == 0) {
+        return;
+      }
+      Arrays.fill(trees, 0, size, null);
+      Arrays.fill(functions, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+      next = 0;
+    }
+  }
+
+  /** Information that is computed at most once per compilation unit, on demand. */
+  private static final class CompilationUnitState {
+    private final CompilationUnitTree compilationUnit;
+
+    @Nullable private CompilationUnitTokens tokens;
+    @Nullable private LineIndex lineIndex;
+
+    CompilationUnitState(CompilationUnitTree compilationUnit) {
+      this.compilationUnit = compilationUnit;
+    }
+  }
+
   /**
    * Returns the Java source code for a constant expression representing the given constant value.
    * Like {@link Elements#getConstantExpression}, but doesn't over-escape single quotes in strings.
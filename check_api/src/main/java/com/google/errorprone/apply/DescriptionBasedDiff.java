@@ -49,6 +49,7 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
   private final EndPosTable endPositions;
   private final Replacements replacements = new Replacements();
   private final ImportOrganizer importOrganizer;
+  private boolean importsResolved = false;
 
   public static DescriptionBasedDiff create(
       JCCompilationUnit compilationUnit, ImportOrganizer importOrganizer) {
@@ -108,8 +109,16 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
     }
   }
 
-  @Override
-  public void applyDifferences(SourceFile sourceFile) throws DiffNotApplicableException {
+  /**
+   * Computes the replacement of the compilation unit's imports, which reads javac's trees. After
+   * this, {@link #applyDifferences} no longer depends on javac, and can be called from another
+   * thread.
+   */
+  public void resolveImports() {
+    if (importsResolved) {
+      return;
+    }
+    importsResolved = true;
     if (!importsToAdd.isEmpty() || !importsToRemove.isEmpty()) {
       ImportStatements importStatements = ImportStatements.create(compilationUnit, importOrganizer);
       importStatements.addAll(importsToAdd);
@@ -123,6 +132,11 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
             Replacements.CoalescePolicy.REPLACEMENT_FIRST);
       }
     }
+  }
+
+  @Override
+  public void applyDifferences(SourceFile sourceFile) throws DiffNotApplicableException {
+    resolveImports();
     for (Replacement replacement : replacements.descending()) {
       sourceFile.replaceChars(
           replacement.startPosition(), replacement.endPosition(), replacement.replaceWith());
@@ -18,13 +18,12 @@ package com.google.errorprone.apply;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
-import com.google.common.io.CharSource;
+import com.google.errorprone.util.LineIndex;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.StringReader;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
 
 /**
@@ -39,6 +38,8 @@ public class SourceFile {
 
   private final String path;
   private final StringBuilder sourceBuilder;
+  // The lines of sourceBuilder, or null if it has been modified since they were last indexed.
+  @Nullable private LineIndex lineIndex;
 
   public static SourceFile create(JavaFileObject fileObject) throws IOException {
     return new SourceFile(fileObject.toUri().getPath(), fileObject.getCharContent(false));
@@ -56,11 +57,7 @@ public class SourceFile {
 
   /** Returns a copy of code as a list of lines. */
   public List<String> getLines() {
-    try {
-      return CharSource.wrap(sourceBuilder).readLines();
-    } catch (IOException e) {
-      throw new AssertionError("IOException not possible, as the string is in-memory", e);
-    }
+    return getLines(1, lineCount());
   }
 
   /** Returns a copy of the code as a string. */
@@ -76,6 +73,7 @@ public class SourceFile {
   public void setSourceText(CharSequence source) {
     sourceBuilder.setLength(0); // clear StringBuilder
     sourceBuilder.append(source);
+    lineIndex = null;
   }
 
   /**
@@ -100,27 +98,37 @@ public class SourceFile {
   }
 
   private List<String> getLines(int startLine, int endLine) {
-    LineNumberReader reader = new LineNumberReader(new StringReader(sourceBuilder.toString()));
-    List<String> lines = new ArrayList<>(endLine - startLine + 1);
-    String line;
-    try {
-      while ((line = reader.readLine()) != null) {
-        if (reader.getLineNumber() >= startLine) {
-          lines.add(line);
-        }
-        if (reader.getLineNumber() >= endLine) {
-          break;
-        }
-      }
-      return lines;
-    } catch (IOException e) {
-      throw new AssertionError("Wrapped StringReader should not produce I/O exceptions", e);
+    LineIndex lines = getLineIndex();
+    startLine = Math.max(startLine, 1);
+    endLine = Math.min(Math.max(endLine, startLine), lineCount());
+    List<String> result = new ArrayList<>(Math.max(endLine - startLine + 1, 0));
+    for (int line = startLine; line <= endLine; line++) {
+      result.add(sourceBuilder.substring(lines.getLineStart(line), lines.getLineEnd(line)));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of lines in the source. As with {@link java.io.BufferedReader#readLine}, a
+   * line terminator at the very end of the source doesn't start another line.
+   */
+  private int lineCount() {
+    LineIndex lines = getLineIndex();
+    int count = lines.getLineCount();
+    return lines.getLineStart(count) == sourceBuilder.length() ? count - 1 : count;
+  }
+
+  private LineIndex getLineIndex() {
+    if (lineIndex == null) {
+      lineIndex = LineIndex.create(sourceBuilder);
     }
+    return lineIndex;
   }
 
   /** Replace the source code with the new lines of code. */
   public void replaceLines(List<String> lines) {
     sourceBuilder.replace(0, sourceBuilder.length(), Joiner.on("\n").join(lines) + "\n");
+    lineIndex = null;
   }
 
   /** Replace the source code between the start and end lines with some new lines of code. */
@@ -150,6 +158,7 @@ public class SourceFile {
   public void replaceChars(int startPosition, int endPosition, String replacement) {
     try {
       sourceBuilder.replace(startPosition, endPosition, replacement);
+      lineIndex = null;
     } catch (StringIndexOutOfBoundsException e) {
       throw new IndexOutOfBoundsException(
           String.format(
@@ -22,6 +22,7 @@ import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 import static com.google.errorprone.util.ASTHelpers.getSymbol;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableRangeSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Range;
@@ -33,6 +34,7 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ASTHelpers;
@@ -56,6 +58,7 @@ import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.EmptyStatementTree;
 import com.sun.source.tree.EnhancedForLoopTree;
 import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.ForLoopTree;
 import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.IfTree;
@@ -468,6 +471,21 @@ public abstract class BugChecker implements Suppressible, Serializable {
 
   public interface MethodInvocationTreeMatcher extends Suppressible {
     Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state);
+
+    /**
+     * Returns method matchers, one of which matches every invocation that this matcher may report.
+     * The scanner compiles the matchers of all checkers into one lookup, and skips calling {@link
+     * #matchMethodInvocation} for invocations that none of these could match. The default, an
+     * empty list, means that this matcher is called for every invocation.
+     *
+     * <p>Only matchers that match every invocation this matcher reports on should be returned,
+     * typically the ones checked first in {@link #matchMethodInvocation}. Matchers other than
+     * those built with {@link com.google.errorprone.matchers.method.MethodMatchers} disable the
+     * prefilter for this matcher.
+     */
+    default ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+      return ImmutableList.of();
+    }
   }
 
   public interface ModifiersTreeMatcher extends Suppressible {
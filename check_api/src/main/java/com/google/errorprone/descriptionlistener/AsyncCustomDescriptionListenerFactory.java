@@ -0,0 +1,20 @@
+package com.google.errorprone.descriptionlistener;
+
+import com.google.errorprone.DescriptionListener;
+
+/**
+ * A {@link CustomDescriptionListenerFactory} whose listeners receive findings asynchronously.
+ *
+ * <p>Implementations are registered as a {@link CustomDescriptionListenerFactory} service as
+ * usual. Findings are resolved to a {@link ResolvedDescription} on the compilation thread, and
+ * then queued for delivery to the listener by {@link AsyncDescriptionDelivery}.
+ */
+public interface AsyncCustomDescriptionListenerFactory extends CustomDescriptionListenerFactory {
+  AsyncDescriptionListener createAsyncListener(DescriptionListenerResources resources);
+
+  @Override
+  default DescriptionListener createFactory(DescriptionListenerResources resources) {
+    return AsyncDescriptionDelivery.instance(resources.getContext())
+        .listener(resources, createAsyncListener(resources));
+  }
+}
@@ -0,0 +1,216 @@
+package com.google.errorprone.descriptionlistener;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.fixes.AppliedFix;
+import com.google.errorprone.hubspot.HubSpotUtils;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.LineIndex;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Position;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Delivers findings to {@link AsyncDescriptionListener}s on a background thread.
+ *
+ * <p>Findings are resolved on the compilation thread and placed in a bounded buffer, which is
+ * drained by a single delivery thread. If the listeners fall behind and the buffer fills up, the
+ * compilation thread waits for space rather than dropping findings, so at most {@code
+ * hubspot:async-listener-buffer-size} findings (1024 by default) are held in memory at once.
+ *
+ * <p>{@link #flush} must be called when the compilation finishes, to wait for any buffered
+ * findings to be delivered. The delivery thread is started again if more findings arrive later.
+ */
+public final class AsyncDescriptionDelivery {
+  private static final Context.Key<AsyncDescriptionDelivery> deliveryKey = new Context.Key<>();
+
+  private static final String BUFFER_SIZE_FLAG = "hubspot:async-listener-buffer-size";
+  private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  // Marks the end of the findings to deliver before the delivery thread exits.
+  private static final Delivery END = new Delivery(null, null, false);
+
+  public static AsyncDescriptionDelivery instance(Context context) {
+    AsyncDescriptionDelivery instance = context.get(deliveryKey);
+    if (instance == null) {
+      instance = new AsyncDescriptionDelivery(context);
+    }
+    return instance;
+  }
+
+  private final int bufferSize;
+
+  // Only accessed from the compilation thread.
+  @Nullable private BlockingQueue<Delivery> buffer;
+  @Nullable private Thread deliveryThread;
+
+  // The first exception thrown by a listener, if error handling is disabled.
+  @Nullable private volatile Throwable failure;
+
+  private AsyncDescriptionDelivery(Context context) {
+    ErrorProneFlags flags = context.get(ErrorProneFlags.class);
+    this.bufferSize =
+        flags == null
+            ? DEFAULT_BUFFER_SIZE
+            : flags.getInteger(BUFFER_SIZE_FLAG).orElse(DEFAULT_BUFFER_SIZE);
+    context.put(deliveryKey, this);
+  }
+
+  /**
+   * Returns a {@link DescriptionListener} for the compilation unit of {@code resources}, which
+   * resolves findings and queues them for delivery to {@code listener}.
+   */
+  DescriptionListener listener(
+      DescriptionListenerResources resources, AsyncDescriptionListener listener) {
+    boolean handleErrors = HubSpotUtils.isErrorHandlingEnabled(resources);
+    Resolver resolver = new Resolver(resources.getCompilation());
+    return description ->
+        enqueue(new Delivery(listener, resolver.resolve(description), handleErrors));
+  }
+
+  /**
+   * Waits for all queued findings to be delivered and stops the delivery thread. Rethrows the first
+   * exception thrown by a listener, unless error handling is enabled.
+   */
+  public void flush() {
+    Thread thread = deliveryThread;
+    if (thread != null) {
+      try {
+        buffer.put(END);
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while delivering findings", e);
+      } finally {
+        buffer = null;
+        deliveryThread = null;
+      }
+    }
+    Throwable t = failure;
+    failure = null;
+    if (t != null) {
+      throwIfUnchecked(t);
+      throw new RuntimeException(t);
+    }
+  }
+
+  private void enqueue(Delivery delivery) {
+    if (deliveryThread == null) {
+      BlockingQueue<Delivery> newBuffer = new ArrayBlockingQueue<>(bufferSize);
+      Thread thread = new Thread(() -> deliver(newBuffer), "error-prone-description-delivery");
+      thread.setDaemon(true);
+      thread.start();
+      buffer = newBuffer;
+      deliveryThread = thread;
+    }
+    try {
+      // blocks until the delivery thread has made space
+      buffer.put(delivery);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing " + delivery.description, e);
+    }
+  }
+
+  private void deliver(BlockingQueue<Delivery> buffer) {
+    while (true) {
+      Delivery delivery;
+      try {
+        delivery = buffer.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (delivery == END) {
+        return;
+      }
+      try {
+        delivery.listener.onDescribed(delivery.description);
+      } catch (Throwable t) {
+        if (delivery.handleErrors) {
+          HubSpotUtils.recordListenerDescribeError(t);
+        } else if (failure == null) {
+          failure = t;
+        }
+      }
+    }
+  }
+
+  private static final class Delivery {
+    final AsyncDescriptionListener listener;
+    final ResolvedDescription description;
+    final boolean handleErrors;
+
+    Delivery(
+        AsyncDescriptionListener listener, ResolvedDescription description, boolean handleErrors) {
+      this.listener = listener;
+      this.description = description;
+      this.handleErrors = handleErrors;
+    }
+  }
+
+  /** Resolves the findings in a single compilation unit. */
+  private static final class Resolver {
+    private final String file;
+    private final Supplier<LineIndex> lineIndex;
+    private final Supplier<AppliedFix.Applier> applier;
+
+    Resolver(JCCompilationUnit compilation) {
+      this.file = ASTHelpers.getFileName(compilation);
+      Supplier<CharSequence> source =
+          Suppliers.memoize(
+              () -> {
+                try {
+                  return compilation.getSourceFile().getCharContent(true);
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+      this.lineIndex = Suppliers.memoize(() -> LineIndex.create(source.get()));
+      this.applier =
+          Suppliers.memoize(
+              () -> AppliedFix.fromSource(source.get(), compilation.endPositions, lineIndex.get()));
+    }
+
+    ResolvedDescription resolve(Description description) {
+      int position =
+          description.position == null
+              ? Position.NOPOS
+              : description.position.getPreferredPosition();
+      int line = 0;
+      int column = 0;
+      if (position != Position.NOPOS) {
+        line = lineIndex.get().getLineNumber(position);
+        column = lineIndex.get().getColumnNumber(position);
+      }
+      ImmutableList<String> fixes =
+          description.fixes.stream()
+              .map(f -> applier.get().apply(f))
+              .filter(Objects::nonNull)
+              .map(f -> f.getNewCodeSnippet().toString())
+              .collect(toImmutableList());
+      return ResolvedDescription.create(
+          file,
+          line,
+          column,
+          description.checkName,
+          description.severity,
+          description.getMessage(),
+          description.getLink(),
+          fixes);
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package com.google.errorprone.descriptionlistener;
+
+/**
+ * A listener for findings that is run on a background thread, so that slow listeners (for example
+ * ones that serialize or upload their findings) don't hold up the compilation.
+ *
+ * <p>Listeners are called on a single delivery thread, in the order the findings were reported.
+ * All findings for a compilation have been delivered by the time the compilation finishes.
+ *
+ * @see AsyncCustomDescriptionListenerFactory
+ */
+public interface AsyncDescriptionListener {
+  void onDescribed(ResolvedDescription description);
+}
@@ -54,7 +54,7 @@ public class DescriptionListeners {
           listener.onDescribed(description);
         } catch (Throwable t) {
           if (handleErrors) {
-            HubSpotUtils.recordListenerDescribeError(listener, t);
+            HubSpotUtils.recordListenerDescribeError(t);
           } else {
             throw t;
           }
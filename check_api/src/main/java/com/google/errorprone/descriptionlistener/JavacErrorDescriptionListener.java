@@ -23,10 +23,13 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.VisitorState;
 import com.google.errorprone.fixes.AppliedFix;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
 import com.sun.source.tree.Tree.Kind;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
@@ -77,11 +80,22 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
     this.sourceFile = resources.getCompilation().getSourceFile();
     this.context = resources.getContext();
     this.dontUseErrors = !resources.getUseErrors();
-    checkNotNull(resources.getCompilation().endPositions);
+    JCCompilationUnit compilation = resources.getCompilation();
+    checkNotNull(compilation.endPositions);
     try {
       CharSequence sourceFileContent = sourceFile.getCharContent(true);
-      AppliedFix.Applier applier = AppliedFix.fromSource(sourceFileContent, resources.getCompilation().endPositions);
-      fixToAppliedFix = applier::apply;
+      // The index of the file's lines comes from VisitorState, and is only built once a fix is
+      // applied.
+      Supplier<AppliedFix.Applier> applier =
+          Suppliers.memoize(
+              () ->
+                  AppliedFix.fromSource(
+                      sourceFileContent,
+                      compilation.endPositions,
+                      VisitorState.createForUtilityPurposes(context)
+                          .withPath(new TreePath(compilation))
+                          .getLineIndex()));
+      fixToAppliedFix = fix -> applier.get().apply(fix);
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
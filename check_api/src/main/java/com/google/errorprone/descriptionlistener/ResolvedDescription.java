@@ -0,0 +1,54 @@
+package com.google.errorprone.descriptionlistener;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable snapshot of a {@link com.google.errorprone.matchers.Description}, with its position
+ * resolved to a line and column and its fixes rendered to text.
+ *
+ * <p>Unlike a {@code Description}, this holds no references to javac's trees or symbols, so it can
+ * safely be handed to another thread after the compilation unit has been analyzed.
+ */
+@AutoValue
+public abstract class ResolvedDescription {
+  /** The path of the source file the finding is in. */
+  public abstract String getFile();
+
+  /** The 1-based line of the finding, or 0 if it has no position. */
+  public abstract int getLine();
+
+  /** The 1-based column of the finding, or 0 if it has no position. */
+  public abstract int getColumn();
+
+  public abstract String getCheckName();
+
+  public abstract SeverityLevel getSeverity();
+
+  /** The message of the finding, including the check name and link. */
+  public abstract String getMessage();
+
+  @Nullable
+  public abstract String getLink();
+
+  /**
+   * The first changed line of each suggested fix, after applying it, or "to remove this line" if
+   * the fix deletes the line.
+   */
+  public abstract ImmutableList<String> getFixes();
+
+  public static ResolvedDescription create(
+      String file,
+      int line,
+      int column,
+      String checkName,
+      SeverityLevel severity,
+      String message,
+      @Nullable String link,
+      ImmutableList<String> fixes) {
+    return new AutoValue_ResolvedDescription(
+        file, line, column, checkName, severity, message, link, fixes);
+  }
+}
@@ -18,8 +18,11 @@ package com.google.errorprone.fixes;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.errorprone.util.LineIndex;
 import com.sun.tools.javac.tree.EndPosTable;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -50,10 +53,16 @@ public class AppliedFix {
   public static class Applier {
     private final CharSequence source;
     private final EndPosTable endPositions;
+    private final Supplier<LineIndex> lineIndex;
 
     public Applier(CharSequence source, EndPosTable endPositions) {
+      this(source, endPositions, Suppliers.memoize(() -> LineIndex.create(source)));
+    }
+
+    private Applier(CharSequence source, EndPosTable endPositions, Supplier<LineIndex> lineIndex) {
       this.source = source;
       this.endPositions = endPositions;
+      this.lineIndex = lineIndex;
     }
 
     /**
@@ -62,36 +71,21 @@ public class AppliedFix {
      */
     @Nullable
     public AppliedFix apply(Fix suggestedFix) {
-      // We apply the replacements in ascending order here. Descending is simpler, since applying a
-      // replacement can't change the index for future replacements, but it leads to quadratic
-      // copying behavior as we constantly shift the tail of the file around in our StringBuilder.
       ImmutableSet<Replacement> replacements =
           ascending(suggestedFix.getReplacements(endPositions));
       if (replacements.isEmpty()) {
         return null;
       }
-
-      StringBuilder replaced = new StringBuilder();
-      int positionInOriginal = 0;
       for (Replacement repl : replacements) {
         checkArgument(
             repl.endPosition() <= source.length(),
             "End [%s] should not exceed source length [%s]",
             repl.endPosition(),
             source.length());
-
-        // Write the unmodified content leading up to this change
-        replaced.append(source, positionInOriginal, repl.startPosition());
-        // And the modified content for this change
-        replaced.append(repl.replaceWith());
-        // Then skip everything from source between start and end
-        positionInOriginal = repl.endPosition();
       }
-      // Flush out any remaining content after the final change
-      replaced.append(source, positionInOriginal, source.length());
 
       // Find the changed line containing the first edit
-      String snippet = firstEditedLine(replaced, Iterables.get(replacements, 0));
+      String snippet = firstEditedLine(replacements);
       if (snippet.isEmpty()) {
         return new AppliedFix("to remove this line", /* isRemoveLine= */ true);
       }
@@ -106,33 +100,67 @@ public class AppliedFix {
     }
 
     /**
-     * Finds the full text of the first line that's changed. In this case "line" means "bracketed by
-     * \n characters". We don't handle \r\n specially, because the strings that javac provides to
-     * Error Prone have already been transformed from platform line endings to newlines (and even if
-     * it didn't, the dangling \r characters would be handled by a trim() call).
+     * Finds the full text of the first line that's changed, after applying the replacements.
+     *
+     * <p>Rather than applying every replacement to a copy of the whole file, this starts at the
+     * beginning of the original line containing the first edit, and applies replacements (in
+     * ascending order) only until the end of that line is reached.
      */
-    private static String firstEditedLine(StringBuilder content, Replacement firstEdit) {
-      // We subtract 1 here because we want to find the first newline *before* the edit, not one
-      // at its beginning.
-      int startOfFirstEditedLine = content.lastIndexOf("\n", firstEdit.startPosition() - 1);
-      int endOfFirstEditedLine = content.indexOf("\n", firstEdit.startPosition());
-      if (startOfFirstEditedLine == -1) {
-        startOfFirstEditedLine = 0; // Change to start of file with no preceding newline
+    private String firstEditedLine(ImmutableSet<Replacement> replacements) {
+      LineIndex lines = lineIndex.get();
+      int firstEdit = Iterables.get(replacements, 0).startPosition();
+      StringBuilder line = new StringBuilder();
+      int positionInOriginal = lines.getLineStart(lines.getLineNumber(firstEdit));
+      boolean complete = false;
+      for (Replacement repl : replacements) {
+        // Write the unmodified content leading up to this change, and then the modified content
+        // for this change
+        complete =
+            appendUntilLineEnd(line, source, positionInOriginal, repl.startPosition())
+                || appendUntilLineEnd(line, repl.replaceWith(), 0, repl.replaceWith().length());
+        if (complete) {
+          break;
+        }
+        // Then skip everything from source between start and end
+        positionInOriginal = repl.endPosition();
       }
-      if (endOfFirstEditedLine == -1) {
-        // Change to last line of file
-        endOfFirstEditedLine = content.length();
+      if (!complete) {
+        appendUntilLineEnd(line, source, positionInOriginal, source.length());
       }
-      String snippet = content.substring(startOfFirstEditedLine, endOfFirstEditedLine);
-      snippet = snippet.trim();
+      String snippet = line.toString().trim();
       if (snippet.contains("//")) {
         snippet = snippet.substring(0, snippet.indexOf("//")).trim();
       }
       return snippet;
     }
+
+    /**
+     * Appends {@code text[start, end)} to {@code line}, stopping at the first line terminator.
+     * Returns true if a line terminator was found.
+     */
+    private static boolean appendUntilLineEnd(
+        StringBuilder line, CharSequence text, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = text.charAt(i);
+        if (c == '\n' || c == '\r') {
+          return true;
+        }
+        line.append(c);
+      }
+      return false;
+    }
   }
 
   public static Applier fromSource(CharSequence source, EndPosTable endPositions) {
     return new Applier(source, endPositions);
   }
+
+  /**
+   * Like {@link #fromSource(CharSequence, EndPosTable)}, but reuses an index of the lines of {@code
+   * source} that the caller has already built.
+   */
+  public static Applier fromSource(
+      CharSequence source, EndPosTable endPositions, LineIndex lineIndex) {
+    return new Applier(source, endPositions, Suppliers.ofInstance(lineIndex));
+  }
 }
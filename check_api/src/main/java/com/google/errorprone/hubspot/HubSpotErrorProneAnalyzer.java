@@ -17,6 +17,7 @@
 package com.google.errorprone.hubspot;
 
 import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.descriptionlistener.AsyncDescriptionDelivery;
 import com.google.errorprone.hubspot.module.CompilationEndAwareErrorPoneAnalyzer;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.sun.source.util.TaskEvent;
@@ -66,6 +67,8 @@ public class HubSpotErrorProneAnalyzer implements TaskListener {
     compilationEndAwareErrorPoneAnalyzer.finished(taskEvent);
 
     if (taskEvent.getKind() == Kind.COMPILATION) {
+      // deliver findings queued for async listeners before the shutdown listeners write any data
+      AsyncDescriptionDelivery.instance(context).flush();
       HubSpotLifecycleManager.instance(context).handleShutdown();
     }
   }
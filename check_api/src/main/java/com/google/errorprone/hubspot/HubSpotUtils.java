@@ -23,6 +23,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -74,9 +75,15 @@ public class HubSpotUtils {
   private static final String UNHANDLED_ERRORS = "errorProneUnhandledErrors";
   private static final String ERROR_REPORTING_FLAG = "hubspot:error-reporting";
   private static final String GENERATED_SOURCES_FLAG = "hubspot:generated-sources-pattern";
+  private static final String REFASTER_RULE_LOAD = "refaster-rules:load";
+  // A count rather than a duration, so it isn't included in the total, including when it was read
+  // back from the timings of an earlier compilation
+  private static final String REFASTER_RULE_CACHE_HITS = "refaster-rules:cache-hits";
   private static final Map<String, Set<String>> DATA = loadExistingData();
   private static final Map<String, Long> PREVIOUS_TIMING_DATA = loadExistingTimings();
   private static final Map<String, Long> TIMING_DATA = new ConcurrentHashMap<>();
+  // Counts of events, which are written alongside the timings but aren't durations
+  private static final Map<String, Long> COUNT_DATA = new ConcurrentHashMap<>();
   private static final Supplier<PathMatcher> GENERATED_PATTERN = VisitorState.memoize(getGeneratedPathsMatcher());
 
   public static ScannerSupplier createScannerSupplier(Iterable<BugChecker> extraBugCheckers) {
@@ -140,12 +147,20 @@ public class HubSpotUtils {
   }
 
   public static void recordTimings(Context context) {
-    ErrorProneTimings.instance(context)
-        .timings()
-        .forEach((k, v) -> TIMING_DATA.put(k, v.toMillis()));
+    ErrorProneTimings timings = ErrorProneTimings.instance(context);
+    timings.timings().forEach((k, v) -> TIMING_DATA.put(k, v.toMillis()));
+    TIMING_DATA.putAll(timings.counts());
   }
 
-  public static void recordListenerDescribeError(DescriptionListener listener, Throwable t) {
+  public static void recordRefasterRuleLoad(Duration loadTime) {
+    TIMING_DATA.merge(REFASTER_RULE_LOAD, loadTime.toMillis(), Long::sum);
+  }
+
+  public static void recordRefasterRuleCacheHit() {
+    COUNT_DATA.merge(REFASTER_RULE_CACHE_HITS, 1L, Long::sum);
+  }
+
+  public static void recordListenerDescribeError(Throwable t) {
     DATA.computeIfAbsent(LISTENER_ON_DESCRIBE_ERROR, ignored -> ConcurrentHashMap.newKeySet())
         .add(toErrorMessage(t));
   }
@@ -219,12 +234,16 @@ public class HubSpotUtils {
         (k, newValue) -> res.compute(
             k,
             (key, oldValue) -> oldValue == null ? newValue : oldValue + newValue));
+    COUNT_DATA.forEach(
+        (k, newValue) -> res.compute(
+            k,
+            (key, oldValue) -> oldValue == null ? newValue : oldValue + newValue));
 
     res.put(
         "total",
         res.entrySet()
             .stream()
-            .filter(e -> !e.getKey().equals("total"))
+            .filter(e -> isIncludedInTotal(e.getKey()))
             .mapToLong(Map.Entry::getValue)
             .sum());
 
@@ -236,6 +255,13 @@ public class HubSpotUtils {
             Map.Entry::getValue));
   }
 
+  private static boolean isIncludedInTotal(String key) {
+    return !key.equals("total")
+        && !key.equals(REFASTER_RULE_CACHE_HITS)
+        && !key.startsWith(ErrorProneTimings.REFASTER_TEMPLATE_PREFIX)
+        && !key.startsWith(ErrorProneTimings.SUBTYPE_CACHE_PREFIX);
+  }
+
   private static Map<String, Set<String>> loadExistingData() {
     return FileManager.getErrorOutputPath()
         .map(HubSpotUtils::loadData)
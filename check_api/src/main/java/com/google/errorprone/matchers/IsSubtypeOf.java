@@ -17,7 +17,6 @@
 package com.google.errorprone.matchers;
 
 import static com.google.errorprone.util.ASTHelpers.getType;
-import static com.google.errorprone.util.ASTHelpers.isSubtype;
 
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.suppliers.Supplier;
@@ -39,6 +38,8 @@ public class IsSubtypeOf<T extends Tree> extends AbstractTypeMatcher<T> {
 
   @Override
   public boolean matches(T tree, VisitorState state) {
-    return isSubtype(getType(tree), typeToCompareSupplier.get(state), state);
+    return state
+        .getSubtypeCache()
+        .isSubtype(getType(tree), typeToCompareSupplier.get(state), state);
   }
 }
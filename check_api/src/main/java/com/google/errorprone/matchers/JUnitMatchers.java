@@ -86,8 +86,7 @@ public final class JUnitMatchers {
     if (hasJUnitAttr(methodSym)) {
       return true;
     }
-    return findSuperMethods(methodSym, state.getTypes()).stream()
-        .anyMatch(JUnitMatchers::hasJUnitAttr);
+    return findSuperMethods(methodSym, state).stream().anyMatch(JUnitMatchers::hasJUnitAttr);
   }
 
   /** Checks if a method symbol has any attribute from the org.junit package. */
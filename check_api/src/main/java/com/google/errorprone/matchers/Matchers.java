@@ -40,6 +40,7 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.dataflow.nullnesspropagation.Nullness;
 import com.google.errorprone.matchers.ChildMultiMatcher.MatchType;
 import com.google.errorprone.matchers.MethodVisibility.Visibility;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers;
 import com.google.errorprone.matchers.method.MethodMatchers.AnyMethodMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers.ConstructorMatcher;
@@ -160,8 +161,18 @@ public class Matchers {
   /**
    * Compose several matchers together, such that the composite matches an AST node if any of the
    * given matchers do.
+   *
+   * <p>Long lists of method matchers are compiled by {@link
+   * MethodInvocationMatcher#compileAnyOf}, so that only the matchers for the name and kind of an
+   * invocation are tried.
    */
   public static <T extends Tree> Matcher<T> anyOf(Iterable<? extends Matcher<? super T>> matchers) {
+    // Only method matchers are compiled, and they accept any expression, which T must then be.
+    @SuppressWarnings("unchecked")
+    Matcher<T> compiled = (Matcher<T>) MethodInvocationMatcher.compileAnyOf(matchers);
+    if (compiled != null) {
+      return compiled;
+    }
     return (t, state) -> {
       for (Matcher<? super T> matcher : matchers) {
         if (matcher.matches(t, state)) {
@@ -806,7 +817,7 @@ public class Matchers {
       if (ASTHelpers.hasAnnotation(methodSym, annotationClass, state)) {
         return true;
       }
-      for (MethodSymbol method : ASTHelpers.findSuperMethods(methodSym, state.getTypes())) {
+      for (MethodSymbol method : ASTHelpers.findSuperMethods(methodSym, state)) {
         if (ASTHelpers.hasAnnotation(method, annotationClass, state)) {
           return true;
         }
@@ -44,8 +44,7 @@ public class TestNgMatchers {
     if (hasTestNgAttr(methodSym)) {
       return true;
     }
-    return findSuperMethods(methodSym, state.getTypes()).stream()
-        .anyMatch(TestNgMatchers::hasTestNgAttr);
+    return findSuperMethods(methodSym, state).stream().anyMatch(TestNgMatchers::hasTestNgAttr);
   }
 
   /** Checks if a class is annotated with any annotation from the org.testng package. */
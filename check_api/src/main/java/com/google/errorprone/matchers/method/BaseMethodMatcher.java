@@ -21,11 +21,22 @@ import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.NewClassTree;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import java.util.function.Function;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-interface BaseMethodMatcher {
+/**
+ * Extracts the {@link MatchState} of a method, if any, from a tree. Implementations are also the
+ * key under which {@link com.google.errorprone.VisitorState#memoizeForNode} shares that state
+ * between all the method matchers evaluated on the same node.
+ */
+interface BaseMethodMatcher extends Function<ExpressionTree, MatchState> {
   @Nullable MatchState match(ExpressionTree tree);
 
+  @Override
+  default @Nullable MatchState apply(ExpressionTree tree) {
+    return match(tree);
+  }
+
   BaseMethodMatcher METHOD =
       tree -> {
         Symbol sym = ASTHelpers.getSymbol(tree);
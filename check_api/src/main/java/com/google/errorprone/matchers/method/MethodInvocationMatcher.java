@@ -26,21 +26,30 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Table;
+import com.google.errorprone.JavacInvocationInstance;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
 import com.sun.tools.javac.code.Type;
+import java.lang.ref.SoftReference;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import javax.lang.model.element.ElementKind;
 
@@ -51,9 +60,19 @@ import javax.lang.model.element.ElementKind;
 public class MethodInvocationMatcher {
 
   static final class Context {
+    /**
+     * Creates the context of a tree, as the key under which {@link VisitorState#memoizeForNode}
+     * shares it between all the compiled matchers evaluated on the same node.
+     */
+    static final Function<ExpressionTree, Optional<Context>> CREATE = Context::create;
+
     final MethodSymbol sym;
     final ExpressionTree tree;
 
+    // Computed on demand, and kept for the other matchers that share this context.
+    @Nullable private ImmutableList<String> parameterTypes;
+    @Nullable private Type receiverType;
+
     Context(MethodSymbol sym, ExpressionTree tree) {
       this.sym = sym;
       this.tree = tree;
@@ -66,6 +85,23 @@ public class MethodInvocationMatcher {
       }
       return Optional.of(new Context((MethodSymbol) sym, tree));
     }
+
+    ImmutableList<String> parameterTypes() {
+      if (parameterTypes == null) {
+        parameterTypes =
+            sym.getParameters().stream()
+                .map(param -> param.type.tsym.getQualifiedName().toString())
+                .collect(ImmutableList.toImmutableList());
+      }
+      return parameterTypes;
+    }
+
+    Type receiverType() {
+      if (receiverType == null) {
+        receiverType = ASTHelpers.getReceiverType(tree);
+      }
+      return receiverType;
+    }
   }
 
   /**
@@ -111,9 +147,7 @@ public class MethodInvocationMatcher {
     PARAMETER_TYPES {
       @Override
       ImmutableList<String> extract(Context ctx, VisitorState s) {
-        return ctx.sym.getParameters().stream()
-            .map(param -> param.type.tsym.getQualifiedName().toString())
-            .collect(ImmutableList.toImmutableList());
+        return ctx.parameterTypes();
       }
     },
     DEFINED_IN {
@@ -125,13 +159,13 @@ public class MethodInvocationMatcher {
     RECEIVER_TYPE {
       @Override
       String extract(Context ctx, VisitorState s) {
-        return ASTHelpers.getReceiverType(ctx.tree).tsym.getQualifiedName().toString();
+        return ctx.receiverType().tsym.getQualifiedName().toString();
       }
     },
     RECEIVER_SUPERTYPE {
       @Override
       Type extract(Context ctx, VisitorState s) {
-        return ASTHelpers.getReceiverType(ctx.tree).tsym.type;
+        return ctx.receiverType().tsym.type;
       }
     };
 
@@ -333,7 +367,7 @@ public class MethodInvocationMatcher {
         Map<Set<Node>, NodeWithDefault> mappings, NodeWithDefault root) {
       BiPredicate<Context, VisitorState> pred = traverse(mappings, root);
       return (tree, state) -> {
-        Optional<Context> ctx = Context.create(tree);
+        Optional<Context> ctx = state.memoizeForNode(tree, Context.CREATE);
         // Could be ctx.map(...).orElse(false), but why pay to box the Boolean?
         return ctx.isPresent() && pred.test(ctx.get(), state);
       };
@@ -381,14 +415,14 @@ public class MethodInvocationMatcher {
 
       switch (type) {
         case RECEIVER_SUPERTYPE:
+          SupertypeTable table = new SupertypeTable(lookup.keySet());
+          ImmutableList<BiPredicate<Context, VisitorState>> targets =
+              ImmutableList.copyOf(lookup.values());
           return (ctx, state) -> {
             Type receiverType = (Type) TokenType.RECEIVER_SUPERTYPE.extract(ctx, state);
-            // Have to iterate here because subclassing can't be checked by lookup.
-            for (Map.Entry<Object, BiPredicate<Context, VisitorState>> child : lookup.entrySet()) {
-              if (ASTHelpers.isSubtype(
-                  receiverType, state.getTypeFromString((String) child.getKey()), state)) {
-                return child.getValue().test(ctx, state);
-              }
+            int[] matching = table.matching(receiverType, state);
+            if (matching.length > 0) {
+              return targets.get(matching[0]).test(ctx, state);
             }
             return defaultBehavior.test(ctx, state);
           };
@@ -406,6 +440,185 @@ public class MethodInvocationMatcher {
     }
   }
 
+  /**
+   * The supertypes on the edges out of a {@code RECEIVER_SUPERTYPE} state, with the edges that each
+   * receiver class follows.
+   *
+   * <p>Subtyping can't be checked by a map lookup on the receiver's type, so otherwise every edge
+   * would take an {@link ASTHelpers#isSubtype} check on every invocation. The same few receivers,
+   * like {@code List} and {@code String}, make up most invocations, so the edges are instead found
+   * once per receiver class and javac invocation, for as long as its symbols are reused.
+   */
+  private static final class SupertypeTable {
+    private static final int[] NONE = new int[0];
+
+    private final ImmutableList<String> supertypes;
+
+    // Held softly, like VisitorState.memoize, so that the symbols of a finished compilation aren't
+    // kept alive by the compiled matchers of the checks.
+    private SoftReference<Map<TypeSymbol, int[]>> matching = new SoftReference<>(null);
+    @Nullable private JavacInvocationInstance provenance;
+
+    SupertypeTable(Collection<Object> supertypes) {
+      this.supertypes =
+          supertypes.stream().map(String.class::cast).collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns the indices of the supertypes that the given receiver type is a subtype of, in the
+     * order the supertypes were given.
+     */
+    synchronized int[] matching(Type receiverType, VisitorState state) {
+      JavacInvocationInstance current = JavacInvocationInstance.instance(state.context);
+      Map<TypeSymbol, int[]> table = matching.get();
+      if (table == null || provenance != current) {
+        table = new IdentityHashMap<>();
+        matching = new SoftReference<>(table);
+        provenance = current;
+      }
+      int[] result = table.get(receiverType.tsym);
+      if (result == null) {
+        result = NONE;
+        // A supertype that can't be found now might be in a later compilation unit, so don't
+        // remember the result for a receiver unless every supertype was found.
+        boolean complete = true;
+        for (int i = 0; i < supertypes.size(); i++) {
+          Type supertype = state.getTypeFromString(supertypes.get(i));
+          if (supertype == null) {
+            complete = false;
+          } else if (ASTHelpers.isSubtype(receiverType, supertype, state)) {
+            result = Arrays.copyOf(result, result.length + 1);
+            result[result.length - 1] = i;
+          }
+        }
+        if (complete) {
+          table.put(receiverType.tsym, result);
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A matcher compiled from several lists of rules, which tells which of the lists have a rule that
+   * matches a method invocation.
+   */
+  public interface RuleSetMatcher {
+    /**
+     * Returns the indices of the lists of rules, in the order they were passed to {@link
+     * #compileRuleSets}, which have a rule that matches the given tree.
+     */
+    BitSet matchingRuleSets(ExpressionTree tree, VisitorState state);
+  }
+
+  /** Collects the indices of the rule sets accepted from a state of a compiled graph. */
+  private interface RuleSetCollector {
+    void collect(Context ctx, VisitorState state, BitSet result);
+  }
+
+  /** Converts a DFA produced by {@link #compileRuleSets} into a {@link RuleSetMatcher}. */
+  private static final class GraphRuleSetMatcher {
+    static RuleSetMatcher from(
+        Map<Set<Node>, NodeWithDefault> mappings,
+        NodeWithDefault root,
+        Map<Node, Integer> accepts,
+        BitSet always) {
+      RuleSetCollector collector = new GraphRuleSetMatcher(mappings, accepts).traverse(root);
+      return (tree, state) -> {
+        BitSet result = (BitSet) always.clone();
+        Optional<Context> ctx = state.memoizeForNode(tree, Context.CREATE);
+        if (ctx.isPresent()) {
+          collector.collect(ctx.get(), state, result);
+        }
+        return result;
+      };
+    }
+
+    private final Map<Set<Node>, NodeWithDefault> mappings;
+    private final Map<Node, Integer> accepts;
+    // States are reached along many paths, so each is only converted once.
+    private final Map<NodeWithDefault, RuleSetCollector> collectors = new IdentityHashMap<>();
+
+    private GraphRuleSetMatcher(
+        Map<Set<Node>, NodeWithDefault> mappings, Map<Node, Integer> accepts) {
+      this.mappings = mappings;
+      this.accepts = accepts;
+    }
+
+    private RuleSetCollector traverse(NodeWithDefault root) {
+      RuleSetCollector collector = collectors.get(root);
+      if (collector == null) {
+        collector = create(root);
+        collectors.put(root, collector);
+      }
+      return collector;
+    }
+
+    private RuleSetCollector create(NodeWithDefault root) {
+      // Unlike a single matcher, which is done as soon as it reaches an accept state, this has to
+      // keep going to find the other rule sets that match.
+      BitSet accepted = new BitSet();
+      for (Node node : root.states) {
+        Integer index = accepts.get(node);
+        if (index != null) {
+          accepted.set(index);
+        }
+      }
+      RuleSetCollector defaultBehavior =
+          root.def == null ? (ctx, state, result) -> {} : traverse(mappings.get(root.def));
+      SetMultimap<Token, Node> children = root.mapping;
+      RuleSetCollector next;
+      if (children.isEmpty()) {
+        next = defaultBehavior;
+      } else {
+        TokenType type = children.keySet().iterator().next().type();
+        Map<Object, RuleSetCollector> lookup = new HashMap<>();
+        @SuppressWarnings("UnstableApiUsage")
+        Set<Map.Entry<Token, Set<Node>>> entries = Multimaps.asMap(children).entrySet();
+        for (Map.Entry<Token, Set<Node>> entry : entries) {
+          Preconditions.checkArgument(
+              entry.getKey().type() == type,
+              "Found mismatched token types in node with mappings %s",
+              children);
+          lookup.put(entry.getKey().comparisonKey(), traverse(mappings.get(entry.getValue())));
+        }
+        if (type == TokenType.RECEIVER_SUPERTYPE) {
+          SupertypeTable table = new SupertypeTable(lookup.keySet());
+          ImmutableList<RuleSetCollector> targets = ImmutableList.copyOf(lookup.values());
+          next =
+              (ctx, state, result) -> {
+                Type receiverType = (Type) TokenType.RECEIVER_SUPERTYPE.extract(ctx, state);
+                int[] matching = table.matching(receiverType, state);
+                // Every supertype that matches may lead to different rule sets.
+                for (int index : matching) {
+                  targets.get(index).collect(ctx, state, result);
+                }
+                if (matching.length == 0) {
+                  defaultBehavior.collect(ctx, state, result);
+                }
+              };
+        } else {
+          next =
+              (ctx, state, result) -> {
+                RuleSetCollector child = lookup.get(type.extract(ctx, state));
+                if (child != null) {
+                  child.collect(ctx, state, result);
+                } else {
+                  defaultBehavior.collect(ctx, state, result);
+                }
+              };
+        }
+      }
+      if (accepted.isEmpty()) {
+        return next;
+      }
+      return (ctx, state, result) -> {
+        result.or(accepted);
+        next.collect(ctx, state, result);
+      };
+    }
+  }
+
   /**
    * Constructs a Matcher that matches for method invocations (including constructor invocations)
    * satisfying at least one of the given Rule specifications. For an easy way to create such Rules,
@@ -429,41 +642,147 @@ public class MethodInvocationMatcher {
     Table<Node, Optional<Token>, Node> nfa = HashBasedTable.create();
     ImmutableSet.Builder<Node> rootsBuilder = ImmutableSet.builder();
     for (Rule rule : rules) {
-      ImmutableMap<TokenType, ? extends Set<Token>> required = rule.required();
-      int numTokens = required.size();
-      if (numTokens == 0) {
+      if (rule.required().isEmpty()) {
         // Forget this whole graph business if one of the alternatives is "anything". This isn't
         // just an optimization: it simplifies building the graph if we know no rules are empty.
         return (tree, state) -> true;
       }
-      Node root = new Node();
-      rootsBuilder.add(root);
-      Node src = root;
-      int tokensHandled = 0;
-      for (TokenType type : TokenType.values()) {
-        Optional<Set<Token>> labels = Optional.ofNullable(required.get(type));
-        if (labels.isPresent()) {
-          tokensHandled++;
+      rootsBuilder.add(addRule(nfa, rule, ACCEPT));
+    }
+    ImmutableSet<Node> roots = rootsBuilder.build();
+    Map<Set<Node>, NodeWithDefault> mappings = toDfa(nfa, roots);
+
+    // At this point, mappings has all the information we need, but it's burdened with a bunch of
+    // now-unnecessary Set<Node> objects for its map keys. We want to replace those with something
+    // lightweight, and convert the indirect references through mappings to a direct pointer lookup.
+    return GraphMatcher.from(mappings, mappings.get(roots));
+  }
+
+  /**
+   * Returns a rule that every invocation matched by the given matcher satisfies, for use with
+   * {@link #compileRuleSets}. Only the kind and names of methods given to the fluent API of {@link
+   * MethodMatchers} are modelled, so the rule may be satisfied by invocations that the matcher
+   * doesn't match. Other matchers give an empty rule, which every invocation satisfies.
+   */
+  public static Rule prefilterRule(Matcher<? super ExpressionTree> matcher) {
+    return matcher instanceof MethodMatcherImpl
+        ? ((MethodMatcherImpl) matcher).rule()
+        : Rule.create(ImmutableMap.of());
+  }
+
+  /**
+   * The fewest matchers that {@link #compileAnyOf} compiles. Shorter lists are cheap enough to try
+   * one by one, and are sometimes built for every tree that a check visits, which would then pay
+   * to compile them every time.
+   */
+  private static final int MIN_COMPILED_ANY_OF = 8;
+
+  /**
+   * Returns a matcher that matches if any of the given matchers does, which finds the candidates
+   * for an invocation with a single matcher compiled by {@link #compileRuleSets} and only tries
+   * those, in order.
+   *
+   * <p>Returns null, to leave the matchers to be tried one by one, unless they are all {@link
+   * MethodMatchers}, and there are enough of them to be worth compiling.
+   */
+  @Nullable
+  public static Matcher<ExpressionTree> compileAnyOf(Iterable<?> matchers) {
+    List<MethodMatcherImpl> methodMatchers = new ArrayList<>();
+    for (Object matcher : matchers) {
+      if (!(matcher instanceof MethodMatcherImpl)) {
+        return null;
+      }
+      methodMatchers.add((MethodMatcherImpl) matcher);
+    }
+    if (methodMatchers.size() < MIN_COMPILED_ANY_OF) {
+      return null;
+    }
+    ImmutableList<MethodMatcherImpl> candidates = ImmutableList.copyOf(methodMatchers);
+    RuleSetMatcher dispatch =
+        compileRuleSets(
+            candidates.stream()
+                .map(m -> ImmutableList.of(m.rule()))
+                .collect(ImmutableList.toImmutableList()));
+    return (tree, state) -> {
+      BitSet matching = dispatch.matchingRuleSets(tree, state);
+      for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+        if (candidates.get(i).matches(tree, state)) {
+          return true;
         }
-        boolean lastToken = tokensHandled == numTokens;
-        Node dst = lastToken ? ACCEPT : new Node();
-        if (labels.isPresent()) {
-          for (Token label : labels.get()) {
-            nfa.put(src, Optional.of(label), dst);
-          }
-        } else {
-          nfa.put(src, Optional.empty(), dst);
+      }
+      return false;
+    };
+  }
+
+  /**
+   * Constructs a single matcher for several lists of rules, which tells which of the lists have a
+   * rule that a method invocation satisfies, in one pass over the invocation's properties.
+   *
+   * <p>This is built like {@link #compile}, except that the rules of each list lead to an accept
+   * state of their own. A list with an empty rule matches every invocation, and an empty list
+   * matches none.
+   */
+  public static RuleSetMatcher compileRuleSets(List<? extends Iterable<Rule>> ruleSets) {
+    Table<Node, Optional<Token>, Node> nfa = HashBasedTable.create();
+    ImmutableSet.Builder<Node> rootsBuilder = ImmutableSet.builder();
+    Map<Node, Integer> accepts = new HashMap<>();
+    BitSet always = new BitSet();
+    for (int i = 0; i < ruleSets.size(); i++) {
+      Node accept = new Node();
+      accepts.put(accept, i);
+      for (Rule rule : ruleSets.get(i)) {
+        if (rule.required().isEmpty()) {
+          always.set(i);
+          break;
         }
+        rootsBuilder.add(addRule(nfa, rule, accept));
+      }
+    }
+    ImmutableSet<Node> roots = rootsBuilder.build();
+    if (roots.isEmpty()) {
+      return (tree, state) -> (BitSet) always.clone();
+    }
+    Map<Set<Node>, NodeWithDefault> mappings = toDfa(nfa, roots);
+    return GraphRuleSetMatcher.from(mappings, mappings.get(roots), accepts, always);
+  }
 
-        if (lastToken) {
-          break; // No transitions out of the accept state.
+  /**
+   * Adds a path for the given non-empty rule to the NFA, leading to the given accept node, and
+   * returns the root of the path.
+   */
+  private static Node addRule(Table<Node, Optional<Token>, Node> nfa, Rule rule, Node accept) {
+    ImmutableMap<TokenType, ? extends Set<Token>> required = rule.required();
+    int numTokens = required.size();
+    Node root = new Node();
+    Node src = root;
+    int tokensHandled = 0;
+    for (TokenType type : TokenType.values()) {
+      Optional<Set<Token>> labels = Optional.ofNullable(required.get(type));
+      if (labels.isPresent()) {
+        tokensHandled++;
+      }
+      boolean lastToken = tokensHandled == numTokens;
+      Node dst = lastToken ? accept : new Node();
+      if (labels.isPresent()) {
+        for (Token label : labels.get()) {
+          nfa.put(src, Optional.of(label), dst);
         }
+      } else {
+        nfa.put(src, Optional.empty(), dst);
+      }
 
-        src = dst;
+      if (lastToken) {
+        break; // No transitions out of the accept state.
       }
+
+      src = dst;
     }
-    ImmutableSet<Node> roots = rootsBuilder.build();
+    return root;
+  }
 
+  /** Converts an NFA built by {@link #addRule} into a DFA, with the power-set construction. */
+  private static Map<Set<Node>, NodeWithDefault> toDfa(
+      Table<Node, Optional<Token>, Node> nfa, ImmutableSet<Node> roots) {
     // TODO(amalloy): When converting to a DFA, we could use the information that there is
     // exactly one accept state
     // (and no transitions out of that accept state) to help us prune unnecessary identical states
@@ -514,11 +833,7 @@ public class MethodInvocationMatcher {
       Collection<Set<Node>> values = Multimaps.asMap(destinations).values();
       open.addAll(values);
     }
-
-    // At this point, mappings has all the information we need, but it's burdened with a bunch of
-    // now-unnecessary Set<Node> objects for its map keys. We want to replace those with something
-    // lightweight, and convert the indirect references through mappings to a direct pointer lookup.
-    return GraphMatcher.from(mappings, mappings.get(roots));
+    return mappings;
   }
 
   private MethodInvocationMatcher() {}
@@ -21,6 +21,7 @@ import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Type;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** The state that is propagated across a match operation for methods. */
 @AutoValue
@@ -28,10 +29,17 @@ abstract class MethodMatchState implements MatchState {
   /** The type of the class in which a member method or constructor is declared. */
   abstract ExpressionTree tree();
 
+  // Computed on demand, since the state is shared by every matcher of the same node and most of
+  // them reject a method by its name before looking at its receiver.
+  private @Nullable Type ownerType;
+
   @Override
   public Type ownerType() {
-    // TODO(cushon): should this be the symbol's owner type, not the receiver's owner type?
-    return ASTHelpers.getReceiverType(tree());
+    if (ownerType == null) {
+      // TODO(cushon): should this be the symbol's owner type, not the receiver's owner type?
+      ownerType = ASTHelpers.getReceiverType(tree());
+    }
+    return ownerType;
   }
 
   /** The method being matched. */
@@ -17,12 +17,19 @@
 package com.google.errorprone.matchers.method;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.MethodKind;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Rule;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Token;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.TokenType;
 import com.google.errorprone.matchers.method.MethodMatchers.AnyMethodMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers.ConstructorClassMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers.ConstructorMatcher;
@@ -39,8 +46,11 @@ import com.google.errorprone.suppliers.Suppliers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.tools.javac.code.Type;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
@@ -71,34 +81,83 @@ final class MethodMatcherImpl
               (m, s) -> {
                 // Handled by base matcher.
                 return true;
-              }));
+              }),
+          ImmutableMap.of());
   static final ConstructorMatcher CONSTRUCTOR =
-      new MethodMatcherImpl(BaseMethodMatcher.CONSTRUCTOR, ImmutableList.of((m, s) -> true));
+      new MethodMatcherImpl(
+          BaseMethodMatcher.CONSTRUCTOR,
+          ImmutableList.of((m, s) -> true),
+          kinds(MethodKind.CONSTRUCTOR));
   static final StaticMethodMatcher STATIC_METHOD =
       new MethodMatcherImpl(
-          BaseMethodMatcher.METHOD, ImmutableList.of((m, s) -> m.sym().isStatic()));
+          BaseMethodMatcher.METHOD,
+          ImmutableList.of((m, s) -> m.sym().isStatic()),
+          kinds(MethodKind.STATIC));
+  // Explicit constructor invocations like super() aren't static either.
   static final InstanceMethodMatcher INSTANCE_METHOD =
       new MethodMatcherImpl(
-          BaseMethodMatcher.METHOD, ImmutableList.of((m, s) -> !m.sym().isStatic()));
+          BaseMethodMatcher.METHOD,
+          ImmutableList.of((m, s) -> !m.sym().isStatic()),
+          kinds(MethodKind.INSTANCE, MethodKind.CONSTRUCTOR));
 
   private final BaseMethodMatcher baseMatcher;
 
   private final ImmutableList<Constraint> constraints;
 
+  /**
+   * The constraints that can be exported as {@link Token}s, which every match satisfies. Other
+   * constraints, like those on classes, which may be given as binary names or type suppliers, are
+   * left out.
+   */
+  private final ImmutableMap<TokenType, ImmutableSet<Token>> tokens;
+
   // All constructors private: only static final instances are legal starting points for chains.
-  private MethodMatcherImpl(BaseMethodMatcher baseMatcher, ImmutableList<Constraint> matchers) {
+  private MethodMatcherImpl(
+      BaseMethodMatcher baseMatcher,
+      ImmutableList<Constraint> matchers,
+      ImmutableMap<TokenType, ImmutableSet<Token>> tokens) {
     this.baseMatcher = baseMatcher;
     this.constraints = matchers;
+    this.tokens = tokens;
+  }
+
+  private static ImmutableMap<TokenType, ImmutableSet<Token>> kinds(MethodKind... kinds) {
+    return ImmutableMap.of(
+        TokenType.KIND,
+        Arrays.stream(kinds).map(Token.Kind::create).collect(toImmutableSet()));
   }
 
   private MethodMatcherImpl append(Constraint c) {
     return new MethodMatcherImpl(
-        baseMatcher, ImmutableList.<Constraint>builder().addAll(this.constraints).add(c).build());
+        baseMatcher,
+        ImmutableList.<Constraint>builder().addAll(this.constraints).add(c).build(),
+        tokens);
+  }
+
+  /** Appends a constraint that is also described by the given tokens of one type. */
+  private MethodMatcherImpl append(Constraint c, TokenType type, ImmutableSet<Token> allowed) {
+    ImmutableSet<Token> previous = tokens.get(type);
+    Map<TokenType, ImmutableSet<Token>> newTokens = new LinkedHashMap<>(tokens);
+    newTokens.put(
+        type,
+        previous == null ? allowed : ImmutableSet.copyOf(Sets.intersection(previous, allowed)));
+    return new MethodMatcherImpl(
+        baseMatcher,
+        ImmutableList.<Constraint>builder().addAll(this.constraints).add(c).build(),
+        ImmutableMap.copyOf(newTokens));
+  }
+
+  /**
+   * Returns a rule that every invocation this matcher matches satisfies, although other
+   * invocations may satisfy it too.
+   */
+  Rule rule() {
+    return Rule.create(tokens);
   }
 
   @Override
   public boolean matches(ExpressionTree tree, VisitorState state) {
-    MatchState method = baseMatcher.match(tree);
+    MatchState method = state.memoizeForNode(tree, baseMatcher);
     if (method == null) {
       return false;
     }
@@ -190,7 +249,10 @@ final class MethodMatcherImpl
         !name.contains("(") && !name.contains(")"),
         "method name (%s) cannot contain parentheses; use \"foo\" instead of \"foo()\"",
         name);
-    return append((m, s) -> m.sym().getSimpleName().contentEquals(name));
+    return append(
+        (m, s) -> m.sym().getSimpleName().contentEquals(name),
+        TokenType.METHOD_NAME,
+        ImmutableSet.of(Token.MethodName.create(name)));
   }
 
   @Override
@@ -201,7 +263,10 @@ final class MethodMatcherImpl
   @Override
   public MethodNameMatcher namedAnyOf(Iterable<String> names) {
     ImmutableSet<String> expected = ImmutableSet.copyOf(names);
-    return append((m, s) -> expected.contains(m.sym().getSimpleName().toString()));
+    return append(
+        (m, s) -> expected.contains(m.sym().getSimpleName().toString()),
+        TokenType.METHOD_NAME,
+        expected.stream().map(Token.MethodName::create).collect(toImmutableSet()));
   }
 
   @Override
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.names;
+
+/**
+ * Scratch space for the edit distance algorithms, reused by each thread so that comparing two
+ * strings doesn't allocate.
+ *
+ * <p>Callers must not hold on to the arrays, or call another algorithm that uses them, while they
+ * are in use.
+ */
+final class EditDistanceBuffers {
+  private static final ThreadLocal<EditDistanceBuffers> BUFFERS =
+      ThreadLocal.withInitial(EditDistanceBuffers::new);
+
+  /** The number of rows needed by the algorithm that uses the most. */
+  private static final int ROWS = 6;
+
+  static EditDistanceBuffers get() {
+    return BUFFERS.get();
+  }
+
+  /**
+   * For each ASCII character, the positions in a pattern where it occurs. Every entry is zero
+   * between uses.
+   */
+  final long[] peq = new long[128];
+
+  private final int[][] rows = new int[ROWS][16];
+
+  private EditDistanceBuffers() {}
+
+  /** Returns the row with the given index, with room for at least {@code length} entries. */
+  int[] row(int index, int length) {
+    if (rows[index].length < length) {
+      rows[index] = new int[Math.max(length, rows[index].length * 2)];
+    }
+    return rows[index];
+  }
+}
@@ -16,6 +16,8 @@
 
 package com.google.errorprone.names;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.base.Ascii;
 import com.google.common.primitives.Ints;
 
@@ -47,8 +49,11 @@ public class LevenshteinEditDistance {
   }
 
   /**
-   * Returns the edit distance between two strings. The algorithm used to calculate this distance
-   * has space requirements of len(source)*len(target).
+   * Returns the edit distance between two strings. If the shorter string has at most 64
+   * characters, which is true of almost all identifiers, the distance is computed with Myers's
+   * bit-parallel algorithm in time proportional to the length of the longer string. Otherwise it
+   * takes time proportional to len(source)*len(target), and space proportional to the length of
+   * the shorter string.
    *
    * @param source The source string.
    * @param target The target string
@@ -57,12 +62,36 @@ public class LevenshteinEditDistance {
    * @see #getEditDistance(String, String)
    */
   public static int getEditDistance(String source, String target, boolean caseSensitive) {
+    return getEditDistance(source, target, caseSensitive, Integer.MAX_VALUE - 1);
+  }
 
-    // Levenshtein distance algorithm
+  /**
+   * Returns the edit distance between two strings if it is at most {@code maxEditDistance}, and
+   * {@code maxEditDistance + 1} otherwise. This gives up as soon as the distance is known to be
+   * too large, so it is cheaper than {@link #getEditDistance(String, String, boolean)} when looking
+   * for close matches.
+   *
+   * @param source The source string.
+   * @param target The target string
+   * @param caseSensitive If true, case is used in comparisons and 'a' != 'A'.
+   * @param maxEditDistance The largest distance of interest, which is -1 if no distance is.
+   * @return The edit distance between the source and target strings, or {@code maxEditDistance +
+   *     1} if it is larger than {@code maxEditDistance}.
+   */
+  public static int getEditDistance(
+      String source, String target, boolean caseSensitive, int maxEditDistance) {
+    checkArgument(
+        maxEditDistance >= -1 && maxEditDistance < Integer.MAX_VALUE,
+        "maxEditDistance must be at least -1 and less than Integer.MAX_VALUE: %s",
+        maxEditDistance);
 
     int sourceLength = isEmptyOrWhitespace(source) ? 0 : source.length();
     int targetLength = isEmptyOrWhitespace(target) ? 0 : target.length();
 
+    if (Math.abs(sourceLength - targetLength) > maxEditDistance) {
+      return maxEditDistance + 1;
+    }
+
     if (sourceLength == 0) {
       return targetLength;
     }
@@ -71,39 +100,124 @@ public class LevenshteinEditDistance {
       return sourceLength;
     }
 
-    if (!caseSensitive) {
-      source = Ascii.toLowerCase(source);
-      target = Ascii.toLowerCase(target);
+    // The distance is symmetric, so use the shorter string as the pattern of the bit vectors, or
+    // as the row of the matrix.
+    int distance;
+    if (sourceLength > targetLength) {
+      distance = getEditDistance(target, source, caseSensitive, maxEditDistance, targetLength);
+    } else {
+      distance = getEditDistance(source, target, caseSensitive, maxEditDistance, sourceLength);
     }
+    return Math.min(distance, maxEditDistance + 1);
+  }
 
-    int[][] levMatrix = new int[sourceLength + 1][targetLength + 1];
+  private static int getEditDistance(
+      String shorter, String longer, boolean caseSensitive, int maxEditDistance, int length) {
+    EditDistanceBuffers buffers = EditDistanceBuffers.get();
+    return length <= Long.SIZE
+        ? myers(shorter, longer, caseSensitive, buffers)
+        : twoRows(shorter, longer, caseSensitive, maxEditDistance, buffers);
+  }
 
-    for (int i = 0; i <= sourceLength; i++) {
-      levMatrix[i][0] = i;
+  /**
+   * Myers's bit-parallel algorithm, as formulated by Hyyro, for a pattern of at most 64
+   * characters. Bit {@code i} of the vertical deltas says whether the distance of the prefix of the
+   * pattern of length {@code i + 1} to the text read so far is one more ({@code pv}) or one less
+   * ({@code mv}) than that of the prefix of length {@code i}.
+   */
+  private static int myers(
+      String pattern, String text, boolean caseSensitive, EditDistanceBuffers buffers) {
+    int length = pattern.length();
+    long[] peq = buffers.peq;
+    for (int i = 0; i < length; i++) {
+      char c = fold(pattern.charAt(i), caseSensitive);
+      if (c < peq.length) {
+        peq[c] |= 1L << i;
+      }
     }
-
-    for (int i = 0; i <= targetLength; i++) {
-      levMatrix[0][i] = i;
+    long last = 1L << (length - 1);
+    long pv = -1L;
+    long mv = 0L;
+    int score = length;
+    for (int j = 0; j < text.length(); j++) {
+      char c = fold(text.charAt(j), caseSensitive);
+      long eq = c < peq.length ? peq[c] : matches(pattern, c, caseSensitive);
+      long xv = eq | mv;
+      long xh = (((eq & pv) + pv) ^ pv) | eq;
+      long ph = mv | ~(xh | pv);
+      long mh = pv & xh;
+      if ((ph & last) != 0) {
+        score++;
+      } else if ((mh & last) != 0) {
+        score--;
+      }
+      // The first row of the matrix increases by one in each column.
+      ph = (ph << 1) | 1;
+      mh <<= 1;
+      pv = mh | ~(xv | ph);
+      mv = ph & xv;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = fold(pattern.charAt(i), caseSensitive);
+      if (c < peq.length) {
+        peq[c] = 0;
+      }
     }
+    return score;
+  }
 
-    for (int i = 1; i <= sourceLength; i++) {
+  /** Returns the positions in the pattern of a character that isn't in the table. */
+  private static long matches(String pattern, char c, boolean caseSensitive) {
+    long eq = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      if (fold(pattern.charAt(i), caseSensitive) == c) {
+        eq |= 1L << i;
+      }
+    }
+    return eq;
+  }
 
-      char sourceI = source.charAt(i - 1);
-      for (int j = 1; j <= targetLength; j++) {
-        char targetJ = target.charAt(j - 1);
+  /**
+   * The Wagner-Fischer algorithm, keeping only the previous and the current row of the matrix, and
+   * stopping early once every entry of a row is larger than {@code maxEditDistance}.
+   */
+  private static int twoRows(
+      String source,
+      String target,
+      boolean caseSensitive,
+      int maxEditDistance,
+      EditDistanceBuffers buffers) {
+    int sourceLength = source.length();
+    int targetLength = target.length();
+    int[] previous = buffers.row(0, sourceLength + 1);
+    int[] current = buffers.row(1, sourceLength + 1);
 
-        int cost = 0;
-        if (sourceI != targetJ) {
-          cost = 1;
-        }
+    for (int i = 0; i <= sourceLength; i++) {
+      previous[i] = i;
+    }
 
-        levMatrix[i][j] =
-            Ints.min(
-                cost + levMatrix[i - 1][j - 1], levMatrix[i - 1][j] + 1, levMatrix[i][j - 1] + 1);
+    for (int j = 1; j <= targetLength; j++) {
+      char targetJ = fold(target.charAt(j - 1), caseSensitive);
+      current[0] = j;
+      int rowMin = j;
+      for (int i = 1; i <= sourceLength; i++) {
+        int cost = fold(source.charAt(i - 1), caseSensitive) == targetJ ? 0 : 1;
+        current[i] = Ints.min(cost + previous[i - 1], previous[i] + 1, current[i - 1] + 1);
+        rowMin = Math.min(rowMin, current[i]);
       }
+      if (rowMin > maxEditDistance) {
+        return maxEditDistance + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
     }
 
-    return levMatrix[sourceLength][targetLength];
+    return previous[sourceLength];
+  }
+
+  private static char fold(char c, boolean caseSensitive) {
+    return caseSensitive ? c : Ascii.toLowerCase(c);
   }
 
   /** Calculate the worst case distance between two strings with the given lengths */
@@ -118,6 +232,23 @@ public class LevenshteinEditDistance {
    * @return True if the string is empty or contains only whitespace, false otherwise
    */
   private static boolean isEmptyOrWhitespace(String source) {
-    return source == null || source.matches("\\s*");
+    if (source == null) {
+      return true;
+    }
+    // Equivalent to matching \s*, without compiling a pattern for every comparison.
+    for (int i = 0; i < source.length(); i++) {
+      switch (source.charAt(i)) {
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\u000B':
+        case '\f':
+        case '\r':
+          continue;
+        default:
+          return false;
+      }
+    }
+    return true;
   }
 }
@@ -41,9 +41,9 @@ public final class NeedlemanWunschEditDistance {
    * insertion or deletion. This algorithm is slightly more general in that it charges a sequence of
    * adjacent insertions/deletions an up-front cost plus an incremental cost per insert/delete
    * operation. The idea is that Christopher -&gt; Chris should be less than 6 times as expensive as
-   * Christopher -&gt; Christophe. The algorithm used to calculate this distance takes time and
-   * space proportional to the product of {@code source.length()} and {@code target.length()} to
-   * build the 3 arrays.
+   * Christopher -&gt; Christophe. The algorithm used to calculate this distance takes time
+   * proportional to the product of {@code source.length()} and {@code target.length()}, and keeps
+   * two rows of each of the 3 matrices, in buffers that are reused by each thread.
    *
    * @param source source string.
    * @param target target string
@@ -77,51 +77,54 @@ public final class NeedlemanWunschEditDistance {
       return scriptCost(openGapCost, continueGapCost, sourceLength);
     }
 
-    // mMatrix[i][j] = Cost of aligning source.substring(0,i) with
+    // Only the previous and the current row of each matrix are kept, indexed by j.
+    EditDistanceBuffers buffers = EditDistanceBuffers.get();
+
+    // mRow[j] = Cost of aligning source.substring(0,i) with
     // target.substring(0,j), using an edit script ending with
     // matched characters.
-    int[][] mMatrix = new int[sourceLength + 1][targetLength + 1];
+    int[] mPrevious = buffers.row(0, targetLength + 1);
+    int[] mRow = buffers.row(1, targetLength + 1);
 
     // Cost of an alignment that ends with a bunch of deletions.
-    // dMatrix[i][j] = best found cost of changing the first i chars
+    // dRow[j] = best found cost of changing the first i chars
     // of source into the first j chars of target, ending with one
     // or more deletes of source characters.
-    int[][] dMatrix = new int[sourceLength + 1][targetLength + 1];
+    int[] dPrevious = buffers.row(2, targetLength + 1);
+    int[] dRow = buffers.row(3, targetLength + 1);
 
     // Cost of an alignment that ends with one or more insertions.
-    int[][] iMatrix = new int[sourceLength + 1][targetLength + 1];
-
-    mMatrix[0][0] = dMatrix[0][0] = iMatrix[0][0] = 0;
-
-    // Any edit script that changes i chars of source into zero
-    // chars of target will only involve deletions.  So only the
-    // d&m Matrix entries are relevant, because dMatrix[i][0] gives
-    // the cost of changing an i-length string into a 0-length string,
-    // using an edit script ending in deletions.
-    for (int i = 1; i <= sourceLength; i++) {
-      mMatrix[i][0] = dMatrix[i][0] = scriptCost(openGapCost, continueGapCost, i);
+    int[] iPrevious = buffers.row(4, targetLength + 1);
+    int[] iRow = buffers.row(5, targetLength + 1);
 
-      // Make the iMatrix entries impossibly expensive, so they'll be
-      // ignored as inputs to min().  Use a big cost but not
-      // max int because that will overflow if anything's added to it.
-      iMatrix[i][0] = Integer.MAX_VALUE / 2;
-    }
+    mPrevious[0] = dPrevious[0] = iPrevious[0] = 0;
 
     for (int j = 1; j <= targetLength; j++) {
 
       // Only the i&m Matrix entries are relevant here, because they represent
       // the cost of changing a 0-length string into a j-length string, using
       // an edit script ending in insertions.
-      mMatrix[0][j] = iMatrix[0][j] = scriptCost(openGapCost, continueGapCost, j);
+      mPrevious[j] = iPrevious[j] = scriptCost(openGapCost, continueGapCost, j);
 
       // Make the dMatrix entries impossibly expensive, so they'll be
       // ignored as inputs to min().  Use a big cost but not
       // max int because that will overflow if anything's added to it.
-      dMatrix[0][j] = Integer.MAX_VALUE / 2;
+      dPrevious[j] = Integer.MAX_VALUE / 2;
     }
 
     for (int i = 1; i <= sourceLength; i++) {
 
+      // Any edit script that changes i chars of source into zero
+      // chars of target will only involve deletions.  So only the
+      // d&m Matrix entries are relevant, because dRow[0] gives
+      // the cost of changing an i-length string into a 0-length string,
+      // using an edit script ending in deletions.
+      mRow[0] = dRow[0] = scriptCost(openGapCost, continueGapCost, i);
+
+      // Make the iMatrix entries impossibly expensive, so they'll be
+      // ignored as inputs to min().
+      iRow[0] = Integer.MAX_VALUE / 2;
+
       char sourceI = source.charAt(i - 1);
       for (int j = 1; j <= targetLength; j++) {
         char targetJ = target.charAt(j - 1);
@@ -130,27 +133,32 @@ public final class NeedlemanWunschEditDistance {
 
         // Cost of changing i chars of source into j chars of target,
         // using an edit script ending in matched characters.
-        mMatrix[i][j] =
-            cost + Ints.min(mMatrix[i - 1][j - 1], iMatrix[i - 1][j - 1], dMatrix[i - 1][j - 1]);
+        mRow[j] = cost + Ints.min(mPrevious[j - 1], iPrevious[j - 1], dPrevious[j - 1]);
 
         // Cost of an edit script ending in a deletion.
-        dMatrix[i][j] =
-            Math.min(
-                mMatrix[i - 1][j] + openGapCost + continueGapCost,
-                dMatrix[i - 1][j] + continueGapCost);
+        dRow[j] =
+            Math.min(mPrevious[j] + openGapCost + continueGapCost, dPrevious[j] + continueGapCost);
 
         // Cost of an edit script ending in an insertion.
-        iMatrix[i][j] =
-            Math.min(
-                mMatrix[i][j - 1] + openGapCost + continueGapCost,
-                iMatrix[i][j - 1] + continueGapCost);
+        iRow[j] =
+            Math.min(mRow[j - 1] + openGapCost + continueGapCost, iRow[j - 1] + continueGapCost);
       }
+
+      int[] swap = mPrevious;
+      mPrevious = mRow;
+      mRow = swap;
+      swap = dPrevious;
+      dPrevious = dRow;
+      dRow = swap;
+      swap = iPrevious;
+      iPrevious = iRow;
+      iRow = swap;
     }
 
     // Return the minimum cost.
-    int costOfEditScriptEndingWithMatch = mMatrix[sourceLength][targetLength];
-    int costOfEditScriptEndingWithDelete = dMatrix[sourceLength][targetLength];
-    int costOfEditScriptEndingWithInsert = iMatrix[sourceLength][targetLength];
+    int costOfEditScriptEndingWithMatch = mPrevious[targetLength];
+    int costOfEditScriptEndingWithDelete = dPrevious[targetLength];
+    int costOfEditScriptEndingWithInsert = iPrevious[targetLength];
     return Ints.min(
         costOfEditScriptEndingWithMatch,
         costOfEditScriptEndingWithDelete,
@@ -19,7 +19,6 @@ package com.google.errorprone.predicates.type;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.predicates.TypePredicate;
 import com.google.errorprone.suppliers.Supplier;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.tools.javac.code.Type;
 
 /** Matches sub-types of the given type. */
@@ -38,6 +37,6 @@ public class DescendantOf implements TypePredicate {
       // TODO(cushon): type suppliers are allowed to return null :(
       return false;
     }
-    return ASTHelpers.isSubtype(type, bound, state);
+    return state.getSubtypeCache().isSubtype(type, bound, state);
   }
 }
@@ -19,7 +19,6 @@ package com.google.errorprone.predicates.type;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.predicates.TypePredicate;
 import com.google.errorprone.suppliers.Supplier;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.tools.javac.code.Type;
 
 /** Matches types that are a sub-type of one of the given types. */
@@ -41,7 +40,7 @@ public class DescendantOfAny implements TypePredicate {
       if (expected == null) {
         continue;
       }
-      if (ASTHelpers.isSubtype(type, expected, state)) {
+      if (state.getSubtypeCache().isSubtype(type, expected, state)) {
         return true;
       }
     }
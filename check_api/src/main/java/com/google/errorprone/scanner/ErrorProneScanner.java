@@ -16,6 +16,9 @@
 
 package com.google.errorprone.scanner;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.BugPattern;
@@ -78,7 +81,11 @@ import com.google.errorprone.bugpatterns.BugChecker.VariableTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.WhileLoopTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.WildcardTreeMatcher;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Rule;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.RuleSetMatcher;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.AnnotatedTypeTree;
 import com.sun.source.tree.AnnotationTree;
@@ -99,6 +106,7 @@ import com.sun.source.tree.ContinueTree;
 import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.EmptyStatementTree;
 import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.ExpressionStatementTree;
 import com.sun.source.tree.ForLoopTree;
 import com.sun.source.tree.IdentifierTree;
@@ -140,9 +148,11 @@ import com.sun.tools.javac.util.Name;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Scans the parsed AST, looking for violations of any of the enabled checks.
@@ -189,6 +199,7 @@ public class ErrorProneScanner extends Scanner {
     for (BugChecker checker : this.bugCheckers) {
       registerNodeTypes(checker, annotationClassesBuilder);
     }
+    this.methodInvocationPrefilter = compileMethodInvocationPrefilter(methodInvocationMatchers);
     ImmutableSet<Class<? extends Annotation>> annotationClasses = annotationClassesBuilder.build();
     this.customSuppressionAnnotations =
         VisitorState.memoize(
@@ -201,6 +212,31 @@ public class ErrorProneScanner extends Scanner {
             });
   }
 
+  /**
+   * Compiles the {@link MethodInvocationTreeMatcher#methodInvocationPrefilter}s of the given
+   * matchers into one lookup, which tells for each invocation which of the matchers may report it.
+   */
+  @Nullable
+  private static RuleSetMatcher compileMethodInvocationPrefilter(
+      List<MethodInvocationTreeMatcher> matchers) {
+    List<ImmutableList<Rule>> ruleSets = new ArrayList<>(matchers.size());
+    boolean prefiltered = false;
+    for (MethodInvocationTreeMatcher matcher : matchers) {
+      ImmutableList<Matcher<ExpressionTree>> prefilter = matcher.methodInvocationPrefilter();
+      if (prefilter.isEmpty()) {
+        // A rule without tokens matches every invocation.
+        ruleSets.add(ImmutableList.of(Rule.create(ImmutableMap.of())));
+      } else {
+        prefiltered = true;
+        ruleSets.add(
+            prefilter.stream()
+                .map(MethodInvocationMatcher::prefilterRule)
+                .collect(toImmutableList()));
+      }
+    }
+    return prefiltered ? MethodInvocationMatcher.compileRuleSets(ruleSets) : null;
+  }
+
   private static ImmutableMap<String, BugPattern.SeverityLevel> defaultSeverities(
       Iterable<BugChecker> checkers) {
     ImmutableMap.Builder<String, BugPattern.SeverityLevel> builder = ImmutableMap.builder();
@@ -250,6 +286,9 @@ public class ErrorProneScanner extends Scanner {
   private final List<MemberSelectTreeMatcher> memberSelectMatchers = new ArrayList<>();
   private final List<MethodTreeMatcher> methodMatchers = new ArrayList<>();
   private final List<MethodInvocationTreeMatcher> methodInvocationMatchers = new ArrayList<>();
+  // Tells which of the methodInvocationMatchers may report an invocation, or null if none of them
+  // declares a prefilter.
+  @Nullable private final RuleSetMatcher methodInvocationPrefilter;
   private final List<ModifiersTreeMatcher> modifiersMatchers = new ArrayList<>();
   private final List<NewArrayTreeMatcher> newArrayMatchers = new ArrayList<>();
   private final List<NewClassTreeMatcher> newClassMatchers = new ArrayList<>();
@@ -744,12 +783,17 @@ public class ErrorProneScanner extends Scanner {
 
   @Override
   public Void visitMethodInvocation(MethodInvocationTree tree, VisitorState visitorState) {
+    List<MethodInvocationTreeMatcher> matchers = methodInvocationMatchers;
+    if (methodInvocationPrefilter != null) {
+      BitSet interested = methodInvocationPrefilter.matchingRuleSets(tree, visitorState);
+      matchers = new ArrayList<>(interested.cardinality());
+      for (int i = interested.nextSetBit(0); i >= 0; i = interested.nextSetBit(i + 1)) {
+        matchers.add(methodInvocationMatchers.get(i));
+      }
+    }
     VisitorState state =
         processMatchers(
-            methodInvocationMatchers,
-            tree,
-            MethodInvocationTreeMatcher::matchMethodInvocation,
-            visitorState);
+            matchers, tree, MethodInvocationTreeMatcher::matchMethodInvocation, visitorState);
     return super.visitMethodInvocation(tree, state);
   }
 
@@ -339,7 +339,7 @@ public class ASTHelpers {
    */
   public static boolean canBeRemoved(Symbol symbol, VisitorState state) {
     if (symbol instanceof MethodSymbol
-        && !findSuperMethods((MethodSymbol) symbol, state.getTypes()).isEmpty()) {
+        && !findSuperMethods((MethodSymbol) symbol, state).isEmpty()) {
       return false;
     }
     return isEffectivelyPrivate(symbol);
@@ -708,6 +708,14 @@ public class ASTHelpers {
         .collect(toCollection(LinkedHashSet::new));
   }
 
+  /**
+   * Like {@link #findSuperMethods(MethodSymbol, Types)}, but the super methods are found once per
+   * method and javac invocation.
+   */
+  public static Set<MethodSymbol> findSuperMethods(MethodSymbol methodSymbol, VisitorState state) {
+    return new LinkedHashSet<>(SuperMethods.instance(state.context).superMethods(methodSymbol));
+  }
+
   private static Stream<MethodSymbol> findSuperMethods(
       MethodSymbol methodSymbol, Types types, boolean skipInterfaces) {
     TypeSymbol owner = (TypeSymbol) methodSymbol.owner;
@@ -728,6 +736,21 @@ public class ASTHelpers {
     return findSuperMethods(methodSymbol, types, /* skipInterfaces= */ true).findFirst();
   }
 
+  /**
+   * Like {@link #findSuperMethod(MethodSymbol, Types)}, but the super methods are found once per
+   * method and javac invocation.
+   */
+  public static Optional<MethodSymbol> findSuperMethod(
+      MethodSymbol methodSymbol, VisitorState state) {
+    for (MethodSymbol superMethod :
+        SuperMethods.instance(state.context).superMethods(methodSymbol)) {
+      if (!superMethod.owner.isInterface()) {
+        return Optional.of(superMethod);
+      }
+    }
+    return Optional.empty();
+  }
+
   /**
    * Finds all methods in any superclass of {@code startClass} with a certain {@code name} that
    * match the given {@code predicate}.
@@ -814,6 +837,10 @@ public class ASTHelpers {
     // normalize to non-binary names
     annotationClass = annotationClass.replace('$', '.');
     Name annotationName = state.getName(annotationClass);
+    AnnotationIndex.Annotations annotations = annotationIndex.get(state).get(sym, state);
+    if (annotations != null) {
+      return annotations.qualifiedNames.contains(annotationName);
+    }
     if (hasAttribute(sym, annotationName)) {
       return true;
     }
@@ -860,6 +887,9 @@ public class ASTHelpers {
     return hasAnnotation(tree, annotationClass.getName(), state);
   }
 
+  private static final Supplier<AnnotationIndex> annotationIndex =
+      VisitorState.memoize(unusedState -> new AnnotationIndex());
+
   private static final Supplier<Cache<Name, Boolean>> inheritedAnnotationCache =
       VisitorState.memoize(unusedState -> Caffeine.newBuilder().maximumSize(1000).build());
 
@@ -912,6 +942,16 @@ public class ASTHelpers {
     if (sym == null) {
       return ImmutableSet.of();
     }
+    AnnotationIndex.Annotations annotations = annotationIndex.get(state).get(sym, state);
+    if (annotations != null) {
+      Set<Name> result = new HashSet<>();
+      for (Name name : annotations.flatNames) {
+        if (annotationClasses.contains(name)) {
+          result.add(name);
+        }
+      }
+      return result;
+    }
     Set<Name> result = directAnnotationsAmong(sym, annotationClasses);
     if (!(sym instanceof ClassSymbol)) {
       return result;
@@ -1559,6 +1599,11 @@ public class ASTHelpers {
    */
   public static ImmutableSet<String> getGeneratedBy(Symbol symbol, VisitorState state) {
     checkNotNull(symbol);
+    AnnotationIndex.Annotations annotations = annotationIndex.get(state).get(symbol, state);
+    if (annotations != null
+        && !annotations.directSimpleNames.contains(state.getName("Generated"))) {
+      return ImmutableSet.of();
+    }
     return symbol.getRawAttributes().stream()
         .filter(attribute -> attribute.type.tsym.getSimpleName().contentEquals("Generated"))
         .flatMap(ASTHelpers::generatedValues)
@@ -2111,7 +2156,8 @@ public class ASTHelpers {
 
   /** Returns whether the given {@code tree} contains any comments in its source. */
   public static boolean containsComments(Tree tree, VisitorState state) {
-    return state.getOffsetTokensForNode(tree).stream().anyMatch(t -> !t.comments().isEmpty());
+    int end = state.getEndPosition(tree);
+    return end != -1 && state.containsComments(getStartPosition(tree), end);
   }
 
   /**
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.VisitorState;
+import com.sun.tools.javac.code.Attribute.Compound;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
+import com.sun.tools.javac.util.Name;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * The names of the annotations on symbols, including those inherited through {@code @Inherited},
+ * computed once per symbol and javac invocation for {@link ASTHelpers#hasAnnotation} and friends.
+ *
+ * <p>The annotations of a class read from a class file are only attached to its symbols when it
+ * is completed, so the annotations of members of classes that haven't been completed yet aren't
+ * indexed.
+ */
+final class AnnotationIndex {
+
+  /** The annotations present on a symbol. */
+  static final class Annotations {
+    /** The types of the annotations, including inherited ones. */
+    final ImmutableSet<TypeSymbol> types;
+
+    /** The qualified names of the annotations, including inherited ones. */
+    final ImmutableSet<Name> qualifiedNames;
+
+    /** The binary names of the annotations, including inherited ones. */
+    final ImmutableSet<Name> flatNames;
+
+    /** The simple names of the annotations directly on the symbol. */
+    final ImmutableSet<Name> directSimpleNames;
+
+    private Annotations(ImmutableSet<TypeSymbol> types, ImmutableSet<Name> directSimpleNames) {
+      this.types = types;
+      this.qualifiedNames =
+          types.stream().map(TypeSymbol::getQualifiedName).collect(toImmutableSet());
+      this.flatNames = types.stream().map(TypeSymbol::flatName).collect(toImmutableSet());
+      this.directSimpleNames = directSimpleNames;
+    }
+  }
+
+  private final Map<Symbol, Annotations> annotations = new ConcurrentHashMap<>();
+  private final Map<TypeSymbol, Boolean> inherited = new ConcurrentHashMap<>();
+
+  /** Returns the annotations on the given symbol, or null if they can't be indexed yet. */
+  @Nullable
+  Annotations get(Symbol sym, VisitorState state) {
+    Annotations result = annotations.get(sym);
+    if (result != null) {
+      return result;
+    }
+    ClassSymbol enclosing = sym.enclClass();
+    if (enclosing == null || enclosing.completer != Symbol.Completer.NULL_COMPLETER) {
+      return null;
+    }
+    // Not computeIfAbsent, since indexing a class indexes its superclass first.
+    result = compute(sym, state);
+    if (result != null) {
+      annotations.put(sym, result);
+    }
+    return result;
+  }
+
+  @Nullable
+  private Annotations compute(Symbol sym, VisitorState state) {
+    ImmutableSet.Builder<TypeSymbol> types = ImmutableSet.builder();
+    ImmutableSet.Builder<Name> directSimpleNames = ImmutableSet.builder();
+    for (Compound a : sym.getRawAttributes()) {
+      types.add(a.type.tsym);
+      directSimpleNames.add(a.type.tsym.getSimpleName());
+    }
+    if (sym instanceof ClassSymbol) {
+      Symbol superclass = ((ClassSymbol) sym).getSuperclass().tsym;
+      if (superclass instanceof ClassSymbol) {
+        Annotations fromSuperclass = get(superclass, state);
+        if (fromSuperclass == null) {
+          return null;
+        }
+        for (TypeSymbol type : fromSuperclass.types) {
+          if (isInherited(type, state)) {
+            types.add(type);
+          }
+        }
+      }
+    }
+    return new Annotations(types.build(), directSimpleNames.build());
+  }
+
+  private boolean isInherited(TypeSymbol annotation, VisitorState state) {
+    Boolean result = inherited.get(annotation);
+    if (result == null) {
+      try {
+        annotation.complete();
+      } catch (CompletionFailure e) {
+        // @Inherited won't work if the annotation isn't on the classpath.
+      }
+      result = annotation.attribute(state.getSymtab().inheritedType.tsym) != null;
+      inherited.put(annotation, result);
+    }
+    return result;
+  }
+}
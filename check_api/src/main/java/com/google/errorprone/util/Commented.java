@@ -51,29 +51,23 @@ public abstract class Commented<T extends Tree> {
 
     protected abstract ImmutableList.Builder<Comment> afterCommentsBuilder();
 
-    Builder<T> addComment(
-        Comment comment, int nodePosition, int tokenizingOffset, Position position) {
-      OffsetComment offsetComment = new OffsetComment(comment, tokenizingOffset);
-
+    Builder<T> addComment(Comment comment, int nodePosition, Position position) {
       if (comment.getSourcePos(0) < nodePosition) {
         if (position.equals(Position.BEFORE) || position.equals(Position.ANY)) {
-          beforeCommentsBuilder().add(offsetComment);
+          beforeCommentsBuilder().add(comment);
         }
       } else {
         if (position.equals(Position.AFTER) || position.equals(Position.ANY)) {
-          afterCommentsBuilder().add(offsetComment);
+          afterCommentsBuilder().add(comment);
         }
       }
       return this;
     }
 
     Builder<T> addAllComment(
-        Iterable<? extends Comment> comments,
-        int nodePosition,
-        int tokenizingOffset,
-        Position position) {
+        Iterable<? extends Comment> comments, int nodePosition, Position position) {
       for (Comment comment : comments) {
-        addComment(comment, nodePosition, tokenizingOffset, position);
+        addComment(comment, nodePosition, position);
       }
       return this;
     }
@@ -25,7 +25,6 @@ import com.google.common.collect.Range;
 import com.google.common.collect.TreeRangeSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.Commented.Position;
-import com.google.errorprone.util.ErrorProneTokens.CommentWithTextAndPosition;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.ExpressionTree;
@@ -36,6 +35,7 @@ import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.parser.Tokens.Comment;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Position.LineMap;
 import java.util.Iterator;
 import java.util.List;
@@ -53,11 +53,9 @@ public final class Comments {
    * param1 /* c1 *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the
    * comment c2 to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node.
+   * <p>Warning: this is expensive to compute as it involves tokenizing the source for this file.
    *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>The source positions in the returned {@code Comment} objects are relative to the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       NewClassTree newClassTree, VisitorState state) {
@@ -71,11 +69,9 @@ public final class Comments {
    * *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the comment c2
    * to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node
+   * <p>Warning: this is expensive to compute as it involves tokenizing the source for this file.
    *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>The source positions in the returned {@code Comment} objects are relative to the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       MethodInvocationTree methodInvocationTree, VisitorState state) {
@@ -126,24 +122,18 @@ public final class Comments {
       return noComments(arguments);
     }
 
-    // The token position of the end of the method invocation
-    int invocationEnd = state.getEndPosition(tree) - invocationStart;
+    // The position of the end of the method invocation
+    int invocationEnd = state.getEndPosition(tree);
 
     // Ignore comments nested inside arguments.
     TreeRangeSet<Integer> exclude = TreeRangeSet.create();
     arguments.forEach(
-        arg ->
-            exclude.add(
-                Range.closed(
-                    getStartPosition(arg) - invocationStart,
-                    state.getEndPosition(arg) - invocationStart)));
-
-    ErrorProneTokens errorProneTokens = new ErrorProneTokens(source.toString(), state.context);
-    ImmutableList<ErrorProneToken> tokens = errorProneTokens.getTokens();
-    LineMap lineMap = errorProneTokens.getLineMap();
-
-    ArgumentTracker argumentTracker =
-        new ArgumentTracker(arguments, invocationStart, state, lineMap);
+        arg -> exclude.add(Range.closed(getStartPosition(arg), state.getEndPosition(arg))));
+
+    List<ErrorProneToken> tokens = state.getOffsetTokens(invocationStart, endPosition.get());
+    LineMap lineMap = ((JCCompilationUnit) state.getPath().getCompilationUnit()).getLineMap();
+
+    ArgumentTracker argumentTracker = new ArgumentTracker(arguments, state, lineMap);
     TokenTracker tokenTracker = new TokenTracker(lineMap);
 
     argumentTracker.advance();
@@ -153,12 +143,8 @@ public final class Comments {
         // if the token is at the start of a line it could still have a comment attached which was
         // on the previous line
         for (Comment c : token.comments()) {
-          if (!(c instanceof CommentWithTextAndPosition)) {
-            continue;
-          }
-          CommentWithTextAndPosition comment = (CommentWithTextAndPosition) c;
-          int commentStart = comment.getPos();
-          int commentEnd = comment.getEndPos();
+          int commentStart = c.getSourcePos(0);
+          int commentEnd = commentStart + c.getText().length();
           if (exclude.intersects(Range.closedOpen(commentStart, commentEnd))) {
             continue;
           }
@@ -392,7 +378,6 @@ public final class Comments {
 
     private final VisitorState state;
     private final Iterator<? extends ExpressionTree> argumentsIterator;
-    private final int offset;
     private final LineMap lineMap;
 
     private Commented.Builder<ExpressionTree> currentCommentedResultBuilder = null;
@@ -405,12 +390,8 @@ public final class Comments {
     private int previousArgumentEndPosition = -1;
 
     ArgumentTracker(
-        Iterable<? extends ExpressionTree> arguments,
-        int offset,
-        VisitorState state,
-        LineMap lineMap) {
+        Iterable<? extends ExpressionTree> arguments, VisitorState state, LineMap lineMap) {
       this.state = state;
-      this.offset = offset;
       this.argumentsIterator = arguments.iterator();
       this.lineMap = lineMap;
     }
@@ -418,9 +399,9 @@ public final class Comments {
     void advance() {
       ExpressionTree nextArgument = argumentsIterator.next();
 
-      currentArgumentEndPosition = state.getEndPosition(nextArgument) - offset;
+      currentArgumentEndPosition = state.getEndPosition(nextArgument);
       previousArgumentEndPosition = currentArgumentStartPosition;
-      currentArgumentStartPosition = getStartPosition(nextArgument) - offset;
+      currentArgumentStartPosition = getStartPosition(nextArgument);
 
       if (previousCommentedResultBuilder != null) {
         resultBuilder.add(previousCommentedResultBuilder.build());
@@ -448,16 +429,15 @@ public final class Comments {
     }
 
     void addCommentToPreviousArgument(Comment c, Position position) {
-      previousCommentedResultBuilder.addComment(c, previousArgumentEndPosition, offset, position);
+      previousCommentedResultBuilder.addComment(c, previousArgumentEndPosition, position);
     }
 
     void addCommentToCurrentArgument(Comment c, Position position) {
-      currentCommentedResultBuilder.addComment(c, currentArgumentStartPosition, offset, position);
+      currentCommentedResultBuilder.addComment(c, currentArgumentStartPosition, position);
     }
 
     void addAllCommentsToCurrentArgument(Iterable<Comment> comments, Position position) {
-      currentCommentedResultBuilder.addAllComment(
-          comments, currentArgumentStartPosition, offset, position);
+      currentCommentedResultBuilder.addAllComment(comments, currentArgumentStartPosition, position);
     }
 
     boolean hasMoreArguments() {
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.util.ErrorProneTokens.AccessibleScanner;
+import com.google.errorprone.util.ErrorProneTokens.CommentSavingTokenizer;
+import com.google.errorprone.util.ErrorProneTokens.CommentWithTextAndPosition;
+import com.sun.tools.javac.parser.Scanner;
+import com.sun.tools.javac.parser.ScannerFactory;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.parser.Tokens.Comment.CommentStyle;
+import com.sun.tools.javac.parser.Tokens.Token;
+import com.sun.tools.javac.parser.Tokens.TokenKind;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tokens of an entire compilation unit, lexed once and then queried by source range.
+ *
+ * <p>Re-lexing the source of a single node is cheap, but many checks do it for many nodes in the
+ * same file. This class tokenizes the whole file up front and answers range queries with a binary
+ * search over the token and comment positions, so a file is lexed at most once no matter how many
+ * checks ask for its tokens.
+ *
+ * <p>The tokens returned for a range are the same as those that would be returned by lexing just
+ * the source text of that range with {@link ErrorProneTokens}: comments outside the range are
+ * omitted, and comments between the last token and the end of the range are attached to a
+ * trailing {@link TokenKind#EOF} token. If the range does not fall on token boundaries (for example
+ * if it ends half-way through a {@code >>} token) the range is re-lexed on its own.
+ */
+public final class CompilationUnitTokens {
+
+  private final String source;
+  private final Context context;
+
+  // The tokens of the file, including the final EOF token, in source order.
+  private final Token[] tokens;
+  private final int[] tokenStarts;
+  private final int[] tokenEnds;
+
+  // The comments of the file, in source order.
+  private final Comment[] comments;
+  private final int[] commentStarts;
+  private final int[] commentEnds;
+
+  // The comments preceding tokens[i] are comments[firstComments[i]] to
+  // comments[firstComments[i + 1] - 1]. Has one more element than tokens.
+  private final int[] firstComments;
+
+  private CompilationUnitTokens(
+      String source,
+      Context context,
+      List<Token> tokens,
+      List<CommentWithTextAndPosition> comments,
+      int[] firstComments) {
+    this.source = source;
+    this.context = context;
+    this.tokens = tokens.toArray(new Token[0]);
+    this.tokenStarts = new int[this.tokens.length];
+    this.tokenEnds = new int[this.tokens.length];
+    for (int i = 0; i < this.tokens.length; i++) {
+      tokenStarts[i] = this.tokens[i].pos;
+      tokenEnds[i] = this.tokens[i].endPos;
+    }
+    this.comments = comments.toArray(new Comment[0]);
+    this.commentStarts = new int[this.comments.length];
+    this.commentEnds = new int[this.comments.length];
+    for (int i = 0; i < this.comments.length; i++) {
+      commentStarts[i] = comments.get(i).getPos();
+      commentEnds[i] = comments.get(i).getEndPos();
+    }
+    this.firstComments = firstComments;
+  }
+
+  /** Tokenizes the given source, which should be the full text of a compilation unit. */
+  public static CompilationUnitTokens create(String source, Context context) {
+    ScannerFactory scannerFactory = ScannerFactory.instance(context);
+    // javac drops a line comment that is terminated by the end of the input rather than by a line
+    // break, so lex the source with a trailing newline to retain all of its comments.
+    // The buffer has room for one more character so that javac doesn't try to strip trailing
+    // whitespace from it before JDK 16.
+    char[] buffer = Arrays.copyOf(source.toCharArray(), source.length() + 2);
+    buffer[source.length()] = '\n';
+    Scanner scanner =
+        new AccessibleScanner(
+            scannerFactory,
+            new CommentSavingTokenizer(scannerFactory, buffer, source.length() + 1));
+    List<Token> tokens = new ArrayList<>();
+    List<CommentWithTextAndPosition> comments = new ArrayList<>();
+    List<Integer> firstComments = new ArrayList<>();
+    do {
+      scanner.nextToken();
+      Token token = scanner.token();
+      firstComments.add(comments.size());
+      if (token.comments != null) {
+        // javac stores the comments in reverse declaration order
+        for (Comment comment : token.comments.reverse()) {
+          comments.add((CommentWithTextAndPosition) comment);
+        }
+      }
+      tokens.add(token);
+    } while (scanner.token().kind != TokenKind.EOF);
+    firstComments.add(comments.size());
+    return new CompilationUnitTokens(
+        source,
+        context,
+        tokens,
+        comments,
+        firstComments.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /** Returns the source this instance was created from. */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the tokens for the source text between {@code start} (inclusive) and {@code end}
+   * (exclusive), with positions relative to the start of the file.
+   *
+   * <p>This is equivalent to {@code ErrorProneTokens.getTokens(source.substring(start, end), start,
+   * context)}.
+   */
+  public ImmutableList<ErrorProneToken> getOffsetTokens(int start, int end) {
+    return getTokens(start, end, start);
+  }
+
+  /**
+   * Returns the tokens for the source text between {@code start} (inclusive) and {@code end}
+   * (exclusive), with positions relative to {@code start}.
+   *
+   * <p>This is equivalent to {@code ErrorProneTokens.getTokens(source.substring(start, end),
+   * context)}.
+   */
+  public ImmutableList<ErrorProneToken> getTokens(int start, int end) {
+    return getTokens(start, end, 0);
+  }
+
+  private ImmutableList<ErrorProneToken> getTokens(int start, int end, int offset) {
+    checkArgument(
+        0 <= start && start <= end && end <= source.length(),
+        "invalid range [%s, %s) for source of length %s",
+        start,
+        end,
+        source.length());
+    int fullEnd = end;
+    if (!RuntimeVersion.isAtLeast16()
+        && end > start
+        && Character.isWhitespace(source.charAt(end - 1))) {
+      // Before JDK 16, UnicodeReader ignores a trailing whitespace character in its input.
+      end--;
+    }
+    int firstToken = firstIndexAtOrAfter(tokenStarts, start);
+    int endToken = firstIndexAtOrAfter(tokenStarts, end);
+    int firstComment = firstIndexAtOrAfter(commentStarts, start);
+    int endComment = firstIndexAtOrAfter(commentStarts, end);
+    if (!isBoundary(tokenEnds, firstToken, start)
+        || !isBoundary(tokenEnds, endToken, end)
+        || !isBoundary(commentEnds, firstComment, start)
+        || !isBoundary(commentEnds, endComment, end)) {
+      return ErrorProneTokens.getTokens(source.substring(start, fullEnd), offset, context);
+    }
+    int shift = offset - start;
+    ImmutableList.Builder<ErrorProneToken> result = ImmutableList.builder();
+    for (int i = firstToken; i < endToken; i++) {
+      result.add(
+          new ErrorProneToken(
+              tokens[i],
+              tokenStarts[i] + shift,
+              tokenEnds[i] + shift,
+              comments(Math.max(firstComments[i], firstComment), firstComments[i + 1], shift)));
+    }
+    // Lexing just the range would have produced an EOF token at its end, holding any comments
+    // between the last token and the end of the range. A line comment that runs up to the end of
+    // the range has no line break to terminate it there, so javac would have dropped it.
+    int lastComment = endComment;
+    if (lastComment > firstComment
+        && commentEnds[lastComment - 1] == end
+        && comments[lastComment - 1].getStyle() == CommentStyle.LINE) {
+      lastComment--;
+    }
+    result.add(
+        new ErrorProneToken(
+            tokens[tokens.length - 1],
+            end + shift,
+            end + shift,
+            comments(Math.max(firstComments[endToken], firstComment), lastComment, shift)));
+    return result.build();
+  }
+
+  /**
+   * Returns true if there is a comment that lies entirely between {@code start} (inclusive) and
+   * {@code end} (exclusive).
+   */
+  public boolean containsComments(int start, int end) {
+    // comments don't overlap, so the first comment that starts in range is the first to end
+    int index = firstIndexAtOrAfter(commentStarts, start);
+    return index < comments.length && commentEnds[index] <= end;
+  }
+
+  private List<Comment> comments(int from, int to, int shift) {
+    if (from >= to) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Comment> result = ImmutableList.builderWithExpectedSize(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(shift == 0 ? comments[i] : new OffsetComment(comments[i], shift));
+    }
+    return result.build();
+  }
+
+  /**
+   * Returns true if {@code position} doesn't fall inside the element that precedes {@code index},
+   * where {@code index} is the first element starting at or after {@code position}.
+   */
+  private static boolean isBoundary(int[] ends, int index, int position) {
+    return index == 0 || ends[index - 1] <= position;
+  }
+
+  /** Returns the index of the first element of {@code sorted} that is {@code >= key}. */
+  static int firstIndexAtOrAfter(int[] sorted, int key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
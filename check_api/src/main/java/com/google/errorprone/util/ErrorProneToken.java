@@ -25,15 +25,36 @@ import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.util.Name;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /** Wraps a javac {@link Token} to return comments in declaration order. */
 public class ErrorProneToken {
   private final int offset;
   private final Token token;
+  private final int pos;
+  private final int endPos;
+  // Comments that have already been put in declaration order and adjusted to the token's offset,
+  // or null if they should be computed from the wrapped token.
+  @Nullable private final List<Comment> comments;
 
   ErrorProneToken(Token token, int offset) {
     this.token = token;
     this.offset = offset;
+    this.pos = offset + token.pos;
+    this.endPos = offset + token.endPos;
+    this.comments = null;
+  }
+
+  /**
+   * Creates a token with explicit positions and comments, e.g. for a token that was lexed as part
+   * of a larger source and is being reported relative to a sub-range of it.
+   */
+  ErrorProneToken(Token token, int pos, int endPos, List<Comment> comments) {
+    this.token = token;
+    this.offset = pos - token.pos;
+    this.pos = pos;
+    this.endPos = endPos;
+    this.comments = comments;
   }
 
   public TokenKind kind() {
@@ -41,14 +62,17 @@ public class ErrorProneToken {
   }
 
   public int pos() {
-    return offset + token.pos;
+    return pos;
   }
 
   public int endPos() {
-    return offset + token.endPos;
+    return endPos;
   }
 
   public List<Comment> comments() {
+    if (comments != null) {
+      return comments;
+    }
     // javac stores the comments in reverse declaration order because appending to linked
     // lists is expensive
     if (token.comments == null) {
@@ -17,6 +17,7 @@
 package com.google.errorprone.util;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 
 import com.google.common.collect.ImmutableList;
 import com.sun.tools.javac.parser.JavaTokenizer;
@@ -28,6 +29,9 @@ import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.parser.UnicodeReader;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Position.LineMap;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 /** A utility for tokenizing and preserving comments. */
 public class ErrorProneTokens {
@@ -76,32 +80,52 @@ public class ErrorProneTokens {
 
   /** A {@link JavaTokenizer} that saves comments. */
   static class CommentSavingTokenizer extends JavaTokenizer {
+    /**
+     * A handle for {@code getRawCharacters(int, int)} on the tokenizer's {@link UnicodeReader},
+     * taking the tokenizer as its receiver. Resolved once, since it's needed for every comment.
+     */
+    private static final MethodHandle GET_RAW_CHARACTERS = getRawCharactersHandle();
+
+    private static MethodHandle getRawCharactersHandle() {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      try {
+        MethodHandle getRawCharacters =
+            lookup.findVirtual(
+                UnicodeReader.class,
+                "getRawCharacters",
+                MethodType.methodType(char[].class, int.class, int.class));
+        if (RuntimeVersion.isAtLeast16()) {
+          // JavaTokenizer extends UnicodeReader, see JDK-8224083
+          return getRawCharacters.asType(
+              MethodType.methodType(
+                  char[].class, CommentSavingTokenizer.class, int.class, int.class));
+        }
+        // JavaTokenizer delegates to the UnicodeReader in its protected 'reader' field
+        MethodHandle reader =
+            lookup.findGetter(JavaTokenizer.class, "reader", UnicodeReader.class);
+        return MethodHandles.filterArguments(getRawCharacters, 0, reader);
+      } catch (ReflectiveOperationException e) {
+        throw new LinkageError(e.getMessage(), e);
+      }
+    }
+
     CommentSavingTokenizer(ScannerFactory fac, char[] buffer, int length) {
       super(fac, buffer, length);
     }
 
     @Override
     protected Comment processComment(int pos, int endPos, CommentStyle style) {
-      char[] buf = getRawCharactersReflectively(pos, endPos);
+      char[] buf = rawCharacters(pos, endPos);
       return new CommentWithTextAndPosition(
           pos, endPos, new AccessibleReader(fac, buf, buf.length), style);
     }
 
-    private char[] getRawCharactersReflectively(int beginIndex, int endIndex) {
-      Object instance;
+    private char[] rawCharacters(int beginIndex, int endIndex) {
       try {
-        instance = JavaTokenizer.class.getDeclaredField("reader").get(this);
-      } catch (ReflectiveOperationException e) {
-        instance = this;
-      }
-      try {
-        return (char[])
-            instance
-                .getClass()
-                .getMethod("getRawCharacters", int.class, int.class)
-                .invoke(instance, beginIndex, endIndex);
-      } catch (ReflectiveOperationException e) {
-        throw new LinkageError(e.getMessage(), e);
+        return (char[]) GET_RAW_CHARACTERS.invokeExact(this, beginIndex, endIndex);
+      } catch (Throwable t) {
+        throwIfUnchecked(t);
+        throw new LinkageError(t.getMessage(), t);
       }
     }
   }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import java.util.Arrays;
+
+/**
+ * The positions of the lines of a source file, for mapping between character offsets and line
+ * numbers without rescanning the source.
+ *
+ * <p>Lines are terminated by {@code \n}, {@code \r\n} or {@code \r}, as in javac. Line and column
+ * numbers start at 1. A source of length {@code n} always has at least one line, and if it ends
+ * with a line terminator its last line is the empty line starting at {@code n}.
+ */
+public final class LineIndex {
+
+  private final int length;
+  // The offset of the first character of each line.
+  private final int[] lineStarts;
+  // The offset just past the last character of each line, not including its terminator.
+  private final int[] lineEnds;
+
+  private LineIndex(int length, int[] lineStarts, int[] lineEnds) {
+    this.length = length;
+    this.lineStarts = lineStarts;
+    this.lineEnds = lineEnds;
+  }
+
+  /** Indexes the lines of the given source. */
+  public static LineIndex create(CharSequence source) {
+    int length = source.length();
+    int[] lineStarts = new int[16];
+    int[] lineEnds = new int[16];
+    int lines = 0;
+    int lineStart = 0;
+    for (int i = 0; i < length; i++) {
+      char c = source.charAt(i);
+      if (c != '\n' && c != '\r') {
+        continue;
+      }
+      if (lines == lineStarts.length - 1) {
+        lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        lineEnds = Arrays.copyOf(lineEnds, lineEnds.length * 2);
+      }
+      lineStarts[lines] = lineStart;
+      lineEnds[lines] = i;
+      lines++;
+      if (c == '\r' && i + 1 < length && source.charAt(i + 1) == '\n') {
+        i++;
+      }
+      lineStart = i + 1;
+    }
+    lineStarts[lines] = lineStart;
+    lineEnds[lines] = length;
+    lines++;
+    return new LineIndex(length, Arrays.copyOf(lineStarts, lines), Arrays.copyOf(lineEnds, lines));
+  }
+
+  /** Returns the number of lines, including a trailing empty line. */
+  public int getLineCount() {
+    return lineStarts.length;
+  }
+
+  /**
+   * Returns the line containing the given position. A position on a line terminator belongs to the
+   * line it terminates, and the end of the source belongs to the last line.
+   */
+  public int getLineNumber(int position) {
+    checkPositionIndex(position, length);
+    int low = 0;
+    int high = lineStarts.length - 1;
+    // find the last line that starts at or before position
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (lineStarts[mid] <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low + 1;
+  }
+
+  /** Returns the column of the given position within its line. */
+  public int getColumnNumber(int position) {
+    return position - lineStarts[getLineNumber(position) - 1] + 1;
+  }
+
+  /** Returns the position of the first character of the given line. */
+  public int getLineStart(int line) {
+    checkElementIndex(line - 1, lineStarts.length, "line");
+    return lineStarts[line - 1];
+  }
+
+  /**
+   * Returns the position just past the last character of the given line, not including its line
+   * terminator.
+   */
+  public int getLineEnd(int line) {
+    checkElementIndex(line - 1, lineEnds.length, "line");
+    return lineEnds[line - 1];
+  }
+}
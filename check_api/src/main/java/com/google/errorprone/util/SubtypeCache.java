@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.sun.tools.javac.code.TypeTag.CLASS;
+
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ErrorProneTimings.Counter;
+import com.google.errorprone.VisitorState;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Context;
+import java.util.Arrays;
+
+/**
+ * The results of {@link ASTHelpers#isSubtype} for pairs of class types, cached for a javac
+ * invocation.
+ *
+ * <p>The erasure of a class type only depends on its class, so the result is keyed by the pair of
+ * {@link TypeSymbol}s. Other types, like arrays, type variables and intersections, are checked
+ * without the cache. The cache is an open-addressing table of a fixed size, which is emptied when
+ * it fills up.
+ *
+ * <p>Hits and misses are counted in {@link ErrorProneTimings} as {@code subtype-cache:hits} and
+ * {@code subtype-cache:misses}.
+ */
+public final class SubtypeCache {
+  private static final Context.Key<SubtypeCache> KEY = new Context.Key<>();
+
+  /** The number of slots in the table, which must be a power of two. */
+  private static final int CAPACITY = 1 << 15;
+
+  /** The number of entries at which the table is emptied, to keep probe sequences short. */
+  private static final int MAX_SIZE = CAPACITY / 2;
+
+  public static SubtypeCache instance(Context context) {
+    SubtypeCache instance = context.get(KEY);
+    if (instance == null) {
+      instance = new SubtypeCache(context);
+      context.put(KEY, instance);
+    }
+    return instance;
+  }
+
+  private final Types types;
+  private final Counter hits;
+  private final Counter misses;
+
+  // An entry is in use if its subtype is non-null.
+  private final TypeSymbol[] subtypes = new TypeSymbol[CAPACITY];
+  private final TypeSymbol[] supertypes = new TypeSymbol[CAPACITY];
+  private final boolean[] results = new boolean[CAPACITY];
+  private int size;
+
+  private SubtypeCache(Context context) {
+    this.types = Types.instance(context);
+    ErrorProneTimings timings = ErrorProneTimings.instance(context);
+    this.hits = timings.counter(ErrorProneTimings.SUBTYPE_CACHE_PREFIX + "hits");
+    this.misses = timings.counter(ErrorProneTimings.SUBTYPE_CACHE_PREFIX + "misses");
+  }
+
+  /** Returns the same result as {@link ASTHelpers#isSubtype}, from the cache if possible. */
+  public boolean isSubtype(Type s, Type t, VisitorState state) {
+    if (!isCacheable(s) || !isCacheable(t)) {
+      return ASTHelpers.isSubtype(s, t, state);
+    }
+    TypeSymbol sub = s.tsym;
+    TypeSymbol sup = t.tsym;
+    int mask = CAPACITY - 1;
+    int i = hash(sub, sup) & mask;
+    for (; subtypes[i] != null; i = (i + 1) & mask) {
+      if (subtypes[i] == sub && supertypes[i] == sup) {
+        hits.increment();
+        return results[i];
+      }
+    }
+    misses.increment();
+    boolean result = types.isSubtype(types.erasure(s), types.erasure(t));
+    if (size == MAX_SIZE) {
+      clear();
+      i = hash(sub, sup) & mask;
+    }
+    subtypes[i] = sub;
+    supertypes[i] = sup;
+    results[i] = result;
+    size++;
+    return result;
+  }
+
+  private static boolean isCacheable(Type type) {
+    return type != null && type.hasTag(CLASS) && !type.isCompound();
+  }
+
+  private static int hash(TypeSymbol sub, TypeSymbol sup) {
+    int h = System.identityHashCode(sub) * 31 + System.identityHashCode(sup);
+    // Spread the high bits, since only the low ones select a slot.
+    return h ^ (h >>> 16);
+  }
+
+  private void clear() {
+    Arrays.fill(subtypes, null);
+    Arrays.fill(supertypes, null);
+    size = 0;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.TypeSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Context;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The methods that each method overrides, found once per method and javac invocation for {@link
+ * ASTHelpers#findSuperMethods(MethodSymbol, com.google.errorprone.VisitorState)} and {@link
+ * ASTHelpers#findSuperMethod(MethodSymbol, com.google.errorprone.VisitorState)}.
+ *
+ * <p>The cache is kept in the invocation's {@link Context}, so it goes away with the invocation.
+ */
+final class SuperMethods {
+  private static final Context.Key<SuperMethods> KEY = new Context.Key<>();
+
+  static SuperMethods instance(Context context) {
+    synchronized (context) {
+      SuperMethods instance = context.get(KEY);
+      if (instance == null) {
+        instance = new SuperMethods(Types.instance(context));
+        context.put(KEY, instance);
+      }
+      return instance;
+    }
+  }
+
+  private final Types types;
+  private final Map<MethodSymbol, ImmutableList<MethodSymbol>> superMethods =
+      new ConcurrentHashMap<>();
+
+  private SuperMethods(Types types) {
+    this.types = types;
+  }
+
+  /**
+   * Returns the methods that the given method overrides, in the order of the closure of its
+   * owner's supertypes.
+   */
+  ImmutableList<MethodSymbol> superMethods(MethodSymbol methodSymbol) {
+    ImmutableList<MethodSymbol> result = superMethods.get(methodSymbol);
+    if (result == null) {
+      ImmutableList.Builder<MethodSymbol> builder = ImmutableList.builder();
+      for (Type type : types.closure(((TypeSymbol) methodSymbol.owner).type)) {
+        MethodSymbol superMethod = ASTHelpers.findSuperMethodInType(methodSymbol, type, types);
+        if (superMethod != null) {
+          builder.add(superMethod);
+        }
+      }
+      result = builder.build();
+      superMethods.put(methodSymbol, result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CodeTransformerLoader}. */
+@RunWith(JUnit4.class)
+public class CodeTransformerLoaderTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void cachesUnchangedFiles() throws IOException {
+    Path path = temporaryFolder.newFile("rules.ser").toPath();
+    write(path, new NamedTransformer("first"), FileTime.fromMillis(1000));
+
+    CodeTransformer first = CodeTransformerLoader.load(path);
+
+    assertThat(((NamedTransformer) first).name).isEqualTo("first");
+    assertThat(CodeTransformerLoader.load(path)).isSameInstanceAs(first);
+  }
+
+  @Test
+  public void reloadsChangedFiles() throws IOException {
+    Path path = temporaryFolder.newFile("rules.ser").toPath();
+    write(path, new NamedTransformer("first"), FileTime.fromMillis(1000));
+    CodeTransformer first = CodeTransformerLoader.load(path);
+
+    write(path, new NamedTransformer("other"), FileTime.fromMillis(2000));
+    CodeTransformer second = CodeTransformerLoader.load(path);
+
+    assertThat(second).isNotSameInstanceAs(first);
+    assertThat(((NamedTransformer) second).name).isEqualTo("other");
+  }
+
+  private static void write(Path path, CodeTransformer transformer, FileTime lastModified)
+      throws IOException {
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+      out.writeObject(transformer);
+    }
+    Files.setLastModifiedTime(path, lastModified);
+  }
+
+  private static final class NamedTransformer implements CodeTransformer, Serializable {
+    final String name;
+
+    NamedTransformer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void apply(TreePath path, Context context, DescriptionListener listener) {}
+
+    @Override
+    public ImmutableClassToInstanceMap<Annotation> annotations() {
+      return ImmutableClassToInstanceMap.of();
+    }
+  }
+}
@@ -236,6 +236,21 @@ public class ErrorProneOptionsTest {
     assertThat(options.patchingOptions().doRefactor()).isTrue();
     assertThat(options.patchingOptions().inPlace()).isTrue();
     assertThat(options.patchingOptions().customRefactorer()).isPresent();
+    assertThat(options.patchingOptions().parallel()).isFalse();
+  }
+
+  @Test
+  public void recognizesParallelPatching() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(
+            new String[] {
+              "-XepPatchChecks:refaster:/foo/bar", "-XepPatchLocation:IN_PLACE", "-XepPatchParallel"
+            });
+    assertThat(options.patchingOptions().parallel()).isTrue();
+
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepPatchParallel"}));
   }
 
   @Test
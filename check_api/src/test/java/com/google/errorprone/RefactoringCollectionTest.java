@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.RefactoringCollection.RefactoringResult;
+import com.google.errorprone.RefactoringCollection.RefactoringResultType;
+import com.google.errorprone.apply.FileDestination;
+import com.google.errorprone.apply.ImportOrganizer;
+import com.google.errorprone.apply.SourceFile;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link RefactoringCollection}Test */
+@RunWith(JUnit4.class)
+public class RefactoringCollectionTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void awaitChangesReportsEveryFile() throws Exception {
+    Path tmp = temporaryFolder.newFolder().toPath();
+    List<Path> sources = new ArrayList<>();
+    for (String name : ImmutableList.of("A", "B", "C", "D")) {
+      Path source = tmp.resolve(name + ".java");
+      Files.write(source, ImmutableList.of("class " + name + " {}"), UTF_8);
+      sources.add(source);
+    }
+    List<String> written = Collections.synchronizedList(new ArrayList<>());
+    FileDestination destination =
+        new FileDestination() {
+          @Override
+          public void writeFile(SourceFile update) {
+            if (update.getPath().endsWith("B.java")) {
+              throw new IllegalStateException("boom");
+            }
+            written.add(fileName(update.getPath()));
+          }
+
+          @Override
+          public void flush() {}
+        };
+
+    JavacFileManager fileManager = new JavacFileManager(new Context(), false, UTF_8);
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    CharStreams.nullWriter(),
+                    fileManager,
+                    null,
+                    ImmutableList.of(),
+                    null,
+                    fileManager.getJavaFileObjectsFromPaths(sources));
+    Context context = task.getContext();
+    RefactoringCollection collection =
+        new RefactoringCollection(
+            tmp.getRoot(),
+            destination,
+            uri ->
+                RefactoringResult.create(
+                    fileName(Paths.get(uri).toString()), RefactoringResultType.CHANGED),
+            ImportOrganizer.STATIC_FIRST_ORGANIZER,
+            /* parallel= */ true,
+            context);
+    for (CompilationUnitTree compilation : task.parse()) {
+      collection.getDescriptionListener(Log.instance(context), (JCCompilationUnit) compilation);
+      collection.applyChangesInParallel(compilation.getSourceFile().toUri());
+    }
+
+    List<RefactoringResult> results = new ArrayList<>();
+    List<Exception> failures = new ArrayList<>();
+    collection.awaitChanges(results::add, failures::add);
+
+    assertThat(results.stream().map(RefactoringResult::message).collect(toImmutableList()))
+        .containsExactly("A.java", "C.java", "D.java")
+        .inOrder();
+    assertThat(failures).hasSize(1);
+    assertThat(failures.get(0)).hasMessageThat().isEqualTo("boom");
+    assertThat(written).containsExactly("A.java", "C.java", "D.java");
+  }
+
+  private static String fileName(String path) {
+    return Paths.get(path).getFileName().toString();
+  }
+}
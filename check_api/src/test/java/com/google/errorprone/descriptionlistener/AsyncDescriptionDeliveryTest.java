@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.descriptionlistener;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link AsyncDescriptionDelivery}Test */
+@RunWith(JUnit4.class)
+public class AsyncDescriptionDeliveryTest {
+
+  private static final String SOURCE = "class Test {\n  int x = 1;\n}\n";
+
+  private Context context;
+  private JCCompilationUnit compilation;
+  private JCTree field;
+
+  @Before
+  public void setUp() throws IOException {
+    JavaFileObject file =
+        new SimpleJavaFileObject(URI.create("file:///Test.java"), JavaFileObject.Kind.SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return SOURCE;
+          }
+        };
+    JavacTool tool = JavacTool.create();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of(),
+                null,
+                ImmutableList.of(file));
+    compilation = (JCCompilationUnit) getOnlyElement(task.parse());
+    field = ((JCClassDecl) getOnlyElement(compilation.getTypeDecls())).getMembers().get(0);
+    context = task.getContext();
+    // a tiny buffer, so the compilation thread has to wait for the listener
+    context.put(
+        ErrorProneFlags.class,
+        ErrorProneFlags.fromMap(ImmutableMap.of("hubspot:async-listener-buffer-size", "2")));
+  }
+
+  @Test
+  public void deliversResolvedDescriptionsInOrder() {
+    List<ResolvedDescription> delivered = Collections.synchronizedList(new ArrayList<>());
+    DescriptionListener listener = listener(resources -> delivered::add);
+
+    for (int i = 0; i < 100; i++) {
+      listener.onDescribed(
+          Description.builder(field, "Check" + i, null, SeverityLevel.WARNING, "message")
+              .addFix(SuggestedFix.replace(15, 25, "int y = 2;"))
+              .build());
+    }
+    AsyncDescriptionDelivery.instance(context).flush();
+
+    assertThat(delivered.stream().map(ResolvedDescription::getCheckName))
+        .containsExactlyElementsIn(
+            IntStream.range(0, 100).mapToObj(i -> "Check" + i).collect(toImmutableList()))
+        .inOrder();
+    ResolvedDescription first = delivered.get(0);
+    assertThat(first.getFile()).isEqualTo("/Test.java");
+    assertThat(first.getLine()).isEqualTo(2);
+    assertThat(first.getColumn()).isEqualTo(7);
+    assertThat(first.getSeverity()).isEqualTo(SeverityLevel.WARNING);
+    assertThat(first.getMessage()).isEqualTo("[Check0] message");
+    assertThat(first.getFixes()).containsExactly("int y = 2;");
+  }
+
+  @Test
+  public void flushRethrowsListenerFailures() {
+    DescriptionListener listener =
+        listener(
+            resources ->
+                description -> {
+                  throw new IllegalStateException("boom");
+                });
+
+    listener.onDescribed(
+        Description.builder(field, "Check", null, SeverityLevel.WARNING, "message").build());
+
+    AsyncDescriptionDelivery delivery = AsyncDescriptionDelivery.instance(context);
+    IllegalStateException e = assertThrows(IllegalStateException.class, delivery::flush);
+    assertThat(e).hasMessageThat().isEqualTo("boom");
+    // the failure is only reported once
+    delivery.flush();
+  }
+
+  private DescriptionListener listener(AsyncCustomDescriptionListenerFactory factory) {
+    return factory.createFactory(
+        DescriptionListenerResources.create(
+            Log.instance(context), compilation, context, /* useErrors= */ true));
+  }
+}
@@ -121,6 +121,20 @@ public class AppliedFixTest {
     assertThat(fix.getNewCodeSnippet().toString()).isEqualTo("int three3tres;");
   }
 
+  @Test
+  public void shouldApplyEveryEditOnTheFirstChangedLine() {
+    AppliedFix fix =
+        AppliedFix.fromSource(
+                "class Foo {\n" + "  int a = b + c;\n" + "  int d = e;\n" + "}", endPositions)
+            .apply(
+                SuggestedFix.builder()
+                    .replace(22, 23, "x")
+                    .replace(26, 27, "y\nz")
+                    .replace(39, 40, "f")
+                    .build());
+    assertThat(fix.getNewCodeSnippet().toString()).isEqualTo("int a = x + y");
+  }
+
   @Test
   public void shouldReturnNullOnEmptyFix() {
     AppliedFix fix =
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.names;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for LevenshteinEditDistance */
+@RunWith(JUnit4.class)
+public class LevenshteinEditDistanceTest {
+
+  @Test
+  public void levenshteinEditDistance_countsEdits() {
+    assertThat(LevenshteinEditDistance.getEditDistance("kitten", "sitting")).isEqualTo(3);
+    assertThat(LevenshteinEditDistance.getEditDistance("sitting", "kitten")).isEqualTo(3);
+    assertThat(LevenshteinEditDistance.getEditDistance("fooBar", "fooBar")).isEqualTo(0);
+    assertThat(LevenshteinEditDistance.getEditDistance("fooBar", "")).isEqualTo(6);
+    assertThat(LevenshteinEditDistance.getEditDistance("  ", "foo")).isEqualTo(3);
+  }
+
+  @Test
+  public void levenshteinEditDistance_ignoresAsciiCase_whenCaseInsensitive() {
+    assertThat(LevenshteinEditDistance.getEditDistance("fooBar", "FOOBAR", false)).isEqualTo(0);
+    assertThat(LevenshteinEditDistance.getEditDistance("fooBar", "FOOBAR", true)).isEqualTo(5);
+  }
+
+  @Test
+  public void levenshteinEditDistance_handlesNonAsciiCharacters() {
+    assertThat(LevenshteinEditDistance.getEditDistance("caf\u00e9", "cafe")).isEqualTo(1);
+    // Only ASCII letters are compared case-insensitively.
+    assertThat(LevenshteinEditDistance.getEditDistance("\u00c9t\u00e9", "\u00e9t\u00e9", false))
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void levenshteinEditDistance_handlesLongStrings() {
+    String source = Strings.repeat("abcdefghij", 10);
+    String target = "x" + source.substring(1, 50) + source.substring(51) + "yz";
+
+    assertThat(LevenshteinEditDistance.getEditDistance(source, target)).isEqualTo(4);
+    assertThat(LevenshteinEditDistance.getEditDistance(target, source)).isEqualTo(4);
+  }
+
+  @Test
+  public void boundedLevenshteinEditDistance_returnsDistance_withinBound() {
+    assertThat(LevenshteinEditDistance.getEditDistance("kitten", "sitting", true, 3)).isEqualTo(3);
+  }
+
+  @Test
+  public void boundedLevenshteinEditDistance_returnsBoundPlusOne_beyondBound() {
+    assertThat(LevenshteinEditDistance.getEditDistance("kitten", "sitting", true, 2)).isEqualTo(3);
+    assertThat(LevenshteinEditDistance.getEditDistance("foo", "fooBarBaz", true, 2)).isEqualTo(3);
+
+    String source = Strings.repeat("abcdefghij", 10);
+    String target = Strings.repeat("klmnopqrst", 10);
+    assertThat(LevenshteinEditDistance.getEditDistance(source, target, true, 5)).isEqualTo(6);
+  }
+
+  @Test
+  public void boundedLevenshteinEditDistance_acceptsMinusOne_rejectsLess() {
+    assertThat(LevenshteinEditDistance.getEditDistance("foo", "foo", true, -1)).isEqualTo(0);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> LevenshteinEditDistance.getEditDistance("foo", "foo", true, -2));
+  }
+}
@@ -50,6 +50,37 @@ public class NeedlemanWunschEditDistanceTest {
     assertThat(needlemanWunsch).isEqualTo(levenschtein);
   }
 
+  @Test
+  public void needlemanWunschEditDistance_afterLongerStrings() {
+    // Fill the reused rows past the lengths used below.
+    assertThat(
+            NeedlemanWunschEditDistance.getEditDistance(
+                "someMuchLongerIdentifierName",
+                "someMuchLongerIdentifierNameWithSuffix",
+                /* caseSensitive= */ false,
+                1,
+                10,
+                1))
+        .isEqualTo(20);
+
+    assertThat(
+            NeedlemanWunschEditDistance.getEditDistance(
+                "Christopher", "Chris", /* caseSensitive= */ true, 1, 4, 1))
+        .isEqualTo(10);
+    assertThat(
+            NeedlemanWunschEditDistance.getEditDistance(
+                "Chris", "Christopher", /* caseSensitive= */ true, 1, 4, 1))
+        .isEqualTo(10);
+    assertThat(
+            NeedlemanWunschEditDistance.getEditDistance(
+                "fooBar", "fooBazQux", /* caseSensitive= */ false, 2, 3, 1))
+        .isEqualTo(8);
+    assertThat(
+            NeedlemanWunschEditDistance.getEditDistance(
+                "fooBazQux", "fooBar", /* caseSensitive= */ false, 2, 3, 1))
+        .isEqualTo(8);
+  }
+
   @Test
   public void needlemanWunschEditDistanceWorstCase_matchesLevenschtein_withHugeGapCost() {
     String identifier = "fooBar";
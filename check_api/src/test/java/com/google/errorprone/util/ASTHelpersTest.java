@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.VisitorState;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Name;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Set;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link ASTHelpers}Test */
+@RunWith(JUnit4.class)
+public class ASTHelpersTest {
+
+  private static final String SOURCE =
+      String.join(
+          "\n",
+          "interface I {",
+          "  void run();",
+          "}",
+          "interface J extends I {",
+          "  void run();",
+          "}",
+          "abstract class A {",
+          "  public abstract void run();",
+          "}",
+          "class B extends A implements J {",
+          "  public void run() {}",
+          "}",
+          "class C implements J {",
+          "  public void run() {}",
+          "}",
+          "@java.lang.annotation.Inherited @interface Inheritable {}",
+          "@interface NotInheritable {}",
+          "@Inheritable @NotInheritable class Base {",
+          "  @NotInheritable public void run() {}",
+          "}",
+          "class Middle extends Base {}",
+          "class Leaf extends Middle {}",
+          "@javax.annotation.processing.Generated(\"com.example.Generator\")",
+          "class GeneratedClass {}");
+
+  private JavacTaskImpl task;
+  private VisitorState state;
+
+  @Before
+  public void setUp() throws IOException {
+    JavaFileObject file =
+        new SimpleJavaFileObject(URI.create("file:///Test.java"), JavaFileObject.Kind.SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return SOURCE;
+          }
+        };
+    JavacTool tool = JavacTool.create();
+    task =
+        (JavacTaskImpl)
+            tool.getTask(
+                CharStreams.nullWriter(),
+                tool.getStandardFileManager(null, null, UTF_8),
+                null,
+                ImmutableList.of(),
+                null,
+                ImmutableList.of(file));
+    task.analyze();
+    state = VisitorState.createForUtilityPurposes(task.getContext());
+  }
+
+  @Test
+  public void findSuperMethods_repeated() {
+    MethodSymbol run = run("B");
+    Set<MethodSymbol> expected = ASTHelpers.findSuperMethods(run, state.getTypes());
+    assertThat(expected).containsExactly(run("A"), run("J"), run("I"));
+
+    Set<MethodSymbol> first = ASTHelpers.findSuperMethods(run, state);
+    assertThat(first).containsExactlyElementsIn(expected).inOrder();
+    // Callers may modify the result without changing later ones.
+    first.clear();
+    assertThat(ASTHelpers.findSuperMethods(run, state))
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+    assertThat(ASTHelpers.findSuperMethod(run, state)).hasValue(run("A"));
+    assertThat(ASTHelpers.findSuperMethod(run, state)).hasValue(run("A"));
+  }
+
+  @Test
+  public void findSuperMethods_interfacesOnly() {
+    MethodSymbol run = run("C");
+    Types types = state.getTypes();
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(ASTHelpers.findSuperMethods(run, state))
+          .containsExactlyElementsIn(ASTHelpers.findSuperMethods(run, types))
+          .inOrder();
+      assertThat(ASTHelpers.findSuperMethods(run, state)).containsExactly(run("J"), run("I"));
+      // Only the interface methods are known, but findSuperMethod skips interfaces.
+      assertThat(ASTHelpers.findSuperMethod(run, state)).isEmpty();
+      assertThat(ASTHelpers.findSuperMethod(run, types)).isEmpty();
+    }
+  }
+
+  @Test
+  public void hasAnnotation_direct() {
+    assertThat(ASTHelpers.hasAnnotation(classSymbol("Base"), "Inheritable", state)).isTrue();
+    assertThat(ASTHelpers.hasAnnotation(classSymbol("Base"), "NotInheritable", state)).isTrue();
+    assertThat(ASTHelpers.hasAnnotation(run("Base"), "NotInheritable", state)).isTrue();
+    assertThat(ASTHelpers.hasAnnotation(run("Base"), "Inheritable", state)).isFalse();
+    assertThat(ASTHelpers.hasAnnotation(classSymbol("A"), "Inheritable", state)).isFalse();
+  }
+
+  @Test
+  public void hasAnnotation_inheritedThroughSuperclasses() {
+    for (String className : ImmutableList.of("Middle", "Leaf")) {
+      assertThat(ASTHelpers.hasAnnotation(classSymbol(className), "Inheritable", state)).isTrue();
+      assertThat(ASTHelpers.hasAnnotation(classSymbol(className), "NotInheritable", state))
+          .isFalse();
+    }
+  }
+
+  @Test
+  public void annotationsAmong() {
+    ImmutableSet<Name> annotations =
+        ImmutableSet.of(state.getName("Inheritable"), state.getName("NotInheritable"));
+
+    assertThat(ASTHelpers.annotationsAmong(classSymbol("Base"), annotations, state))
+        .containsExactlyElementsIn(annotations);
+    assertThat(ASTHelpers.annotationsAmong(classSymbol("Leaf"), annotations, state))
+        .containsExactly(state.getName("Inheritable"));
+    assertThat(ASTHelpers.annotationsAmong(run("Base"), annotations, state))
+        .containsExactly(state.getName("NotInheritable"));
+    assertThat(ASTHelpers.annotationsAmong(classSymbol("C"), annotations, state)).isEmpty();
+  }
+
+  @Test
+  public void hasAnnotation_uncompletedClassFile() {
+    assertThat(
+            ASTHelpers.hasAnnotation(
+                uncompletedClass("java.util.function.IntSupplier"),
+                FunctionalInterface.class,
+                state))
+        .isTrue();
+    assertThat(
+            ASTHelpers.hasAnnotation(
+                uncompletedClass("java.util.function.LongSupplier"), Deprecated.class, state))
+        .isFalse();
+
+    Name functionalInterface = state.getName("java.lang.FunctionalInterface");
+    assertThat(
+            ASTHelpers.annotationsAmong(
+                uncompletedClass("java.util.function.DoubleSupplier"),
+                ImmutableSet.of(functionalInterface),
+                state))
+        .containsExactly(functionalInterface);
+  }
+
+  /**
+   * Returns a class read from a class file that hasn't been completed, so its annotations aren't
+   * known and can't be indexed yet.
+   */
+  private ClassSymbol uncompletedClass(String className) {
+    Symtab symtab = state.getSymtab();
+    ClassSymbol sym = symtab.enterClass(symtab.java_base, state.getName(className));
+    assertThat(sym.completer).isNotSameInstanceAs(Symbol.Completer.NULL_COMPLETER);
+    return sym;
+  }
+
+  @Test
+  public void getGeneratedBy() {
+    assertThat(ASTHelpers.getGeneratedBy(classSymbol("GeneratedClass"), state))
+        .containsExactly("com.example.Generator");
+    assertThat(ASTHelpers.getGeneratedBy(classSymbol("Base"), state)).isEmpty();
+    assertThat(ASTHelpers.getGeneratedBy(run("Base"), state)).isEmpty();
+  }
+
+  private ClassSymbol classSymbol(String className) {
+    return (ClassSymbol) task.getElements().getTypeElement(className);
+  }
+
+  /** Returns the {@code run} method of the class with the given name. */
+  private MethodSymbol run(String className) {
+    return (MethodSymbol)
+        getOnlyElement(
+            ElementFilter.methodsIn(
+                task.getElements().getTypeElement(className).getEnclosedElements()));
+  }
+}
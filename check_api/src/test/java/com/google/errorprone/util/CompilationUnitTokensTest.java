@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.util.Context;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link CompilationUnitTokens}Test */
+@RunWith(JUnit4.class)
+public class CompilationUnitTokensTest {
+
+  private static final String SOURCE =
+      Joiner.on('\n')
+          .join(
+              "/** Javadoc. */",
+              "class Test {",
+              "  // line comment",
+              "  java.util.Map<String, java.util.List<String>> f; /* trailing */",
+              "  int g(int x /* x */, int y) {",
+              "    return x + /* plus */ y;",
+              "  }",
+              "  String s = \"a // b /* c\"; char c = '/'; // x",
+              "}",
+              "// end");
+
+  private final Context context = createContext();
+
+  @Test
+  public void matchesRelexing_allRanges() {
+    CompilationUnitTokens tokens = CompilationUnitTokens.create(SOURCE, context);
+    for (int start = 0; start <= SOURCE.length(); start++) {
+      for (int end = start; end <= SOURCE.length(); end++) {
+        String text = SOURCE.substring(start, end);
+        ImmutableList<String> expected;
+        try {
+          expected = describe(ErrorProneTokens.getTokens(text, start, context));
+        } catch (RuntimeException e) {
+          // ranges that start or end inside a comment or literal may not be lexable on their own
+          continue;
+        }
+        assertThat(describe(tokens.getOffsetTokens(start, end))).isEqualTo(expected);
+        assertThat(describe(tokens.getTokens(start, end)))
+            .isEqualTo(describe(ErrorProneTokens.getTokens(text, context)));
+      }
+    }
+  }
+
+  @Test
+  public void rangeExcludesPrecedingComments() {
+    CompilationUnitTokens tokens = CompilationUnitTokens.create(SOURCE, context);
+    int start = SOURCE.indexOf("java.util.Map");
+    int end = SOURCE.indexOf(" f;");
+    assertThat(tokens.getOffsetTokens(start, end).stream().allMatch(t -> t.comments().isEmpty()))
+        .isTrue();
+  }
+
+  @Test
+  public void containsComments() {
+    CompilationUnitTokens tokens = CompilationUnitTokens.create(SOURCE, context);
+    int returnStart = SOURCE.indexOf("return");
+    int returnEnd = SOURCE.indexOf(';', returnStart) + 1;
+    assertThat(tokens.containsComments(returnStart, returnEnd)).isTrue();
+    int plusEnd = SOURCE.indexOf("/* plus */") + "/* plus */".length();
+    assertThat(tokens.containsComments(returnStart, plusEnd)).isTrue();
+    assertThat(tokens.containsComments(returnStart, plusEnd - 1)).isFalse();
+    int mapStart = SOURCE.indexOf("java.util.Map");
+    assertThat(tokens.containsComments(mapStart, SOURCE.indexOf(';', mapStart))).isFalse();
+    assertThat(tokens.containsComments(0, SOURCE.length())).isTrue();
+  }
+
+  private static ImmutableList<String> describe(List<ErrorProneToken> tokens) {
+    return tokens.stream()
+        .map(
+            t ->
+                String.format(
+                    "%s[%d, %d) %s",
+                    t.kind(),
+                    t.pos(),
+                    t.endPos(),
+                    t.comments().stream()
+                        .map(CompilationUnitTokensTest::describe)
+                        .collect(toImmutableList())))
+        .collect(toImmutableList());
+  }
+
+  private static String describe(Comment comment) {
+    return comment.getSourcePos(0) + ":" + comment.getText();
+  }
+
+  private static Context createContext() {
+    Context context = new Context();
+    new JavacFileManager(context, /* register= */ true, UTF_8);
+    return context;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link LineIndex}Test */
+@RunWith(JUnit4.class)
+public class LineIndexTest {
+
+  @Test
+  public void lines() {
+    LineIndex index = LineIndex.create("ab\ncd\r\nef\rgh");
+    assertThat(index.getLineCount()).isEqualTo(4);
+    assertThat(index.getLineStart(1)).isEqualTo(0);
+    assertThat(index.getLineEnd(1)).isEqualTo(2);
+    assertThat(index.getLineStart(2)).isEqualTo(3);
+    assertThat(index.getLineEnd(2)).isEqualTo(5);
+    assertThat(index.getLineStart(3)).isEqualTo(7);
+    assertThat(index.getLineEnd(3)).isEqualTo(9);
+    assertThat(index.getLineStart(4)).isEqualTo(10);
+    assertThat(index.getLineEnd(4)).isEqualTo(12);
+  }
+
+  @Test
+  public void lineAndColumnNumbers() {
+    String source = "ab\ncd\r\nef\rgh";
+    LineIndex index = LineIndex.create(source);
+    int[] lines = {1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 4, 4, 4};
+    int[] columns = {1, 2, 3, 1, 2, 3, 4, 1, 2, 3, 1, 2, 3};
+    for (int i = 0; i <= source.length(); i++) {
+      assertThat(index.getLineNumber(i)).isEqualTo(lines[i]);
+      assertThat(index.getColumnNumber(i)).isEqualTo(columns[i]);
+    }
+  }
+
+  @Test
+  public void trailingNewline() {
+    LineIndex index = LineIndex.create("a\n");
+    assertThat(index.getLineCount()).isEqualTo(2);
+    assertThat(index.getLineStart(2)).isEqualTo(2);
+    assertThat(index.getLineEnd(2)).isEqualTo(2);
+    assertThat(index.getLineNumber(2)).isEqualTo(2);
+  }
+
+  @Test
+  public void empty() {
+    LineIndex index = LineIndex.create("");
+    assertThat(index.getLineCount()).isEqualTo(1);
+    assertThat(index.getLineNumber(0)).isEqualTo(1);
+  }
+
+  @Test
+  public void manyLines() {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      source.append("line").append(i).append('\n');
+    }
+    LineIndex index = LineIndex.create(source);
+    assertThat(index.getLineCount()).isEqualTo(1001);
+    int position = source.indexOf("line500");
+    assertThat(index.getLineNumber(position)).isEqualTo(501);
+    assertThat(index.getLineStart(501)).isEqualTo(position);
+  }
+
+  @Test
+  public void outOfRange() {
+    LineIndex index = LineIndex.create("a\nb");
+    assertThrows(IndexOutOfBoundsException.class, () -> index.getLineNumber(4));
+    assertThrows(IndexOutOfBoundsException.class, () -> index.getLineStart(0));
+    assertThrows(IndexOutOfBoundsException.class, () -> index.getLineStart(3));
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.VisitorState;
@@ -47,6 +48,11 @@ public class AssertThrowsMultipleStatements extends BugChecker
   private static final Matcher<ExpressionTree> MATCHER =
       staticMethod().onClass("org.junit.Assert").named("assertThrows");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
@@ -20,6 +20,7 @@ import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -66,6 +67,11 @@ public class ClassNewInstance extends BugChecker implements MethodInvocationTree
   private static final Matcher<ExpressionTree> NEW_INSTANCE =
       instanceMethod().onExactClass(Class.class.getName()).named("newInstance");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(NEW_INSTANCE);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!NEW_INSTANCE.matches(tree, state)) {
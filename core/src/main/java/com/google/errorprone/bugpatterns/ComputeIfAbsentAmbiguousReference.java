@@ -52,6 +52,11 @@ public final class ComputeIfAbsentAmbiguousReference extends BugChecker
   private static final Matcher<ExpressionTree> COMPUTE_IF_ABSENT =
       instanceMethod().onDescendantOf("java.util.Map").named("computeIfAbsent");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(COMPUTE_IF_ABSENT);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!COMPUTE_IF_ABSENT.matches(tree, state)) {
@@ -159,7 +159,7 @@ public class DoNotCallChecker extends BugChecker
                   .orElse(SuggestedFix.emptyFix()))
           .build();
     }
-    return findSuperMethods(symbol, state.getTypes()).stream()
+    return findSuperMethods(symbol, state).stream()
         .filter(s -> hasAnnotation(s, DO_NOT_CALL, state))
         .findAny()
         .map(
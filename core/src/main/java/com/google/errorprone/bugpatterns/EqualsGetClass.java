@@ -27,6 +27,7 @@ import static com.google.errorprone.util.ASTHelpers.getReceiver;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 import static com.google.errorprone.util.ASTHelpers.getSymbol;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.StandardTags;
 import com.google.errorprone.VisitorState;
@@ -71,6 +72,11 @@ public final class EqualsGetClass extends BugChecker implements MethodInvocation
   private static final Matcher<ExpressionTree> GET_CLASS =
       instanceMethod().onDescendantOf("java.lang.Object").named("getClass");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(GET_CLASS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!GET_CLASS.matches(tree, state)) {
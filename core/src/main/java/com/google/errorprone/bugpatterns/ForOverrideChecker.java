@@ -199,7 +199,7 @@ public class ForOverrideChecker extends BugChecker
           "getOverriddenMethods may not be called on a static method");
     }
 
-    return concat(Stream.of(method), findSuperMethods(method, state.getTypes()).stream())
+    return concat(Stream.of(method), findSuperMethods(method, state).stream())
         .filter(member -> hasAnnotation(member, FOR_OVERRIDE, state))
         .collect(toImmutableList());
   }
@@ -23,6 +23,7 @@ import static com.google.errorprone.matchers.method.MethodMatchers.instanceMetho
 import static com.google.errorprone.util.ASTHelpers.getReceiver;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
@@ -58,6 +59,11 @@ public final class LockNotBeforeTry extends BugChecker implements MethodInvocati
   private static final Matcher<ExpressionTree> UNLOCK =
       instanceMethod().onDescendantOf("java.util.concurrent.locks.Lock").named("unlock");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(LOCK);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!LOCK.matches(tree, state)) {
@@ -97,7 +97,7 @@ public final class MemberName extends BugChecker implements MethodTreeMatcher, V
     if (hasAnnotation(symbol, "org.junit.Ignore", state)) {
       return NO_MATCH;
     }
-    if (!findSuperMethods(symbol, state.getTypes()).isEmpty()) {
+    if (!findSuperMethods(symbol, state).isEmpty()) {
       return NO_MATCH;
     }
     if (tree.getModifiers().getFlags().contains(Modifier.NATIVE)) {
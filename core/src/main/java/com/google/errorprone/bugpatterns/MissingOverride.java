@@ -59,7 +59,7 @@ public class MissingOverride extends BugChecker implements MethodTreeMatcher {
     if (ignoreInterfaceOverrides && sym.enclClass().isInterface()) {
       return NO_MATCH;
     }
-    return findSuperMethods(sym, state.getTypes()).stream()
+    return findSuperMethods(sym, state).stream()
         .findFirst()
         .filter(unused -> ASTHelpers.getGeneratedBy(state).isEmpty())
         // to allow deprecated methods to be removed non-atomically, we permit overrides of
@@ -266,7 +266,7 @@ public final class PreferredInterfaceType extends BugChecker implements Compilat
             ? IMMUTABLE_MESSAGE
             : NON_IMMUTABLE_MESSAGE;
     if (symbol instanceof MethodSymbol) {
-      if (!findSuperMethods((MethodSymbol) symbol, state.getTypes()).isEmpty()) {
+      if (!findSuperMethods((MethodSymbol) symbol, state).isEmpty()) {
         return "Method return" + messageBase + OVERRIDE_NOTE;
       } else {
         return "Method return" + messageBase;
@@ -22,6 +22,7 @@ import static com.google.errorprone.matchers.method.MethodMatchers.instanceMetho
 import static com.google.errorprone.util.ASTHelpers.getReceiver;
 import static com.google.errorprone.util.ASTHelpers.getType;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
@@ -47,6 +48,11 @@ public final class PrimitiveAtomicReference extends BugChecker
           .onDescendantOf("java.util.concurrent.atomic.AtomicReference")
           .namedAnyOf("compareAndSet", "weakCompareAndSet");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+    return ImmutableList.of(COMPARE_AND_SET);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!COMPARE_AND_SET.matches(tree, state)) {
@@ -58,7 +58,7 @@ public final class RedundantOverride extends BugChecker implements MethodTreeMat
   @Override
   public Description matchMethod(MethodTree tree, VisitorState state) {
     MethodSymbol methodSymbol = getSymbol(tree);
-    Optional<MethodSymbol> maybeSuperMethod = findSuperMethod(methodSymbol, state.getTypes());
+    Optional<MethodSymbol> maybeSuperMethod = findSuperMethod(methodSymbol, state);
     if (!maybeSuperMethod.isPresent()) {
       return NO_MATCH;
     }
@@ -190,7 +190,7 @@ public class RestrictedApiChecker extends BugChecker
 
     // Try each super method for @RestrictedApi
     Optional<MethodSymbol> superWithRestrictedApi =
-        ASTHelpers.findSuperMethods(method, state.getTypes()).stream()
+        ASTHelpers.findSuperMethods(method, state).stream()
             .filter((t) -> ASTHelpers.hasAnnotation(t, RestrictedApi.class, state))
             .findFirst();
     if (!superWithRestrictedApi.isPresent()) {
@@ -66,7 +66,7 @@ public final class RxReturnValueIgnored extends AbstractReturnValueIgnored {
     // if the super-type returned the exact same type. This lets us catch issues where a
     // superclass was annotated with @CanIgnoreReturnValue but the parent did not intend to
     // return an Rx type
-    return ASTHelpers.findSuperMethods(sym, state.getTypes()).stream()
+    return ASTHelpers.findSuperMethods(sym, state).stream()
         .anyMatch(
             superSym ->
                 hasAnnotation(superSym, CanIgnoreReturnValue.class, state)
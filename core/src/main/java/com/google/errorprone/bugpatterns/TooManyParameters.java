@@ -105,7 +105,7 @@ public class TooManyParameters extends BugChecker implements MethodTreeMatcher {
       return false;
     }
     // don't match overrides (even "effective overrides")
-    if (!findSuperMethods(getSymbol(tree), state.getTypes()).isEmpty()) {
+    if (!findSuperMethods(getSymbol(tree), state).isEmpty()) {
       return false;
     }
     return true;
@@ -105,8 +105,7 @@ class CreatesDuplicateCallHeuristic implements Heuristic {
         addToResult(methodSymbol, methodTree);
 
         // if any supermethod of the one declared here is the one we are calling then add it
-        for (MethodSymbol superSymbol :
-            ASTHelpers.findSuperMethods(methodSymbol, state.getTypes())) {
+        for (MethodSymbol superSymbol : ASTHelpers.findSuperMethods(methodSymbol, state)) {
           addToResult(superSymbol, methodTree);
         }
         return super.visitMethod(methodTree, unused);
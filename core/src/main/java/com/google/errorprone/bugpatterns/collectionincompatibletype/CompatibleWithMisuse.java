@@ -71,8 +71,7 @@ public class CompatibleWithMisuse extends BugChecker implements AnnotationTreeMa
 
     // If this method overrides other methods, ensure that none of them have @CompatibleWith.
     // This restriction may need to be removed to allow more complex declaration hierarchies.
-    for (MethodSymbol methodSymbol :
-        ASTHelpers.findSuperMethods(declaredMethod, state.getTypes())) {
+    for (MethodSymbol methodSymbol : ASTHelpers.findSuperMethods(declaredMethod, state)) {
       if (methodSymbol.params().stream()
           .anyMatch(p -> ASTHelpers.hasAnnotation(p, CompatibleWith.class, state))) {
         return describeWithMessage(
@@ -19,12 +19,12 @@ package com.google.errorprone.bugpatterns.inlineme;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.MoreCollectors.onlyElement;
 import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
+import static com.google.errorprone.util.ASTHelpers.containsComments;
 import static com.google.errorprone.util.ASTHelpers.enclosingPackage;
 import static com.google.errorprone.util.ASTHelpers.getReceiver;
 import static com.google.errorprone.util.ASTHelpers.getSymbol;
 import static com.google.errorprone.util.ASTHelpers.hasAnnotation;
 import static com.google.errorprone.util.ASTHelpers.hasDirectAnnotationWithSimpleName;
-import static com.google.errorprone.util.ASTHelpers.stringContainsComments;
 import static com.google.errorprone.util.MoreAnnotations.getValue;
 import static com.google.errorprone.util.SideEffectAnalysis.hasSideEffect;
 
@@ -157,8 +157,7 @@ public final class Inliner extends BugChecker
       return Description.NO_MATCH;
     }
 
-    if (skipCallsitesWithComments
-        && stringContainsComments(state.getSourceForNode(tree), state.context)) {
+    if (skipCallsitesWithComments && containsComments(tree, state)) {
       return Description.NO_MATCH;
     }
 
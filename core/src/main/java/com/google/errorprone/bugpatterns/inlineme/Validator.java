@@ -88,7 +88,7 @@ public final class Validator extends BugChecker implements MethodTreeMatcher {
     // usages of the API before unilaterally deleting it.
     return hasDirectAnnotationWithSimpleName(symbol, "InlineMe")
         && !hasAnnotation(symbol, "java.lang.Override", state)
-        && findSuperMethods(symbol, state.getTypes()).isEmpty();
+        && findSuperMethods(symbol, state).isEmpty();
   }
 
   private Description match(InlineMeData existingAnnotation, MethodTree tree, VisitorState state) {
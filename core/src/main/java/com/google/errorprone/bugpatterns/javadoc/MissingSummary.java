@@ -195,7 +195,7 @@ public final class MissingSummary extends BugChecker
     }
     Symbol symbol = getSymbol(tree);
     if (symbol instanceof MethodSymbol
-        && !findSuperMethods((MethodSymbol) symbol, state.getTypes()).isEmpty()) {
+        && !findSuperMethods((MethodSymbol) symbol, state).isEmpty()) {
       return false;
     }
     return symbol != null
@@ -43,7 +43,10 @@ final class Utils {
     String bestMatch = null;
     int minDistance = Integer.MAX_VALUE;
     for (String choice : choices) {
-      int distance = getEditDistance(to, choice);
+      // Only distances below both bounds are of interest, so let the comparison give up early.
+      int distance =
+          getEditDistance(
+              to, choice, /* caseSensitive= */ true, Math.min(minDistance, maxEditDistance) - 1);
       if (distance < minDistance && distance < maxEditDistance) {
         bestMatch = choice;
         minDistance = distance;
@@ -21,17 +21,22 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
  * A type-safe map from objects of type {@code Bindings.Key<V>}, which consist of a {@code String}
  * key and a {@code Bindings.Key} subclass, to values of type {@code V}.
  *
+ * <p>Copies share their contents with the original until either one is modified, so forking a
+ * {@link Unifier} for each alternative it explores doesn't copy its bindings unless the alternative
+ * binds something.
+ *
  * @author Louis Wasserman
  */
 public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
@@ -40,6 +45,16 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
    * {@code V} type.
    */
   public abstract static class Key<V> {
+    private static final ClassValue<Class<?>> RAW_VALUE_TYPES =
+        new ClassValue<Class<?>>() {
+          @Override
+          protected Class<?> computeValue(Class<?> keyClass) {
+            return TypeToken.of(keyClass)
+                .resolveType(Key.class.getTypeParameters()[0])
+                .getRawType();
+          }
+        };
+
     private final String identifier;
 
     protected Key(String identifier) {
@@ -54,6 +69,11 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
       return new TypeToken<V>(getClass()) {};
     }
 
+    /** Returns the raw type of {@link #getValueType}, which is computed once per key class. */
+    Class<?> getRawValueType() {
+      return RAW_VALUE_TYPES.get(getClass());
+    }
+
     @Override
     public int hashCode() {
       return Objects.hashCode(getClass(), identifier);
@@ -76,7 +96,13 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
     }
   }
 
-  private final Map<Key<?>, Object> contents;
+  private Map<Key<?>, Object> contents;
+
+  /** Whether {@link #contents} may be shared with another {@code Bindings}, and must be copied. */
+  private boolean shared;
+
+  /** Whether {@link #contents} is a view of a map that may change, and can't be shared. */
+  private final boolean view;
 
   public static Bindings create() {
     return new Bindings();
@@ -104,11 +130,23 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   }
 
   Bindings(Bindings bindings) {
-    this(Maps.newHashMap(bindings.contents));
+    if (bindings.view) {
+      this.contents = new HashMap<>(bindings.contents);
+    } else {
+      this.contents = bindings.contents;
+      this.shared = true;
+      bindings.shared = true;
+    }
+    this.view = false;
   }
 
   private Bindings(Map<Key<?>, Object> contents) {
+    this(contents, /* view= */ false);
+  }
+
+  private Bindings(Map<Key<?>, Object> contents, boolean view) {
     this.contents = contents;
+    this.view = view;
   }
 
   @Override
@@ -116,6 +154,15 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
     return contents;
   }
 
+  /** Returns the contents of this {@code Bindings}, copying them first if they are shared. */
+  private Map<Key<?>, Object> mutableContents() {
+    if (shared) {
+      contents = new HashMap<>(contents);
+      shared = false;
+    }
+    return contents;
+  }
+
   @SuppressWarnings("unchecked")
   public <V> V getBinding(Key<V> key) {
     checkNotNull(key);
@@ -125,14 +172,39 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   @SuppressWarnings("unchecked")
   public <V> V putBinding(Key<V> key, V value) {
     checkNotNull(value);
-    return (V) super.put(key, value);
+    return (V) mutableContents().put(key, value);
   }
 
   @Override
   public Object put(Key<?> key, Object value) {
     checkNotNull(key, "key");
     checkNotNull(value, "value");
-    return super.put(key, key.getValueType().getRawType().cast(value));
+    return mutableContents().put(key, key.getRawValueType().cast(value));
+  }
+
+  @Override
+  public Object remove(Object key) {
+    return mutableContents().remove(key);
+  }
+
+  @Override
+  public void clear() {
+    mutableContents().clear();
+  }
+
+  @Override
+  public Set<Key<?>> keySet() {
+    return Collections.unmodifiableSet(contents.keySet());
+  }
+
+  @Override
+  public Collection<Object> values() {
+    return Collections.unmodifiableCollection(contents.values());
+  }
+
+  @Override
+  public Set<Entry<Key<?>, Object>> entrySet() {
+    return Collections.unmodifiableSet(contents.entrySet());
   }
 
   @Override
@@ -141,6 +213,6 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   }
 
   public Bindings unmodifiable() {
-    return new Bindings(Collections.unmodifiableMap(contents));
+    return new Bindings(Collections.unmodifiableMap(this), /* view= */ true);
   }
 }
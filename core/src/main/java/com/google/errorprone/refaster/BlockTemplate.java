@@ -137,9 +137,8 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
                   new BlockTemplateMatch(
                       block, checkedUnifier.get(), offset, offset + consumedStatements);
               boolean verified =
-                  ExpressionTemplate.trueOrNull(
-                      ExpressionTemplate.PLACEHOLDER_VERIFIER.scan(
-                          templateStatements(), checkedUnifier.get()));
+                  ExpressionTemplate.verifyPlaceholders(
+                      templateStatements(), checkedUnifier.get());
               if (!verified) {
                 return Choice.none();
               }
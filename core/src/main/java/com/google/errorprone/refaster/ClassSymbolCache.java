@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableSet;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * The classes named by Refaster templates, resolved once per javac invocation.
+ *
+ * <p>Besides saving the lookups of {@link Inliner#resolveClass} on every match, this tells which
+ * before templates name a class that isn't on the classpath. No tree in the compilation can have
+ * such a class as its type, or refer to it, so those templates are never unified.
+ */
+final class ClassSymbolCache {
+  private static final Context.Key<ClassSymbolCache> KEY = new Context.Key<>();
+
+  /**
+   * Returns the cache for the javac invocation of the given context, creating it if necessary. It
+   * should be created in a context that lives as long as the invocation, not in a per-file one.
+   */
+  static ClassSymbolCache instance(Context context) {
+    ClassSymbolCache instance = context.get(KEY);
+    if (instance == null) {
+      instance = new ClassSymbolCache(context);
+      context.put(KEY, instance);
+    }
+    return instance;
+  }
+
+  /** Returns the cache in the given context, or null if none has been created. */
+  @Nullable
+  static ClassSymbolCache get(Context context) {
+    return context.get(KEY);
+  }
+
+  private final JavaCompiler compiler;
+  private final Symtab symtab;
+  private final Map<String, Optional<ClassSymbol>> classes = new HashMap<>();
+  // Keyed by identity, since templates are deeply compared and the same instances are reused.
+  private final Map<Template<?>, Boolean> resolvable = new IdentityHashMap<>();
+
+  private ClassSymbolCache(Context context) {
+    this.compiler = JavaCompiler.instance(context);
+    this.symtab = Symtab.instance(context);
+  }
+
+  /** Returns the class with the given name, or empty if it isn't on the classpath. */
+  Optional<ClassSymbol> resolve(CharSequence qualifiedClass) {
+    return classes.computeIfAbsent(qualifiedClass.toString(), this::lookUp);
+  }
+
+  private Optional<ClassSymbol> lookUp(String qualifiedClass) {
+    try {
+      Symbol symbol = compiler.resolveBinaryNameOrIdent(qualifiedClass);
+      return symbol.equals(symtab.errSymbol) || !(symbol instanceof ClassSymbol)
+          ? Optional.empty()
+          : Optional.of((ClassSymbol) symbol);
+    } catch (NullPointerException e) {
+      return Optional.empty();
+    }
+  }
+
+  /** Returns true if every class that the given before template requires is on the classpath. */
+  boolean canResolveRequiredClasses(Template<?> template) {
+    Boolean result = resolvable.get(template);
+    if (result == null) {
+      result = requiredClasses(template).stream().allMatch(c -> resolve(c).isPresent());
+      resolvable.put(template, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the classes that any tree matching the given template must refer to: those named by
+   * the template's parameter and return types, and by its trees outside of {@code
+   * Refaster.anyOf}, where each alternative only needs to match on its own.
+   */
+  static ImmutableSet<String> requiredClasses(Template<?> template) {
+    ImmutableSet.Builder<String> classes = ImmutableSet.builder();
+    for (UType type : template.expressionArgumentTypes().values()) {
+      addClasses(type, classes);
+    }
+    TreeScanner<Void, Void> scanner =
+        new TreeScanner<Void, Void>() {
+          @Override
+          public Void scan(Tree tree, Void v) {
+            if (tree instanceof UAnyOf) {
+              return null;
+            }
+            if (tree instanceof UClassIdent) {
+              classes.add(((UClassIdent) tree).getName().contents());
+            } else if (tree instanceof UStaticIdent) {
+              classes.add(((UStaticIdent) tree).classIdent().getName().contents());
+            }
+            return super.scan(tree, v);
+          }
+        };
+    if (template instanceof ExpressionTemplate) {
+      ExpressionTemplate expressionTemplate = (ExpressionTemplate) template;
+      addClasses(expressionTemplate.returnType(), classes);
+      scanner.scan(expressionTemplate.expression(), null);
+    } else if (template instanceof BlockTemplate) {
+      scanner.scan(((BlockTemplate) template).templateStatements(), null);
+    }
+    return classes.build();
+  }
+
+  private static void addClasses(UType type, ImmutableSet.Builder<String> classes) {
+    if (type instanceof UClassType) {
+      UClassType classType = (UClassType) type;
+      classes.add(classType.fullyQualifiedClass().contents());
+      for (UType typeArgument : classType.typeArguments()) {
+        addClasses(typeArgument, classes);
+      }
+    } else if (type instanceof UArrayType) {
+      addClasses(((UArrayType) type).componentType(), classes);
+    } else if (type instanceof UWildcardType) {
+      addClasses(((UWildcardType) type).bound(), classes);
+    }
+  }
+}
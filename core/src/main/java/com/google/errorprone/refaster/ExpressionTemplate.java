@@ -23,6 +23,7 @@ import static java.util.logging.Level.SEVERE;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -123,7 +124,7 @@ public abstract class ExpressionTemplate extends Template<ExpressionTemplateMatc
   /** Returns the matches of this template against the specified target AST. */
   @Override
   public Iterable<ExpressionTemplateMatch> match(JCTree target, Context context) {
-    if (target instanceof JCExpression) {
+    if (couldMatch(target)) {
       JCExpression targetExpr = (JCExpression) target;
       Optional<Unifier> unifier = unify(targetExpr, new Unifier(context)).first();
       if (unifier.isPresent()) {
@@ -133,6 +134,11 @@ public abstract class ExpressionTemplate extends Template<ExpressionTemplateMatc
     return ImmutableList.of();
   }
 
+  @Override
+  boolean couldMatch(JCTree target) {
+    return target instanceof JCExpression && expression().couldUnify(target);
+  }
+
   static boolean trueOrNull(@Nullable Boolean b) {
     return b == null || b;
   }
@@ -161,11 +167,28 @@ public abstract class ExpressionTemplate extends Template<ExpressionTemplateMatc
         }
       };
 
+  /**
+   * Runs {@link #PLACEHOLDER_VERIFIER} over the given template trees, timing it if the template is
+   * being profiled.
+   */
+  static boolean verifyPlaceholders(Iterable<? extends Tree> templateTrees, Unifier unifier) {
+    Stopwatch timer = TemplateProfile.verifyTimer(unifier.getContext());
+    if (timer == null) {
+      return trueOrNull(PLACEHOLDER_VERIFIER.scan(templateTrees, unifier));
+    }
+    timer.start();
+    try {
+      return trueOrNull(PLACEHOLDER_VERIFIER.scan(templateTrees, unifier));
+    } finally {
+      timer.stop();
+    }
+  }
+
   @Override
   public Choice<Unifier> unify(JCExpression target, Unifier unifier) {
     return expression()
         .unify(target, unifier)
-        .condition(u -> trueOrNull(PLACEHOLDER_VERIFIER.scan(expression(), u)))
+        .condition(u -> verifyPlaceholders(ImmutableList.of(expression()), u))
         .thenOption(
             new Function<Unifier, Optional<Unifier>>() {
 
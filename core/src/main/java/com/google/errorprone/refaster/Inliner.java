@@ -82,6 +82,12 @@ public final class Inliner {
 
   public ClassSymbol resolveClass(CharSequence qualifiedClass)
       throws CouldNotResolveImportException {
+    ClassSymbolCache cache = ClassSymbolCache.get(context);
+    if (cache != null) {
+      return cache
+          .resolve(qualifiedClass)
+          .orElseThrow(() -> new CouldNotResolveImportException(qualifiedClass));
+    }
     try {
       Symbol symbol =
           JavaCompiler.instance(context).resolveBinaryNameOrIdent(qualifiedClass.toString());
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.lang.annotation.Annotation;
+
+/**
+ * A {@link RefasterRule} whose templates are only loaded when they are first needed.
+ *
+ * <p>The name of the rule, and the index keys and required identifiers of its before templates, are
+ * available up front, which is all a {@link RefasterEngine} needs until it finds a tree the rule
+ * could match.
+ */
+final class LazyRefasterRule<M extends TemplateMatch, T extends Template<M>>
+    extends RefasterRule<M, T> {
+  private final String qualifiedTemplateClass;
+  private final ImmutableList<TemplateIndex.Key> beforeTemplateKeys;
+  private final ImmutableList<ImmutableSet<String>> beforeTemplateIdentifiers;
+  private final transient Supplier<RefasterRule<M, T>> rule;
+
+  LazyRefasterRule(
+      String qualifiedTemplateClass,
+      ImmutableList<TemplateIndex.Key> beforeTemplateKeys,
+      ImmutableList<ImmutableSet<String>> beforeTemplateIdentifiers,
+      Supplier<RefasterRule<M, T>> rule) {
+    this.qualifiedTemplateClass = qualifiedTemplateClass;
+    this.beforeTemplateKeys = beforeTemplateKeys;
+    this.beforeTemplateIdentifiers = beforeTemplateIdentifiers;
+    this.rule = Suppliers.memoize(rule);
+  }
+
+  @Override
+  String qualifiedTemplateClass() {
+    return qualifiedTemplateClass;
+  }
+
+  @Override
+  ImmutableList<TemplateIndex.Key> beforeTemplateKeys() {
+    return beforeTemplateKeys;
+  }
+
+  @Override
+  ImmutableList<ImmutableSet<String>> beforeTemplateIdentifiers() {
+    return beforeTemplateIdentifiers;
+  }
+
+  @Override
+  ImmutableList<UTypeVar> typeVariables() {
+    return rule.get().typeVariables();
+  }
+
+  @Override
+  ImmutableList<T> beforeTemplates() {
+    return rule.get().beforeTemplates();
+  }
+
+  @Override
+  ImmutableList<String> beforeTemplateNames() {
+    return rule.get().beforeTemplateNames();
+  }
+
+  @Override
+  ImmutableList<T> afterTemplates() {
+    return rule.get().afterTemplates();
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return rule.get().annotations();
+  }
+
+  /** Serializes the loaded rule in place of this one. */
+  private Object writeReplace() {
+    return rule.get();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneTimings;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Applies a set of Refaster rules in a single pass over each compilation unit.
+ *
+ * <p>Composing rules with {@link CompositeCodeTransformer} scans the compilation unit once per
+ * rule. The engine instead scans it once, attempting only the before templates that could match
+ * each node, and shares the per-file setup and suppression checks between all of the rules.
+ * Matches are reported under the name of the rule that produced them, and in the same order as if
+ * each rule had been applied on its own, one after the other. When fixes overlap, the fix of the
+ * earlier rule is applied, as it would be with a composite.
+ */
+@AutoValue
+public abstract class RefasterEngine implements CodeTransformer, Serializable {
+
+  /**
+   * Returns a transformer that applies all of the given transformers. Refaster rules, including
+   * those in {@link CompositeCodeTransformer}s, are applied together by a single engine; any other
+   * transformers are applied after it.
+   */
+  public static CodeTransformer create(Iterable<? extends CodeTransformer> transformers) {
+    List<RefasterRule<?, ?>> rules = new ArrayList<>();
+    List<CodeTransformer> others = new ArrayList<>();
+    flatten(transformers, rules, others);
+    if (others.isEmpty()) {
+      return forRules(ImmutableList.copyOf(rules));
+    }
+    if (!rules.isEmpty()) {
+      others.add(0, forRules(ImmutableList.copyOf(rules)));
+    }
+    return CompositeCodeTransformer.compose(others);
+  }
+
+  static RefasterEngine forRules(ImmutableList<RefasterRule<?, ?>> rules) {
+    return new AutoValue_RefasterEngine(rules);
+  }
+
+  private static void flatten(
+      Iterable<? extends CodeTransformer> transformers,
+      List<RefasterRule<?, ?>> rules,
+      List<CodeTransformer> others) {
+    for (CodeTransformer transformer : transformers) {
+      if (transformer instanceof RefasterRule) {
+        rules.add((RefasterRule<?, ?>) transformer);
+      } else if (transformer instanceof RefasterEngine) {
+        rules.addAll(((RefasterEngine) transformer).rules());
+      } else if (transformer instanceof CompositeCodeTransformer) {
+        flatten(((CompositeCodeTransformer) transformer).transformers(), rules, others);
+      } else {
+        others.add(transformer);
+      }
+    }
+  }
+
+  RefasterEngine() {}
+
+  abstract ImmutableList<RefasterRule<?, ?>> rules();
+
+  // An index of the before templates of all of the rules, built on first use.
+  @Nullable private transient volatile TemplateIndex<RuleTemplate> templateIndex;
+
+  /** Returns an index of the before templates of every rule, with the rule each belongs to. */
+  TemplateIndex<RuleTemplate> templateIndex() {
+    TemplateIndex<RuleTemplate> index = templateIndex;
+    if (index == null) {
+      TemplateIndex.Builder<RuleTemplate> builder = TemplateIndex.builder();
+      for (int i = 0; i < rules().size(); i++) {
+        ImmutableList<TemplateIndex.Key> keys = rules().get(i).beforeTemplateKeys();
+        for (int j = 0; j < keys.size(); j++) {
+          builder.add(keys.get(j), new RuleTemplate(i, j));
+        }
+      }
+      index = builder.build();
+      templateIndex = index;
+    }
+    return index;
+  }
+
+  @Override
+  public void apply(TreePath path, Context context, DescriptionListener listener) {
+    // Look up the timings and resolved classes before creating the file's context, so they
+    // outlive it.
+    ErrorProneTimings timings = ErrorProneTimings.instance(context);
+    ClassSymbolCache classes = ClassSymbolCache.instance(context);
+    Context fileContext =
+        RefasterRule.prepareContext(context, (JCCompilationUnit) path.getCompilationUnit());
+    RefasterScanner scanner = new RefasterScanner(this, fileContext, timings, classes, listener);
+    scanner.scan(path.getLeaf(), fileContext);
+    scanner.reportMatches();
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.of();
+  }
+
+  /**
+   * The index in {@link #rules} of a rule, and the index of one of its before templates. The
+   * templates are only looked up when they are matched, so rules that are loaded lazily aren't
+   * loaded until a tree they could match is found.
+   */
+  static final class RuleTemplate {
+    final int rule;
+    final int template;
+
+    RuleTemplate(int rule, int template) {
+      this.rule = rule;
+      this.template = template;
+    }
+  }
+}
@@ -18,29 +18,36 @@ package com.google.errorprone.refaster;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.errorprone.CodeTransformer;
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.SubContext;
+import com.google.errorprone.util.CompilationUnitTokens;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Symbol.PackageSymbol;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileManager;
 
 /**
@@ -72,7 +79,36 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
       Collection<? extends Template<?>> beforeTemplates,
       Collection<? extends Template<?>> afterTemplates,
       ImmutableClassToInstanceMap<Annotation> annotations) {
+    ImmutableList.Builder<String> beforeTemplateNames = ImmutableList.builder();
+    for (int i = 0; i < beforeTemplates.size(); i++) {
+      beforeTemplateNames.add("before" + i);
+    }
+    return create(
+        qualifiedTemplateClass,
+        typeVariables,
+        beforeTemplates,
+        beforeTemplateNames.build(),
+        afterTemplates,
+        annotations);
+  }
+
+  /**
+   * Creates a rule whose before templates are reported under the given names, which are usually
+   * the names of the template methods.
+   */
+  public static RefasterRule<?, ?> create(
+      String qualifiedTemplateClass,
+      Iterable<UTypeVar> typeVariables,
+      Collection<? extends Template<?>> beforeTemplates,
+      List<String> beforeTemplateNames,
+      Collection<? extends Template<?>> afterTemplates,
+      ImmutableClassToInstanceMap<Annotation> annotations) {
 
+    checkArgument(
+        beforeTemplateNames.size() == beforeTemplates.size(),
+        "Expected a name for each @BeforeTemplate in %s, but got %s",
+        qualifiedTemplateClass,
+        beforeTemplateNames);
     checkState(
         !beforeTemplates.isEmpty(),
         "No @BeforeTemplate was found in the specified class: %s",
@@ -115,6 +151,7 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
             qualifiedTemplateClass,
             ImmutableList.copyOf(typeVariables),
             ImmutableList.copyOf(beforeTemplates),
+            ImmutableList.copyOf(beforeTemplateNames),
             ImmutableList.copyOf(afterTemplates),
             annotations);
     return result;
@@ -128,16 +165,38 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
 
   abstract ImmutableList<T> beforeTemplates();
 
+  /** The name of each of the {@link #beforeTemplates}, under which it is profiled. */
+  abstract ImmutableList<String> beforeTemplateNames();
+
   abstract ImmutableList<T> afterTemplates();
 
+  /** Returns the keys under which each of the {@link #beforeTemplates} is indexed. */
+  ImmutableList<TemplateIndex.Key> beforeTemplateKeys() {
+    return beforeTemplates().stream().map(TemplateIndex.Key::of).collect(toImmutableList());
+  }
+
+  /**
+   * Returns the identifiers that a compilation unit must contain for each of the {@link
+   * #beforeTemplates} to match anything in it.
+   */
+  ImmutableList<ImmutableSet<String>> beforeTemplateIdentifiers() {
+    return beforeTemplates().stream().map(RequiredIdentifiers::of).collect(toImmutableList());
+  }
+
+  // An engine that applies just this rule, created on first use.
+  @Nullable private transient volatile RefasterEngine engine;
+
   @Override
   public abstract ImmutableClassToInstanceMap<Annotation> annotations();
 
   @Override
   public void apply(TreePath path, Context context, DescriptionListener listener) {
-    RefasterScanner.create(this, listener)
-        .scan(
-            path.getLeaf(), prepareContext(context, (JCCompilationUnit) path.getCompilationUnit()));
+    RefasterEngine engine = this.engine;
+    if (engine == null) {
+      engine = RefasterEngine.forRules(ImmutableList.of(this));
+      this.engine = engine;
+    }
+    engine.apply(path, context, listener);
   }
 
   boolean rejectMatchesWithComments() {
@@ -146,17 +205,37 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
 
   static final Context.Key<ImmutableList<UTypeVar>> RULE_TYPE_VARS = new Context.Key<>();
 
-  private Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
+  /** The tokens of the compilation unit being scanned, lexed on first use. */
+  static final Context.Key<Supplier<CompilationUnitTokens>> COMPILATION_UNIT_TOKENS =
+      new Context.Key<>();
+
+  /**
+   * Returns a context for matching rules against the given compilation unit. Rules with type
+   * variables must be matched in a sub-context that also holds {@link #RULE_TYPE_VARS}.
+   */
+  static Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
     Context context = new SubContext(baseContext);
     if (context.get(JavaFileManager.class) == null) {
       JavacFileManager.preRegister(context);
     }
     context.put(JCCompilationUnit.class, compilationUnit);
     context.put(PackageSymbol.class, compilationUnit.packge);
-    context.put(RULE_TYPE_VARS, typeVariables());
+    context.put(
+        COMPILATION_UNIT_TOKENS,
+        Suppliers.memoize(() -> compilationUnitTokens(compilationUnit, baseContext)));
     return context;
   }
 
+  private static CompilationUnitTokens compilationUnitTokens(
+      JCCompilationUnit compilationUnit, Context context) {
+    try {
+      return CompilationUnitTokens.create(
+          compilationUnit.getSourceFile().getCharContent(true).toString(), context);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @VisibleForTesting
   static String fromSecondLevel(String qualifiedTemplateClass) {
     List<String> path = Splitter.on('.').splitToList(qualifiedTemplateClass);
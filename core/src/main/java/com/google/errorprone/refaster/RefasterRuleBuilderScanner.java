@@ -65,6 +65,7 @@ public final class RefasterRuleBuilderScanner extends SimpleTreeVisitor<Void, Vo
   private final Context context;
   private final Map<MethodSymbol, PlaceholderMethod> placeholderMethods;
   private final List<Template<?>> beforeTemplates;
+  private final List<String> beforeTemplateNames;
   private final List<Template<?>> afterTemplates;
 
   private RefasterRuleBuilderScanner(Context context) {
@@ -77,6 +78,7 @@ public final class RefasterRuleBuilderScanner extends SimpleTreeVisitor<Void, Vo
     }
 
     this.beforeTemplates = new ArrayList<>();
+    this.beforeTemplateNames = new ArrayList<>();
     this.afterTemplates = new ArrayList<>();
   }
 
@@ -134,6 +136,7 @@ public final class RefasterRuleBuilderScanner extends SimpleTreeVisitor<Void, Vo
         checkState(afterTemplates.isEmpty(), "BeforeTemplate must come before AfterTemplate");
         Template<?> template = UTemplater.createTemplate(context, tree);
         beforeTemplates.add(template);
+        beforeTemplateNames.add(tree.getName().toString());
         if (template instanceof BlockTemplate) {
           context.put(UTemplater.REQUIRE_BLOCK_KEY, /* data= */ true);
         }
@@ -185,7 +188,12 @@ public final class RefasterRuleBuilderScanner extends SimpleTreeVisitor<Void, Vo
       }
       RefasterRule<?, ?> rule =
           RefasterRule.create(
-              qualifiedTemplateClass, typeVars, beforeTemplates, afterTemplates, annotationMap);
+              qualifiedTemplateClass,
+              typeVars,
+              beforeTemplates,
+              beforeTemplateNames,
+              afterTemplates,
+              annotationMap);
 
       List<ExpressionTemplate> negatedAfterTemplates = new ArrayList<>();
       for (Template<?> afterTemplate : afterTemplates) {
@@ -195,14 +203,17 @@ public final class RefasterRuleBuilderScanner extends SimpleTreeVisitor<Void, Vo
       }
       if (!negatedAfterTemplates.isEmpty()) {
         List<ExpressionTemplate> negatedBeforeTemplates = new ArrayList<>();
-        for (Template<?> beforeTemplate : beforeTemplates) {
-          negatedBeforeTemplates.add(((ExpressionTemplate) beforeTemplate).negation());
+        List<String> negatedBeforeTemplateNames = new ArrayList<>();
+        for (int i = 0; i < beforeTemplates.size(); i++) {
+          negatedBeforeTemplates.add(((ExpressionTemplate) beforeTemplates.get(i)).negation());
+          negatedBeforeTemplateNames.add(beforeTemplateNames.get(i) + " (negated)");
         }
         RefasterRule<?, ?> negation =
             RefasterRule.create(
                 qualifiedTemplateClass,
                 typeVars,
                 negatedBeforeTemplates,
+                negatedBeforeTemplateNames,
                 negatedAfterTemplates,
                 annotationMap);
         return ImmutableList.of(rule, negation);
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CodeTransformerFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file of compiled Refaster rules, which are loaded lazily.
+ *
+ * <p>Reading a single serialized object graph of every rule means decoding every template before
+ * the first file is scanned, although most rules never match most compilation units. A bundle
+ * instead starts with a table of the rules, holding the name of each rule and the {@link
+ * TemplateIndex.Key}s and {@link RequiredIdentifiers} of its before templates, followed by each
+ * rule encoded on its own by {@link RefasterRuleCodec}. The file is mapped into memory when it is
+ * loaded, and each rule is only decoded once a tree it could match is found.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ *   magic    "EPRB"
+ *   version  u2
+ *   strings  u4 count, then for each string its u4 length and UTF-8 bytes
+ *   rules    u4 count, then for each rule:
+ *              u4 name (an index into strings)
+ *              u4 key count, then for each key its u1 type and u4 value (an index into strings),
+ *                followed by a u4 count of its required identifiers and their indices into strings
+ *              u4 offset and u4 length of its encoded form, relative to the end of the table
+ *   the rules, each a tree of tagged nodes whose strings are indices into strings
+ * </pre>
+ *
+ * <p>Each string is stored once and shared by every rule that refers to it, including the names and
+ * literals inside the rules.
+ */
+public final class RefasterRuleBundle {
+
+  private static final byte[] MAGIC = {'E', 'P', 'R', 'B'};
+
+  /** The current version of the format, which must be increased on incompatible changes. */
+  private static final short VERSION = 3;
+
+  private static final TemplateIndex.Key.Type[] KEY_TYPES = TemplateIndex.Key.Type.values();
+
+  /** Writes the given Refaster rules to {@code out} as a bundle. */
+  public static void write(Collection<? extends CodeTransformer> rules, OutputStream out)
+      throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    ByteArrayOutputStream table = new ByteArrayOutputStream();
+    ByteArrayOutputStream payloads = new ByteArrayOutputStream();
+    DataOutputStream tableOut = new DataOutputStream(table);
+    tableOut.writeInt(rules.size());
+    for (CodeTransformer transformer : rules) {
+      checkArgument(
+          transformer instanceof RefasterRule, "%s is not a Refaster rule", transformer);
+      RefasterRule<?, ?> rule = (RefasterRule<?, ?>) transformer;
+      tableOut.writeInt(intern(strings, rule.qualifiedTemplateClass()));
+      ImmutableList<TemplateIndex.Key> keys = rule.beforeTemplateKeys();
+      ImmutableList<ImmutableSet<String>> identifiers = rule.beforeTemplateIdentifiers();
+      tableOut.writeInt(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        TemplateIndex.Key key = keys.get(i);
+        tableOut.writeByte(key.type().ordinal());
+        tableOut.writeInt(intern(strings, key.value()));
+        tableOut.writeInt(identifiers.get(i).size());
+        for (String identifier : identifiers.get(i)) {
+          tableOut.writeInt(intern(strings, identifier));
+        }
+      }
+      int offset = payloads.size();
+      payloads.write(RefasterRuleCodec.encode(rule, strings));
+      tableOut.writeInt(offset);
+      tableOut.writeInt(payloads.size() - offset);
+    }
+    tableOut.flush();
+
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.write(MAGIC);
+    dataOut.writeShort(VERSION);
+    dataOut.writeInt(strings.size());
+    for (String string : strings.keySet()) {
+      byte[] bytes = string.getBytes(UTF_8);
+      dataOut.writeInt(bytes.length);
+      dataOut.write(bytes);
+    }
+    table.writeTo(dataOut);
+    payloads.writeTo(dataOut);
+    dataOut.flush();
+  }
+
+  static int intern(Map<String, Integer> strings, String string) {
+    return strings.computeIfAbsent(string, s -> strings.size());
+  }
+
+  /** Returns true if a file starting with the given bytes is a bundle. */
+  static boolean isBundle(byte[] header) {
+    if (header.length < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (header[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces the file at the given path with the given contents. The contents are written to a
+   * temporary file that is then moved into place, so that a compilation reading the file never
+   * sees it half written.
+   */
+  static void replace(Path path, byte[] contents) throws IOException {
+    Path directory = path.toAbsolutePath().getParent();
+    Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temporary, contents);
+      try {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Maps the bundle at the given path into memory. The tables are read up front, and each rule is
+   * decoded from the mapping when it is first needed. Bundles are only ever replaced by moving a
+   * new file over them with {@link #replace}, so the mapping keeps the contents that were loaded.
+   */
+  public static CodeTransformer read(Path path) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return read(buffer);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Malformed Refaster rule bundle: " + path, e);
+    }
+  }
+
+  private static CodeTransformer read(ByteBuffer buffer) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    if (!isBundle(magic)) {
+      throw new IOException("Not a Refaster rule bundle");
+    }
+    short version = buffer.getShort();
+    if (version != VERSION) {
+      throw new IOException(
+          String.format(
+              "Unsupported Refaster rule bundle version %d, expected %d", version, VERSION));
+    }
+    String[] strings = new String[buffer.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      byte[] bytes = new byte[buffer.getInt()];
+      buffer.get(bytes);
+      strings[i] = new String(bytes, UTF_8);
+    }
+    int ruleCount = buffer.getInt();
+    List<RuleEntry> entries = new ArrayList<>(ruleCount);
+    for (int i = 0; i < ruleCount; i++) {
+      String name = strings[buffer.getInt()];
+      ImmutableList.Builder<TemplateIndex.Key> keys = ImmutableList.builder();
+      ImmutableList.Builder<ImmutableSet<String>> identifiers = ImmutableList.builder();
+      int keyCount = buffer.getInt();
+      for (int j = 0; j < keyCount; j++) {
+        TemplateIndex.Key.Type type = KEY_TYPES[buffer.get()];
+        keys.add(TemplateIndex.Key.create(type, strings[buffer.getInt()]));
+        ImmutableSet.Builder<String> templateIdentifiers = ImmutableSet.builder();
+        int identifierCount = buffer.getInt();
+        for (int k = 0; k < identifierCount; k++) {
+          templateIdentifiers.add(strings[buffer.getInt()]);
+        }
+        identifiers.add(templateIdentifiers.build());
+      }
+      entries.add(
+          new RuleEntry(
+              name, keys.build(), identifiers.build(), buffer.getInt(), buffer.getInt()));
+    }
+    ByteBuffer payloads = buffer.slice();
+    List<RefasterRule<?, ?>> rules = new ArrayList<>(ruleCount);
+    for (RuleEntry entry : entries) {
+      if (entry.offset < 0 || entry.length < 0 || entry.offset + entry.length > payloads.limit()) {
+        throw new IOException("Invalid offset for Refaster rule " + entry.name);
+      }
+      rules.add(lazyRule(entry, strings, payloads));
+    }
+    return RefasterEngine.create(rules);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static RefasterRule<?, ?> lazyRule(
+      RuleEntry entry, String[] strings, ByteBuffer payloads) {
+    return new LazyRefasterRule(
+        entry.name, entry.keys, entry.identifiers, () -> decode(entry, strings, payloads));
+  }
+
+  private static RefasterRule<?, ?> decode(RuleEntry entry, String[] strings, ByteBuffer payloads) {
+    ByteBuffer payload = payloads.duplicate();
+    payload.position(entry.offset);
+    payload.limit(entry.offset + entry.length);
+    try {
+      return RefasterRuleCodec.decode(payload.slice(), strings);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't load Refaster rule " + entry.name, e);
+    }
+  }
+
+  private static final class RuleEntry {
+    final String name;
+    final ImmutableList<TemplateIndex.Key> keys;
+    final ImmutableList<ImmutableSet<String>> identifiers;
+    final int offset;
+    final int length;
+
+    RuleEntry(
+        String name,
+        ImmutableList<TemplateIndex.Key> keys,
+        ImmutableList<ImmutableSet<String>> identifiers,
+        int offset,
+        int length) {
+      this.name = name;
+      this.keys = keys;
+      this.identifiers = identifiers;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /** Recognizes bundles passed to {@code -XepPatchChecks:refaster:<path>}. */
+  @AutoService(CodeTransformerFormat.class)
+  public static final class Format implements CodeTransformerFormat {
+    @Override
+    public boolean accepts(byte[] header) {
+      return isBundle(header);
+    }
+
+    @Override
+    public CodeTransformer read(Path path) throws IOException {
+      return RefasterRuleBundle.read(path);
+    }
+  }
+
+  private RefasterRuleBundle() {}
+}
@@ -0,0 +1,1273 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+import com.google.errorprone.matchers.Matcher;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MemberReferenceTree.ReferenceMode;
+import com.sun.source.tree.Tree.Kind;
+import com.sun.tools.javac.code.BoundKind;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.JCTree.JCLambda.ParameterKind;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Encodes {@link RefasterRule}s in the compact binary form stored in a {@link RefasterRuleBundle},
+ * and decodes them again without Java serialization.
+ *
+ * <p>A rule is written as a tree of nodes, each of which is a one byte {@link Tag} naming its class
+ * followed by its fields. Names, strings and enum constants are indices into the string table of
+ * the bundle. A node that was already written is only written again as a reference to it, so the
+ * {@link PlaceholderMethod}s that templates share stay shared, and the bounds of a {@link UTypeVar}
+ * can refer back to it.
+ *
+ * <p>Annotations are written as the name of their type and the values of their elements, and are
+ * decoded into proxies that implement their type.
+ */
+final class RefasterRuleCodec {
+
+  /**
+   * The kinds of node. Tags are stored by ordinal, so changing them needs a new {@link
+   * RefasterRuleBundle} version.
+   */
+  private enum Tag {
+    NULL,
+    REFERENCE,
+    EXPRESSION_TEMPLATE,
+    BLOCK_TEMPLATE,
+    PLACEHOLDER_METHOD,
+    // Types
+    ARRAY_TYPE,
+    CLASS_TYPE,
+    FOR_ALL,
+    INTERSECTION_CLASS_TYPE,
+    METHOD_TYPE,
+    PRIMITIVE_TYPE,
+    TYPE_VAR,
+    WILDCARD_TYPE,
+    // Trees
+    ANNOTATED_TYPE,
+    ANNOTATION,
+    ANY_OF,
+    ARRAY_ACCESS,
+    ARRAY_TYPE_TREE,
+    ASSERT,
+    ASSIGN,
+    ASSIGN_OP,
+    BINARY,
+    BLANK,
+    BLOCK,
+    BREAK,
+    CATCH,
+    CLASS_DECL,
+    CLASS_IDENT,
+    CONDITIONAL,
+    CONTINUE,
+    DO_WHILE_LOOP,
+    ENHANCED_FOR_LOOP,
+    EXPRESSION_STATEMENT,
+    FOR_LOOP,
+    FREE_IDENT,
+    IF,
+    INSTANCE_OF,
+    INTERSECTION_TYPE,
+    LABELED_STATEMENT,
+    LAMBDA,
+    LITERAL,
+    LOCAL_VAR_IDENT,
+    MATCHES,
+    MEMBER_REFERENCE,
+    MEMBER_SELECT,
+    METHOD_DECL,
+    METHOD_INVOCATION,
+    MODIFIERS,
+    NEW_ARRAY,
+    NEW_CLASS,
+    OF_KIND,
+    PARENS,
+    PLACEHOLDER_EXPRESSION,
+    PLACEHOLDER_STATEMENT,
+    PRIMITIVE_TYPE_TREE,
+    REPEATED,
+    RETURN,
+    SKIP,
+    STATIC_IDENT,
+    SYNCHRONIZED,
+    THROW,
+    TRY,
+    TYPE_APPLY,
+    TYPE_CAST,
+    TYPE_PARAMETER,
+    TYPE_VAR_IDENT,
+    UNARY,
+    UNION_TYPE,
+    VARIABLE_DECL,
+    WHILE_LOOP,
+    WILDCARD,
+  }
+
+  private static final Tag[] TAGS = Tag.values();
+
+  private static final ImmutableMap<String, Class<?>> PRIMITIVE_CLASSES =
+      Primitives.allPrimitiveTypes().stream().collect(toImmutableMap(Class::getName, c -> c));
+
+  /** Encodes the given rule, adding the strings it uses to the given string table. */
+  static byte[] encode(RefasterRule<?, ?> rule, Map<String, Integer> strings) throws IOException {
+    Encoder encoder = new Encoder(strings);
+    encoder.writeRule(rule);
+    encoder.out.flush();
+    return encoder.bytes.toByteArray();
+  }
+
+  /** Decodes a rule that was encoded with the given string table. */
+  static RefasterRule<?, ?> decode(ByteBuffer buffer, String[] strings) throws IOException {
+    try {
+      return new Decoder(buffer, strings).readRule();
+    } catch (BufferUnderflowException
+        | IndexOutOfBoundsException
+        | ClassCastException
+        | IllegalArgumentException e) {
+      throw new IOException("Malformed Refaster rule", e);
+    }
+  }
+
+  private static final class Encoder {
+    private final Map<String, Integer> strings;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    Encoder(Map<String, Integer> strings) {
+      this.strings = strings;
+    }
+
+    void writeRule(RefasterRule<?, ?> rule) throws IOException {
+      writeString(rule.qualifiedTemplateClass());
+      writeNodes(rule.typeVariables());
+      writeNodes(rule.beforeTemplates());
+      writeStrings(rule.beforeTemplateNames());
+      writeNodes(rule.afterTemplates());
+      writeAnnotations(rule.annotations());
+    }
+
+    void writeNode(@Nullable Object node) throws IOException {
+      if (node == null) {
+        writeTag(Tag.NULL);
+        return;
+      }
+      Integer reference = references.get(node);
+      if (reference != null) {
+        writeTag(Tag.REFERENCE);
+        out.writeInt(reference);
+        return;
+      }
+      if (node instanceof UTypeVar) {
+        // Registered before its bounds, which may refer back to it.
+        UTypeVar typeVar = (UTypeVar) node;
+        writeTag(Tag.TYPE_VAR);
+        register(typeVar);
+        writeString(typeVar.getName());
+        writeNode(typeVar.getLowerBound());
+        writeNode(typeVar.getUpperBound());
+        return;
+      }
+      writeFields(node);
+      register(node);
+    }
+
+    private void register(Object node) {
+      references.put(node, references.size());
+    }
+
+    private void writeFields(Object node) throws IOException {
+      if (node instanceof ExpressionTemplate) {
+        ExpressionTemplate template = (ExpressionTemplate) node;
+        writeTag(Tag.EXPRESSION_TEMPLATE);
+        writeAnnotations(template.annotations());
+        writeNodes(template.templateTypeVariables());
+        writeTypes(template.expressionArgumentTypes());
+        writeNode(template.expression());
+        writeNode(template.returnType());
+      } else if (node instanceof BlockTemplate) {
+        BlockTemplate template = (BlockTemplate) node;
+        writeTag(Tag.BLOCK_TEMPLATE);
+        writeAnnotations(template.annotations());
+        writeNodes(template.templateTypeVariables());
+        writeTypes(template.expressionArgumentTypes());
+        writeNodes(template.templateStatements());
+      } else if (node instanceof PlaceholderMethod) {
+        PlaceholderMethod placeholder = (PlaceholderMethod) node;
+        writeTag(Tag.PLACEHOLDER_METHOD);
+        writeName(placeholder.name());
+        writeNode(placeholder.returnType());
+        out.writeInt(placeholder.annotatedParameters().size());
+        for (Map.Entry<UVariableDecl, ImmutableClassToInstanceMap<Annotation>> parameter :
+            placeholder.annotatedParameters().entrySet()) {
+          writeNode(parameter.getKey());
+          writeAnnotations(parameter.getValue());
+        }
+        writeAnnotations(placeholder.annotations());
+      } else if (node instanceof UType) {
+        writeType((UType) node);
+      } else {
+        writeTree(node);
+      }
+    }
+
+    private void writeType(UType type) throws IOException {
+      if (type instanceof UArrayType) {
+        writeTag(Tag.ARRAY_TYPE);
+        writeNode(((UArrayType) type).componentType());
+      } else if (type instanceof UClassType) {
+        UClassType classType = (UClassType) type;
+        writeTag(Tag.CLASS_TYPE);
+        writeName(classType.fullyQualifiedClass());
+        writeNodes(classType.typeArguments());
+      } else if (type instanceof UForAll) {
+        UForAll forAll = (UForAll) type;
+        writeTag(Tag.FOR_ALL);
+        writeNodes(forAll.getTypeVars());
+        writeNode(forAll.getQuantifiedType());
+      } else if (type instanceof UIntersectionClassType) {
+        writeTag(Tag.INTERSECTION_CLASS_TYPE);
+        writeNodes(((UIntersectionClassType) type).bounds());
+      } else if (type instanceof UMethodType) {
+        UMethodType methodType = (UMethodType) type;
+        writeTag(Tag.METHOD_TYPE);
+        writeNode(methodType.getReturnType());
+        writeNodes(methodType.getParameterTypes());
+      } else if (type instanceof UPrimitiveType) {
+        writeTag(Tag.PRIMITIVE_TYPE);
+        writeEnum(((UPrimitiveType) type).getKind());
+      } else if (type instanceof UWildcardType) {
+        UWildcardType wildcardType = (UWildcardType) type;
+        writeTag(Tag.WILDCARD_TYPE);
+        writeEnum(wildcardType.boundKind());
+        writeNode(wildcardType.bound());
+      } else {
+        throw new IllegalArgumentException("Can't encode Refaster type " + type);
+      }
+    }
+
+    private void writeTree(Object node) throws IOException {
+      if (node instanceof UAnnotatedType) {
+        UAnnotatedType tree = (UAnnotatedType) node;
+        writeTag(Tag.ANNOTATED_TYPE);
+        writeNodes(tree.getAnnotations());
+        writeNode(tree.getUnderlyingType());
+      } else if (node instanceof UAnnotation) {
+        UAnnotation tree = (UAnnotation) node;
+        writeTag(Tag.ANNOTATION);
+        writeNode(tree.getAnnotationType());
+        writeNodes(tree.getArguments());
+      } else if (node instanceof UAnyOf) {
+        writeTag(Tag.ANY_OF);
+        writeNodes(((UAnyOf) node).expressions());
+      } else if (node instanceof UArrayAccess) {
+        UArrayAccess tree = (UArrayAccess) node;
+        writeTag(Tag.ARRAY_ACCESS);
+        writeNode(tree.getExpression());
+        writeNode(tree.getIndex());
+      } else if (node instanceof UArrayTypeTree) {
+        writeTag(Tag.ARRAY_TYPE_TREE);
+        writeNode(((UArrayTypeTree) node).getType());
+      } else if (node instanceof UAssert) {
+        UAssert tree = (UAssert) node;
+        writeTag(Tag.ASSERT);
+        writeNode(tree.getCondition());
+        writeNode(tree.getDetail());
+      } else if (node instanceof UAssign) {
+        UAssign tree = (UAssign) node;
+        writeTag(Tag.ASSIGN);
+        writeNode(tree.getVariable());
+        writeNode(tree.getExpression());
+      } else if (node instanceof UAssignOp) {
+        UAssignOp tree = (UAssignOp) node;
+        writeTag(Tag.ASSIGN_OP);
+        writeNode(tree.getVariable());
+        writeEnum(tree.getKind());
+        writeNode(tree.getExpression());
+      } else if (node instanceof UBinary) {
+        UBinary tree = (UBinary) node;
+        writeTag(Tag.BINARY);
+        writeEnum(tree.getKind());
+        writeNode(tree.getLeftOperand());
+        writeNode(tree.getRightOperand());
+      } else if (node instanceof UBlank) {
+        UUID unique = ((UBlank) node).unique();
+        writeTag(Tag.BLANK);
+        out.writeLong(unique.getMostSignificantBits());
+        out.writeLong(unique.getLeastSignificantBits());
+      } else if (node instanceof UBlock) {
+        writeTag(Tag.BLOCK);
+        writeNodes(((UBlock) node).getStatements());
+      } else if (node instanceof UBreak) {
+        writeTag(Tag.BREAK);
+        writeName(((UBreak) node).getLabel());
+      } else if (node instanceof UCatch) {
+        UCatch tree = (UCatch) node;
+        writeTag(Tag.CATCH);
+        writeNode(tree.getParameter());
+        writeNode(tree.getBlock());
+      } else if (node instanceof UClassDecl) {
+        writeTag(Tag.CLASS_DECL);
+        writeNodes(((UClassDecl) node).getMembers());
+      } else if (node instanceof UClassIdent) {
+        UClassIdent tree = (UClassIdent) node;
+        writeTag(Tag.CLASS_IDENT);
+        writeString(tree.getTopLevelClass());
+        writeName(tree.getName());
+      } else if (node instanceof UConditional) {
+        UConditional tree = (UConditional) node;
+        writeTag(Tag.CONDITIONAL);
+        writeNode(tree.getCondition());
+        writeNode(tree.getTrueExpression());
+        writeNode(tree.getFalseExpression());
+      } else if (node instanceof UContinue) {
+        writeTag(Tag.CONTINUE);
+        writeName(((UContinue) node).getLabel());
+      } else if (node instanceof UDoWhileLoop) {
+        UDoWhileLoop tree = (UDoWhileLoop) node;
+        writeTag(Tag.DO_WHILE_LOOP);
+        writeNode(tree.getStatement());
+        writeNode(tree.getCondition());
+      } else if (node instanceof UEnhancedForLoop) {
+        UEnhancedForLoop tree = (UEnhancedForLoop) node;
+        writeTag(Tag.ENHANCED_FOR_LOOP);
+        writeNode(tree.getVariable());
+        writeNode(tree.getExpression());
+        writeNode(tree.getStatement());
+      } else if (node instanceof UExpressionStatement) {
+        writeTag(Tag.EXPRESSION_STATEMENT);
+        writeNode(((UExpressionStatement) node).getExpression());
+      } else if (node instanceof UForLoop) {
+        UForLoop tree = (UForLoop) node;
+        writeTag(Tag.FOR_LOOP);
+        writeNodes(tree.getInitializer());
+        writeNode(tree.getCondition());
+        writeNodes(tree.getUpdate());
+        writeNode(tree.getStatement());
+      } else if (node instanceof UFreeIdent) {
+        writeTag(Tag.FREE_IDENT);
+        writeName(((UFreeIdent) node).getName());
+      } else if (node instanceof UIf) {
+        UIf tree = (UIf) node;
+        writeTag(Tag.IF);
+        writeNode(tree.getCondition());
+        writeNode(tree.getThenStatement());
+        writeNode(tree.getElseStatement());
+      } else if (node instanceof UInstanceOf) {
+        UInstanceOf tree = (UInstanceOf) node;
+        writeTag(Tag.INSTANCE_OF);
+        writeNode(tree.getExpression());
+        writeNode(tree.getType());
+      } else if (node instanceof UIntersectionType) {
+        writeTag(Tag.INTERSECTION_TYPE);
+        writeNodes(((UIntersectionType) node).getBounds());
+      } else if (node instanceof ULabeledStatement) {
+        ULabeledStatement tree = (ULabeledStatement) node;
+        writeTag(Tag.LABELED_STATEMENT);
+        writeName(tree.getLabel());
+        writeNode(tree.getStatement());
+      } else if (node instanceof ULambda) {
+        ULambda tree = (ULambda) node;
+        writeTag(Tag.LAMBDA);
+        writeEnum(tree.parameterKind());
+        writeNodes(tree.getParameters());
+        writeNode(tree.getBody());
+      } else if (node instanceof ULiteral) {
+        writeTag(Tag.LITERAL);
+        writeLiteral((ULiteral) node);
+      } else if (node instanceof ULocalVarIdent) {
+        writeTag(Tag.LOCAL_VAR_IDENT);
+        writeName(((ULocalVarIdent) node).getName());
+      } else if (node instanceof UMatches) {
+        UMatches tree = (UMatches) node;
+        writeTag(Tag.MATCHES);
+        writeString(tree.matcherClass().getName());
+        out.writeBoolean(tree.positive());
+        writeNode(tree.expression());
+      } else if (node instanceof UMemberReference) {
+        UMemberReference tree = (UMemberReference) node;
+        writeTag(Tag.MEMBER_REFERENCE);
+        writeEnum(tree.getMode());
+        writeNode(tree.getQualifierExpression());
+        writeName(tree.getName());
+        writeNodes(tree.getTypeArguments());
+      } else if (node instanceof UMemberSelect) {
+        UMemberSelect tree = (UMemberSelect) node;
+        writeTag(Tag.MEMBER_SELECT);
+        writeNode(tree.getExpression());
+        writeName(tree.getIdentifier());
+        writeNode(tree.type());
+      } else if (node instanceof UMethodDecl) {
+        UMethodDecl tree = (UMethodDecl) node;
+        writeTag(Tag.METHOD_DECL);
+        writeNode(tree.getModifiers());
+        writeName(tree.getName());
+        writeNode(tree.getReturnType());
+        writeNodes(tree.getParameters());
+        writeNodes(tree.getThrows());
+        writeNode(tree.getBody());
+      } else if (node instanceof UMethodInvocation) {
+        UMethodInvocation tree = (UMethodInvocation) node;
+        writeTag(Tag.METHOD_INVOCATION);
+        writeNode(tree.getMethodSelect());
+        writeNodes(tree.getArguments());
+      } else if (node instanceof UModifiers) {
+        UModifiers tree = (UModifiers) node;
+        writeTag(Tag.MODIFIERS);
+        out.writeLong(tree.flagBits());
+        writeNodes(tree.getAnnotations());
+      } else if (node instanceof UNewArray) {
+        UNewArray tree = (UNewArray) node;
+        writeTag(Tag.NEW_ARRAY);
+        writeNode(tree.getType());
+        writeNodes(tree.getDimensions());
+        writeNodes(tree.getInitializers());
+      } else if (node instanceof UNewClass) {
+        UNewClass tree = (UNewClass) node;
+        writeTag(Tag.NEW_CLASS);
+        writeNode(tree.getEnclosingExpression());
+        writeNodes(tree.getTypeArguments());
+        writeNode(tree.getIdentifier());
+        writeNodes(tree.getArguments());
+        writeNode(tree.getClassBody());
+      } else if (node instanceof UOfKind) {
+        UOfKind tree = (UOfKind) node;
+        writeTag(Tag.OF_KIND);
+        writeNode(tree.expression());
+        out.writeInt(tree.allowed().size());
+        for (Kind kind : tree.allowed()) {
+          writeEnum(kind);
+        }
+      } else if (node instanceof UParens) {
+        writeTag(Tag.PARENS);
+        writeNode(((UParens) node).getExpression());
+      } else if (node instanceof UPlaceholderExpression) {
+        UPlaceholderExpression tree = (UPlaceholderExpression) node;
+        writeTag(Tag.PLACEHOLDER_EXPRESSION);
+        writeNode(tree.placeholder());
+        // In the order of the placeholder's parameters.
+        writeNodes(tree.arguments().values());
+      } else if (node instanceof UPlaceholderStatement) {
+        UPlaceholderStatement tree = (UPlaceholderStatement) node;
+        writeTag(Tag.PLACEHOLDER_STATEMENT);
+        writeNode(tree.placeholder());
+        writeNodes(tree.arguments().values());
+        writeEnum(tree.implementationFlow());
+      } else if (node instanceof UPrimitiveTypeTree) {
+        writeTag(Tag.PRIMITIVE_TYPE_TREE);
+        writeEnum(((UPrimitiveTypeTree) node).typeTag());
+      } else if (node instanceof URepeated) {
+        URepeated tree = (URepeated) node;
+        writeTag(Tag.REPEATED);
+        writeString(tree.identifier());
+        writeNode(tree.expression());
+      } else if (node instanceof UReturn) {
+        writeTag(Tag.RETURN);
+        writeNode(((UReturn) node).getExpression());
+      } else if (node instanceof USkip) {
+        writeTag(Tag.SKIP);
+      } else if (node instanceof UStaticIdent) {
+        UStaticIdent tree = (UStaticIdent) node;
+        writeTag(Tag.STATIC_IDENT);
+        writeNode(tree.classIdent());
+        writeName(tree.getName());
+        writeNode(tree.memberType());
+      } else if (node instanceof USynchronized) {
+        USynchronized tree = (USynchronized) node;
+        writeTag(Tag.SYNCHRONIZED);
+        writeNode(tree.getExpression());
+        writeNode(tree.getBlock());
+      } else if (node instanceof UThrow) {
+        writeTag(Tag.THROW);
+        writeNode(((UThrow) node).getExpression());
+      } else if (node instanceof UTry) {
+        UTry tree = (UTry) node;
+        writeTag(Tag.TRY);
+        writeNodes(tree.getResources());
+        writeNode(tree.getBlock());
+        writeNodes(tree.getCatches());
+        writeNode(tree.getFinallyBlock());
+      } else if (node instanceof UTypeApply) {
+        UTypeApply tree = (UTypeApply) node;
+        writeTag(Tag.TYPE_APPLY);
+        writeNode(tree.getType());
+        writeNodes(tree.getTypeArguments());
+      } else if (node instanceof UTypeCast) {
+        UTypeCast tree = (UTypeCast) node;
+        writeTag(Tag.TYPE_CAST);
+        writeNode(tree.getType());
+        writeNode(tree.getExpression());
+      } else if (node instanceof UTypeParameter) {
+        UTypeParameter tree = (UTypeParameter) node;
+        writeTag(Tag.TYPE_PARAMETER);
+        writeName(tree.getName());
+        writeNodes(tree.getBounds());
+        writeNodes(tree.getAnnotations());
+      } else if (node instanceof UTypeVarIdent) {
+        writeTag(Tag.TYPE_VAR_IDENT);
+        writeName(((UTypeVarIdent) node).getName());
+      } else if (node instanceof UUnary) {
+        UUnary tree = (UUnary) node;
+        writeTag(Tag.UNARY);
+        writeEnum(tree.getKind());
+        writeNode(tree.getExpression());
+      } else if (node instanceof UUnionType) {
+        writeTag(Tag.UNION_TYPE);
+        writeNodes(((UUnionType) node).getTypeAlternatives());
+      } else if (node instanceof UVariableDecl) {
+        UVariableDecl tree = (UVariableDecl) node;
+        writeTag(Tag.VARIABLE_DECL);
+        writeName(tree.getName());
+        writeNode(tree.getType());
+        writeNode(tree.getInitializer());
+      } else if (node instanceof UWhileLoop) {
+        UWhileLoop tree = (UWhileLoop) node;
+        writeTag(Tag.WHILE_LOOP);
+        writeNode(tree.getCondition());
+        writeNode(tree.getStatement());
+      } else if (node instanceof UWildcard) {
+        UWildcard tree = (UWildcard) node;
+        writeTag(Tag.WILDCARD);
+        writeEnum(tree.getKind());
+        writeNode(tree.getBound());
+      } else {
+        throw new IllegalArgumentException("Can't encode Refaster tree " + node);
+      }
+    }
+
+    private void writeLiteral(ULiteral literal) throws IOException {
+      writeEnum(literal.getKind());
+      Object value = literal.getValue();
+      switch (literal.getKind()) {
+        case INT_LITERAL:
+          out.writeInt(((Number) value).intValue());
+          break;
+        case LONG_LITERAL:
+          out.writeLong(((Number) value).longValue());
+          break;
+        case FLOAT_LITERAL:
+          out.writeFloat(((Number) value).floatValue());
+          break;
+        case DOUBLE_LITERAL:
+          out.writeDouble(((Number) value).doubleValue());
+          break;
+        case CHAR_LITERAL:
+          out.writeChar((Character) value);
+          break;
+        case BOOLEAN_LITERAL:
+          out.writeBoolean((Boolean) value);
+          break;
+        case STRING_LITERAL:
+          writeString((String) value);
+          break;
+        case NULL_LITERAL:
+          break;
+        default:
+          throw new IllegalArgumentException("Can't encode Refaster literal " + literal);
+      }
+    }
+
+    private void writeAnnotations(ImmutableClassToInstanceMap<Annotation> annotations)
+        throws IOException {
+      out.writeInt(annotations.size());
+      for (Annotation annotation : annotations.values()) {
+        writeAnnotation(annotation);
+      }
+    }
+
+    private void writeAnnotation(Annotation annotation) throws IOException {
+      Class<? extends Annotation> type = annotation.annotationType();
+      Method[] elements = type.getDeclaredMethods();
+      Arrays.sort(elements, Comparator.comparing(Method::getName));
+      writeString(type.getName());
+      out.writeInt(elements.length);
+      for (Method element : elements) {
+        writeString(element.getName());
+        writeElementValue(element.getReturnType(), elementValue(annotation, element));
+      }
+    }
+
+    /**
+     * Writes the value of an annotation element with the given type. A class is either a {@link
+     * Class} or, for an annotation on a symbol that is being compiled, its {@link TypeMirror}.
+     */
+    private void writeElementValue(Class<?> type, Object value) throws IOException {
+      if (type.isArray()) {
+        List<?> elements = value instanceof List ? (List<?>) value : arrayElements(value);
+        out.writeInt(elements.size());
+        for (Object element : elements) {
+          writeElementValue(type.getComponentType(), element);
+        }
+      } else if (type == boolean.class) {
+        out.writeBoolean((Boolean) value);
+      } else if (type == byte.class) {
+        out.writeByte((Byte) value);
+      } else if (type == char.class) {
+        out.writeChar((Character) value);
+      } else if (type == short.class) {
+        out.writeShort((Short) value);
+      } else if (type == int.class) {
+        out.writeInt((Integer) value);
+      } else if (type == long.class) {
+        out.writeLong((Long) value);
+      } else if (type == float.class) {
+        out.writeFloat((Float) value);
+      } else if (type == double.class) {
+        out.writeDouble((Double) value);
+      } else if (type == String.class) {
+        writeString((String) value);
+      } else if (type == Class.class) {
+        writeString(
+            value instanceof Class ? ((Class<?>) value).getName() : className((TypeMirror) value));
+      } else if (type.isEnum()) {
+        writeEnum((Enum<?>) value);
+      } else if (type.isAnnotation()) {
+        writeAnnotation((Annotation) value);
+      } else {
+        throw new IllegalArgumentException("Can't encode annotation element of type " + type);
+      }
+    }
+
+    private void writeTypes(ImmutableMap<String, UType> types) throws IOException {
+      out.writeInt(types.size());
+      for (Map.Entry<String, UType> entry : types.entrySet()) {
+        writeString(entry.getKey());
+        writeNode(entry.getValue());
+      }
+    }
+
+    /** Writes the given nodes, or a count of -1 if there are none. */
+    private void writeNodes(@Nullable Collection<?> nodes) throws IOException {
+      if (nodes == null) {
+        out.writeInt(-1);
+        return;
+      }
+      out.writeInt(nodes.size());
+      for (Object node : nodes) {
+        writeNode(node);
+      }
+    }
+
+    private void writeStrings(List<String> list) throws IOException {
+      out.writeInt(list.size());
+      for (String string : list) {
+        writeString(string);
+      }
+    }
+
+    private void writeName(@Nullable StringName name) throws IOException {
+      writeString(name == null ? null : name.contents());
+    }
+
+    private void writeEnum(@Nullable Enum<?> constant) throws IOException {
+      writeString(constant == null ? null : constant.name());
+    }
+
+    private void writeString(@Nullable String string) throws IOException {
+      out.writeInt(string == null ? -1 : RefasterRuleBundle.intern(strings, string));
+    }
+
+    private void writeTag(Tag tag) throws IOException {
+      out.writeByte(tag.ordinal());
+    }
+  }
+
+  private static Object elementValue(Annotation annotation, Method element) {
+    try {
+      return element.invoke(annotation);
+    } catch (InvocationTargetException e) {
+      // Annotations on symbols that are being compiled can only return the mirrors of classes.
+      if (e.getCause() instanceof MirroredTypeException) {
+        return ((MirroredTypeException) e.getCause()).getTypeMirror();
+      }
+      if (e.getCause() instanceof MirroredTypesException) {
+        return ((MirroredTypesException) e.getCause()).getTypeMirrors();
+      }
+      throw new IllegalArgumentException("Can't encode " + annotation, e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Can't encode " + annotation, e);
+    }
+  }
+
+  private static String className(TypeMirror type) {
+    if (type.getKind() == TypeKind.DECLARED) {
+      return UTemplater.classNameFrom((TypeElement) ((DeclaredType) type).asElement());
+    }
+    if (type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID) {
+      return type.toString();
+    }
+    throw new IllegalArgumentException("Can't encode class literal " + type);
+  }
+
+  private static List<Object> arrayElements(Object array) {
+    List<Object> elements = new ArrayList<>();
+    for (int i = 0; i < Array.getLength(array); i++) {
+      elements.add(Array.get(array, i));
+    }
+    return elements;
+  }
+
+  private static final class Decoder {
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final List<Object> references = new ArrayList<>();
+
+    Decoder(ByteBuffer buffer, String[] strings) {
+      this.buffer = buffer;
+      this.strings = strings;
+    }
+
+    RefasterRule<?, ?> readRule() throws IOException {
+      return RefasterRule.create(
+          readString(),
+          readList(UTypeVar.class),
+          readTemplates(),
+          readStrings(),
+          readTemplates(),
+          readAnnotations());
+    }
+
+    @Nullable
+    Object readNode() throws IOException {
+      Tag tag = TAGS[buffer.get()];
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(buffer.getInt());
+        case TYPE_VAR:
+          // Registered before its bounds, which may refer back to it.
+          UTypeVar typeVar =
+              UTypeVar.create(readString(), UPrimitiveType.NULL, UPrimitiveType.NULL);
+          references.add(typeVar);
+          typeVar.setLowerBound(read(UType.class));
+          typeVar.setUpperBound(read(UType.class));
+          return typeVar;
+        default:
+          Object node = readFields(tag);
+          references.add(node);
+          return node;
+      }
+    }
+
+    private Object readFields(Tag tag) throws IOException {
+      switch (tag) {
+        case EXPRESSION_TEMPLATE:
+          return ExpressionTemplate.create(
+              readAnnotations(),
+              readList(UTypeVar.class),
+              readTypes(),
+              read(UExpression.class),
+              read(UType.class));
+        case BLOCK_TEMPLATE:
+          return BlockTemplate.create(
+              readAnnotations(), readList(UTypeVar.class), readTypes(), readList(UStatement.class));
+        case PLACEHOLDER_METHOD:
+          return readPlaceholder();
+        case ARRAY_TYPE:
+          return UArrayType.create(read(UType.class));
+        case CLASS_TYPE:
+          return UClassType.create(readString(), readList(UType.class));
+        case FOR_ALL:
+          return UForAll.create(readList(UTypeVar.class), read(UType.class));
+        case INTERSECTION_CLASS_TYPE:
+          return UIntersectionClassType.create(readList(UType.class));
+        case METHOD_TYPE:
+          return UMethodType.create(read(UType.class), readList(UType.class));
+        case PRIMITIVE_TYPE:
+          return UPrimitiveType.create(readEnum(TypeKind.class));
+        case WILDCARD_TYPE:
+          return UWildcardType.create(readEnum(BoundKind.class), read(UType.class));
+        case ANNOTATED_TYPE:
+          return UAnnotatedType.create(readList(UAnnotation.class), read(UExpression.class));
+        case ANNOTATION:
+          return UAnnotation.create(read(UTree.class), readList(UExpression.class));
+        case ANY_OF:
+          return UAnyOf.create(readList(UExpression.class));
+        case ARRAY_ACCESS:
+          return UArrayAccess.create(read(UExpression.class), read(UExpression.class));
+        case ARRAY_TYPE_TREE:
+          return UArrayTypeTree.create(read(UExpression.class));
+        case ASSERT:
+          return UAssert.create(read(UExpression.class), read(UExpression.class));
+        case ASSIGN:
+          return UAssign.create(read(UExpression.class), read(UExpression.class));
+        case ASSIGN_OP:
+          return UAssignOp.create(
+              read(UExpression.class), readEnum(Kind.class), read(UExpression.class));
+        case BINARY:
+          return UBinary.create(
+              readEnum(Kind.class), read(UExpression.class), read(UExpression.class));
+        case BLANK:
+          return UBlank.create(new UUID(buffer.getLong(), buffer.getLong()));
+        case BLOCK:
+          return UBlock.create(readList(UStatement.class));
+        case BREAK:
+          return UBreak.create(readString());
+        case CATCH:
+          return UCatch.create(read(UVariableDecl.class), read(UBlock.class));
+        case CLASS_DECL:
+          return UClassDecl.create(readList(UMethodDecl.class));
+        case CLASS_IDENT:
+          return UClassIdent.create((CharSequence) readString(), readString());
+        case CONDITIONAL:
+          return UConditional.create(
+              read(UExpression.class), read(UExpression.class), read(UExpression.class));
+        case CONTINUE:
+          return UContinue.create(readString());
+        case DO_WHILE_LOOP:
+          return UDoWhileLoop.create(read(UStatement.class), read(UExpression.class));
+        case ENHANCED_FOR_LOOP:
+          return UEnhancedForLoop.create(
+              read(UVariableDecl.class), read(UExpression.class), read(UStatement.class));
+        case EXPRESSION_STATEMENT:
+          return UExpressionStatement.create(read(UExpression.class));
+        case FOR_LOOP:
+          return UForLoop.create(
+              readList(UStatement.class),
+              read(UExpression.class),
+              readList(UExpressionStatement.class),
+              read(UStatement.class));
+        case FREE_IDENT:
+          return UFreeIdent.create(readString());
+        case IF:
+          return UIf.create(
+              read(UExpression.class), read(UStatement.class), read(UStatement.class));
+        case INSTANCE_OF:
+          return UInstanceOf.create(read(UExpression.class), read(UTree.class));
+        case INTERSECTION_TYPE:
+          return UIntersectionType.create(readList(UExpression.class));
+        case LABELED_STATEMENT:
+          return ULabeledStatement.create(readString(), read(UStatement.class));
+        case LAMBDA:
+          return ULambda.create(
+              readEnum(ParameterKind.class), readList(UVariableDecl.class), read(UTree.class));
+        case LITERAL:
+          return readLiteral();
+        case LOCAL_VAR_IDENT:
+          return ULocalVarIdent.create(readString());
+        case MATCHES:
+          return UMatches.create(readMatcherClass(), buffer.get() != 0, read(UExpression.class));
+        case MEMBER_REFERENCE:
+          return UMemberReference.create(
+              readEnum(ReferenceMode.class),
+              read(UExpression.class),
+              readString(),
+              readList(UExpression.class));
+        case MEMBER_SELECT:
+          return UMemberSelect.create(read(UExpression.class), readString(), read(UType.class));
+        case METHOD_DECL:
+          return UMethodDecl.create(
+              read(UModifiers.class),
+              readString(),
+              read(UExpression.class),
+              readList(UVariableDecl.class),
+              readList(UExpression.class),
+              read(UBlock.class));
+        case METHOD_INVOCATION:
+          return UMethodInvocation.create(read(UExpression.class), readList(UExpression.class));
+        case MODIFIERS:
+          return UModifiers.create(buffer.getLong(), readList(UAnnotation.class));
+        case NEW_ARRAY:
+          return UNewArray.create(
+              read(UExpression.class), readList(UExpression.class), readList(UExpression.class));
+        case NEW_CLASS:
+          return UNewClass.create(
+              read(UExpression.class),
+              readList(UExpression.class),
+              read(UExpression.class),
+              readList(UExpression.class),
+              read(UClassDecl.class));
+        case OF_KIND:
+          return UOfKind.create(read(UExpression.class), readKinds());
+        case PARENS:
+          return UParens.create(read(UExpression.class));
+        case PLACEHOLDER_EXPRESSION:
+          return UPlaceholderExpression.create(
+              read(PlaceholderMethod.class), readList(UExpression.class));
+        case PLACEHOLDER_STATEMENT:
+          return UPlaceholderStatement.create(
+              read(PlaceholderMethod.class),
+              readList(UExpression.class),
+              readEnum(ControlFlowVisitor.Result.class));
+        case PRIMITIVE_TYPE_TREE:
+          return UPrimitiveTypeTree.create(readEnum(TypeTag.class));
+        case REPEATED:
+          return URepeated.create(readString(), read(UExpression.class));
+        case RETURN:
+          return UReturn.create(read(UExpression.class));
+        case SKIP:
+          return USkip.INSTANCE;
+        case STATIC_IDENT:
+          return UStaticIdent.create(read(UClassIdent.class), readString(), read(UType.class));
+        case SYNCHRONIZED:
+          return USynchronized.create(read(UExpression.class), read(UBlock.class));
+        case THROW:
+          return UThrow.create(read(UExpression.class));
+        case TRY:
+          return UTry.create(
+              readTrees(), read(UBlock.class), readList(UCatch.class), read(UBlock.class));
+        case TYPE_APPLY:
+          return UTypeApply.create(read(UExpression.class), readList(UExpression.class));
+        case TYPE_CAST:
+          return UTypeCast.create(read(UTree.class), read(UExpression.class));
+        case TYPE_PARAMETER:
+          return UTypeParameter.create(
+              readString(), readList(UExpression.class), readList(UAnnotation.class));
+        case TYPE_VAR_IDENT:
+          return UTypeVarIdent.create(readString());
+        case UNARY:
+          return UUnary.create(readEnum(Kind.class), read(UExpression.class));
+        case UNION_TYPE:
+          return UUnionType.create(readList(UExpression.class));
+        case VARIABLE_DECL:
+          return UVariableDecl.create(
+              readString(), read(UExpression.class), read(UExpression.class));
+        case WHILE_LOOP:
+          return UWhileLoop.create(read(UExpression.class), read(UStatement.class));
+        case WILDCARD:
+          return UWildcard.create(readEnum(Kind.class), read(UTree.class));
+        default:
+          throw new IOException("Unexpected node " + tag);
+      }
+    }
+
+    private PlaceholderMethod readPlaceholder() throws IOException {
+      String name = readString();
+      UType returnType = read(UType.class);
+      int parameterCount = buffer.getInt();
+      ImmutableMap.Builder<UVariableDecl, ImmutableClassToInstanceMap<Annotation>> parameters =
+          ImmutableMap.builder();
+      for (int i = 0; i < parameterCount; i++) {
+        parameters.put(read(UVariableDecl.class), readAnnotations());
+      }
+      return PlaceholderMethod.create(
+          name, returnType, parameters.buildOrThrow(), readAnnotations());
+    }
+
+    private ULiteral readLiteral() throws IOException {
+      Kind kind = readEnum(Kind.class);
+      switch (kind) {
+        case INT_LITERAL:
+          return ULiteral.intLit(buffer.getInt());
+        case LONG_LITERAL:
+          return ULiteral.longLit(buffer.getLong());
+        case FLOAT_LITERAL:
+          return ULiteral.floatLit(buffer.getFloat());
+        case DOUBLE_LITERAL:
+          return ULiteral.doubleLit(buffer.getDouble());
+        case CHAR_LITERAL:
+          return ULiteral.charLit(buffer.getChar());
+        case BOOLEAN_LITERAL:
+          return ULiteral.booleanLit(buffer.get() != 0);
+        case STRING_LITERAL:
+          return ULiteral.stringLit(readString());
+        case NULL_LITERAL:
+          return ULiteral.nullLit();
+        default:
+          throw new IOException("Unexpected literal " + kind);
+      }
+    }
+
+    @SuppressWarnings("unchecked") // the class was a matcher of expressions when it was encoded
+    private Class<? extends Matcher<? super ExpressionTree>> readMatcherClass() throws IOException {
+      return (Class<? extends Matcher<? super ExpressionTree>>)
+          readClass(readString()).asSubclass(Matcher.class);
+    }
+
+    private ImmutableSet<Kind> readKinds() throws IOException {
+      int size = buffer.getInt();
+      ImmutableSet.Builder<Kind> kinds = ImmutableSet.builder();
+      for (int i = 0; i < size; i++) {
+        kinds.add(readEnum(Kind.class));
+      }
+      return kinds.build();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // the annotation is an instance of its type
+    private ImmutableClassToInstanceMap<Annotation> readAnnotations() throws IOException {
+      int size = buffer.getInt();
+      ImmutableClassToInstanceMap.Builder<Annotation> annotations =
+          ImmutableClassToInstanceMap.builder();
+      for (int i = 0; i < size; i++) {
+        Annotation annotation = readAnnotation();
+        annotations.put((Class) annotation.annotationType(), annotation);
+      }
+      return annotations.build();
+    }
+
+    private Annotation readAnnotation() throws IOException {
+      Class<? extends Annotation> type = readClass(readString()).asSubclass(Annotation.class);
+      int size = buffer.getInt();
+      ImmutableMap.Builder<String, Object> values = ImmutableMap.builder();
+      for (int i = 0; i < size; i++) {
+        String name = readString();
+        Method element;
+        try {
+          element = type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+          throw new IOException(String.format("%s no longer has the element %s", type, name), e);
+        }
+        values.put(name, readElementValue(element.getReturnType()));
+      }
+      return DecodedAnnotation.create(type, values.buildOrThrow());
+    }
+
+    private Object readElementValue(Class<?> type) throws IOException {
+      if (type.isArray()) {
+        Object array = Array.newInstance(type.getComponentType(), buffer.getInt());
+        for (int i = 0; i < Array.getLength(array); i++) {
+          Array.set(array, i, readElementValue(type.getComponentType()));
+        }
+        return array;
+      } else if (type == boolean.class) {
+        return buffer.get() != 0;
+      } else if (type == byte.class) {
+        return buffer.get();
+      } else if (type == char.class) {
+        return buffer.getChar();
+      } else if (type == short.class) {
+        return buffer.getShort();
+      } else if (type == int.class) {
+        return buffer.getInt();
+      } else if (type == long.class) {
+        return buffer.getLong();
+      } else if (type == float.class) {
+        return buffer.getFloat();
+      } else if (type == double.class) {
+        return buffer.getDouble();
+      } else if (type == String.class) {
+        return readString();
+      } else if (type == Class.class) {
+        return readClass(readString());
+      } else if (type.isEnum()) {
+        return enumConstant(type, readString());
+      } else if (type.isAnnotation()) {
+        return readAnnotation();
+      }
+      throw new IOException("Can't decode annotation element of type " + type);
+    }
+
+    private ImmutableMap<String, UType> readTypes() throws IOException {
+      int size = buffer.getInt();
+      ImmutableMap.Builder<String, UType> types = ImmutableMap.builder();
+      for (int i = 0; i < size; i++) {
+        types.put(readString(), read(UType.class));
+      }
+      return types.buildOrThrow();
+    }
+
+    private <T> T read(Class<T> type) throws IOException {
+      return type.cast(readNode());
+    }
+
+    /** Reads a list of nodes of the given type, or null if it was written with a count of -1. */
+    @Nullable
+    private <T> ImmutableList<T> readList(Class<T> type) throws IOException {
+      return readList(type::cast);
+    }
+
+    private ImmutableList<UTree<?>> readTrees() throws IOException {
+      return readList(node -> (UTree<?>) node);
+    }
+
+    private ImmutableList<Template<?>> readTemplates() throws IOException {
+      return readList(node -> (Template<?>) node);
+    }
+
+    @Nullable
+    private <T> ImmutableList<T> readList(Function<Object, T> cast) throws IOException {
+      int size = buffer.getInt();
+      if (size < 0) {
+        return null;
+      }
+      ImmutableList.Builder<T> list = ImmutableList.builder();
+      for (int i = 0; i < size; i++) {
+        list.add(cast.apply(readNode()));
+      }
+      return list.build();
+    }
+
+    private ImmutableList<String> readStrings() {
+      int size = buffer.getInt();
+      ImmutableList.Builder<String> list = ImmutableList.builder();
+      for (int i = 0; i < size; i++) {
+        list.add(readString());
+      }
+      return list.build();
+    }
+
+    @Nullable
+    private <E extends Enum<E>> E readEnum(Class<E> type) {
+      String name = readString();
+      return name == null ? null : Enum.valueOf(type, name);
+    }
+
+    @Nullable
+    private String readString() {
+      int index = buffer.getInt();
+      return index < 0 ? null : strings[index];
+    }
+  }
+
+  private static Class<?> readClass(String name) throws IOException {
+    Class<?> primitive = PRIMITIVE_CLASSES.get(name);
+    if (primitive != null) {
+      return primitive;
+    }
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Can't find the class " + name, e);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // the type is an enum
+  private static Object enumConstant(Class<?> type, String name) {
+    return Enum.valueOf((Class) type, name);
+  }
+
+  /** Implements an annotation type with the element values that were decoded for it. */
+  private static final class DecodedAnnotation implements InvocationHandler, Serializable {
+    private final Class<? extends Annotation> type;
+    private final ImmutableMap<String, Object> values;
+
+    static <A extends Annotation> A create(Class<A> type, ImmutableMap<String, Object> values) {
+      return type.cast(
+          Proxy.newProxyInstance(
+              type.getClassLoader(), new Class<?>[] {type}, new DecodedAnnotation(type, values)));
+    }
+
+    private DecodedAnnotation(
+        Class<? extends Annotation> type, ImmutableMap<String, Object> values) {
+      this.type = type;
+      this.values = values;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "annotationType":
+          return type;
+        case "equals":
+          return isEqualTo(args[0]);
+        case "hashCode":
+          return hash();
+        case "toString":
+          return toString();
+        default:
+          return copy(value(method));
+      }
+    }
+
+    private Object value(Method element) {
+      Object value = values.get(element.getName());
+      // Elements that were added to the annotation since it was encoded.
+      return value != null ? value : element.getDefaultValue();
+    }
+
+    private boolean isEqualTo(Object other) {
+      if (!type.isInstance(other)) {
+        return false;
+      }
+      for (Method element : type.getDeclaredMethods()) {
+        Object otherValue;
+        try {
+          otherValue = element.invoke(other);
+        } catch (ReflectiveOperationException e) {
+          return false;
+        }
+        if (!Arrays.deepEquals(new Object[] {value(element)}, new Object[] {otherValue})) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Returns the hash code that {@link Annotation#hashCode} specifies. */
+    private int hash() {
+      int hash = 0;
+      for (Method element : type.getDeclaredMethods()) {
+        // The hash code of an array, or of the value, plus 31.
+        int valueHash = Arrays.deepHashCode(new Object[] {value(element)}) - 31;
+        hash += (127 * element.getName().hashCode()) ^ valueHash;
+      }
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "@%s(%s)",
+          type.getName(),
+          Joiner.on(", ")
+              .withKeyValueSeparator("=")
+              .join(Maps.transformValues(values, v -> Arrays.deepToString(new Object[] {v}))));
+    }
+
+    private static Object copy(Object value) {
+      if (!value.getClass().isArray()) {
+        return value;
+      }
+      int length = Array.getLength(value);
+      Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+      System.arraycopy(value, 0, copy, 0, length);
+      return copy;
+    }
+  }
+
+  private RefasterRuleCodec() {}
+}
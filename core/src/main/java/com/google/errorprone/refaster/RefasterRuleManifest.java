@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.service.AutoService;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CodeTransformerFormat;
+import com.google.errorprone.CodeTransformerLoader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A manifest of Refaster rules that were compiled into one {@link RefasterRuleBundle} per rule
+ * class, so that only the rule classes that changed need to be compiled again.
+ *
+ * <p>The manifest is a UTF-8 text file. Its first line is {@code EPRM <version>}, and each further
+ * line describes one shard as {@code <file>\t<hash>\t<source>}: the name of the bundle, relative to
+ * the directory of the manifest; a hash of its contents; and the URI of the source file it was
+ * compiled from. Including the hash means that the manifest changes whenever a shard does, so a
+ * cached engine for the manifest is never stale.
+ *
+ * <p>When loaded, the shards are merged into a single {@link RefasterEngine}. Each shard is checked
+ * against its hash, and then loaded through {@link CodeTransformerLoader}, so shards that haven't
+ * changed are taken from its cache.
+ */
+public final class RefasterRuleManifest {
+
+  private static final String MAGIC = "EPRM";
+
+  /** The current version of the format, which must be increased on incompatible changes. */
+  private static final int VERSION = 1;
+
+  private static final Splitter TAB = Splitter.on('\t');
+
+  /** A bundle of the rules in one rule class. */
+  public static final class Shard {
+    private final String file;
+    private final String hash;
+    private final String source;
+
+    private Shard(String file, String hash, String source) {
+      this.file = file;
+      this.hash = hash;
+      this.source = source;
+    }
+
+    /** Returns a shard whose bundle has the given contents. */
+    public static Shard create(String file, byte[] contents, String source) {
+      return new Shard(file, hash(contents), source);
+    }
+
+    private static String hash(byte[] contents) {
+      return Hashing.sha256().hashBytes(contents).toString();
+    }
+
+    /** The name of the bundle, relative to the directory of the manifest. */
+    public String file() {
+      return file;
+    }
+
+    /** The URI of the source file that the rules were compiled from. */
+    public String source() {
+      return source;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Shard)) {
+        return false;
+      }
+      Shard that = (Shard) o;
+      return file.equals(that.file) && hash.equals(that.hash) && source.equals(that.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(file, hash, source);
+    }
+
+    @Override
+    public String toString() {
+      return file + "\t" + hash + "\t" + source;
+    }
+  }
+
+  /**
+   * Writes a manifest of the given shards to the given path, unless it already lists exactly those
+   * shards. Leaving an unchanged manifest alone keeps cached engines for it valid.
+   */
+  public static void write(Collection<Shard> shards, Path path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(MAGIC + " " + VERSION);
+    shards.stream()
+        .sorted(Comparator.comparing(Shard::file))
+        .forEach(shard -> lines.add(shard.toString()));
+    if (Files.exists(path) && Files.readAllLines(path, UTF_8).equals(lines)) {
+      return;
+    }
+    RefasterRuleBundle.replace(path, (String.join("\n", lines) + "\n").getBytes(UTF_8));
+  }
+
+  /** Returns the shards listed in the manifest at the given path. */
+  public static ImmutableList<Shard> readShards(Path path) throws IOException {
+    List<String> lines = Files.readAllLines(path, UTF_8);
+    if (lines.isEmpty() || !lines.get(0).startsWith(MAGIC + " ")) {
+      throw new IOException("Not a Refaster rule manifest: " + path);
+    }
+    String version = lines.get(0).substring(MAGIC.length() + 1);
+    if (!version.equals(String.valueOf(VERSION))) {
+      throw new IOException(
+          String.format(
+              "Unsupported Refaster rule manifest version %s, expected %d", version, VERSION));
+    }
+    ImmutableList.Builder<Shard> shards = ImmutableList.builder();
+    for (String line : lines.subList(1, lines.size())) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      List<String> fields = TAB.splitToList(line);
+      if (fields.size() != 3) {
+        throw new IOException("Malformed Refaster rule manifest entry: " + line);
+      }
+      shards.add(new Shard(fields.get(0), fields.get(1), fields.get(2)));
+    }
+    return shards.build();
+  }
+
+  /** Returns true if a file starting with the given bytes is a manifest. */
+  static boolean isManifest(byte[] header) {
+    byte[] magic = (MAGIC + " ").getBytes(UTF_8);
+    if (header.length < magic.length) {
+      return false;
+    }
+    for (int i = 0; i < magic.length; i++) {
+      if (header[i] != magic[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Loads the shards listed in the manifest at the given path, and merges their rules.
+   *
+   * @throws IOException if a shard doesn't have the contents the manifest was written for
+   */
+  public static CodeTransformer read(Path path) throws IOException {
+    Path directory = path.toAbsolutePath().getParent();
+    List<CodeTransformer> transformers = new ArrayList<>();
+    for (Shard shard : readShards(path)) {
+      Path file = directory.resolve(shard.file());
+      if (!Shard.hash(Files.readAllBytes(file)).equals(shard.hash)) {
+        throw new IOException(
+            String.format("Refaster rule shard %s doesn't match the manifest %s", file, path));
+      }
+      transformers.add(CodeTransformerLoader.load(file));
+    }
+    return RefasterEngine.create(transformers);
+  }
+
+  /** Recognizes manifests passed to {@code -XepPatchChecks:refaster:<path>}. */
+  @AutoService(CodeTransformerFormat.class)
+  public static final class Format implements CodeTransformerFormat {
+    @Override
+    public boolean accepts(byte[] header) {
+      return isManifest(header);
+    }
+
+    @Override
+    public CodeTransformer read(Path path) throws IOException {
+      return RefasterRuleManifest.read(path);
+    }
+  }
+
+  private RefasterRuleManifest() {}
+}
@@ -16,13 +16,16 @@
 
 package com.google.errorprone.refaster;
 
-import static com.google.errorprone.util.ASTHelpers.stringContainsComments;
-
-import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.SubContext;
+import com.google.errorprone.SuppressionInfo;
+import com.google.errorprone.VisitorState;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.refaster.RefasterEngine.RuleTemplate;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.DoWhileLoopTree;
@@ -42,31 +45,81 @@ import com.sun.tools.javac.tree.JCTree.JCStatement;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
- * Scanner that outputs suggested fixes generated by a {@code RefasterMatcher}.
+ * Scanner that outputs suggested fixes generated by the rules of a {@link RefasterEngine}.
+ *
+ * <p>All of the rules are matched in a single pass. A rule that is suppressed on a declaration, or
+ * whose template class is being scanned, is disabled until the scanner leaves that declaration.
+ *
+ * <p>Matches are collected during the scan and reported by {@link #reportMatches} in rule order,
+ * as a {@link com.google.errorprone.CompositeCodeTransformer} of the rules would report them. The
+ * first of several overlapping fixes is the one that gets applied, so this keeps earlier rules
+ * taking precedence over later ones.
  *
  * @author lowasser@google.com (Louis Wasserman)
  */
-@AutoValue
-abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
-    extends TreeScanner<Void, Context> {
-  static <M extends TemplateMatch, T extends Template<M>> RefasterScanner<M, T> create(
-      RefasterRule<M, T> rule, DescriptionListener listener) {
-    return new AutoValue_RefasterScanner<>(rule, listener);
-  }
+final class RefasterScanner extends TreeScanner<Void, Context> {
+  private final ImmutableList<RefasterRule<?, ?>> rules;
+  private final TemplateIndex<RuleTemplate> templateIndex;
+  private final DescriptionListener listener;
+  private final Context fileContext;
+  private final VisitorState state;
+  private final ErrorProneTimings timings;
+  private final ClassSymbolCache classes;
+  private final TemplateProfile.Current currentProfile = new TemplateProfile.Current();
 
-  abstract RefasterRule<M, T> rule();
+  // The context to match each rule in, created on first use.
+  private final Context[] ruleContexts;
+  // The profile of each template of each rule, created on first use.
+  private final TemplateProfile[][] profiles;
+  // Whether the file contains the required identifiers of each template of each rule, checked on
+  // first use.
+  private final Boolean[][] hasIdentifiers;
+  // The names of the identifiers in the file, collected on first use.
+  @Nullable private Set<Name> fileIdentifiers;
+  private final boolean[] disabled;
+  private int enabledCount;
+  // The matches found so far, and the number of trees that had candidate templates.
+  private final List<PendingDescription> pending = new ArrayList<>();
+  private int treeCount;
 
-  abstract DescriptionListener listener();
+  RefasterScanner(
+      RefasterEngine engine,
+      Context fileContext,
+      ErrorProneTimings timings,
+      ClassSymbolCache classes,
+      DescriptionListener listener) {
+    this.rules = engine.rules();
+    this.templateIndex = engine.templateIndex();
+    this.listener = listener;
+    this.fileContext = fileContext;
+    this.state = VisitorState.createForUtilityPurposes(fileContext);
+    this.timings = timings;
+    this.classes = classes;
+    fileContext.put(TemplateProfile.CURRENT, currentProfile);
+    this.ruleContexts = new Context[rules.size()];
+    this.profiles = new TemplateProfile[rules.size()][];
+    this.hasIdentifiers = new Boolean[rules.size()][];
+    this.disabled = new boolean[rules.size()];
+    this.enabledCount = rules.size();
+  }
 
   @Override
   public Void visitClass(ClassTree node, Context context) {
-    if (isSuppressed(node, context)) {
-      return null;
-    }
     Symbol sym = ASTHelpers.getSymbol(node);
-    if (sym == null || !sym.getQualifiedName().contentEquals(rule().qualifiedTemplateClass())) {
+    List<Integer> newlyDisabled = disable(node, sym);
+    try {
+      if (enabledCount == 0) {
+        return null;
+      }
       ListBuffer<JCStatement> statements = new ListBuffer<>();
       for (Tree tree : node.getMembers()) {
         if (tree instanceof JCStatement) {
@@ -76,24 +129,67 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
         }
       }
       scan(TreeMaker.instance(context).Block(0, statements.toList()), context);
+      return null;
+    } finally {
+      enable(newlyDisabled);
     }
-    return null;
   }
 
   @Override
   public Void visitMethod(MethodTree node, Context context) {
-    if (isSuppressed(node, context)) {
-      return null;
+    List<Integer> newlyDisabled = disable(node, /* sym= */ null);
+    try {
+      return enabledCount == 0 ? null : super.visitMethod(node, context);
+    } finally {
+      enable(newlyDisabled);
     }
-    return super.visitMethod(node, context);
   }
 
   @Override
   public Void visitVariable(VariableTree node, Context context) {
-    if (isSuppressed(node, context)) {
-      return null;
+    List<Integer> newlyDisabled = disable(node, /* sym= */ null);
+    try {
+      return enabledCount == 0 ? null : super.visitVariable(node, context);
+    } finally {
+      enable(newlyDisabled);
+    }
+  }
+
+  /**
+   * Disables the enabled rules that are suppressed on the given declaration, or whose template
+   * class is {@code classSym}, and returns their indices.
+   */
+  private List<Integer> disable(Tree node, @Nullable Symbol classSym) {
+    SuppressionInfo suppressions = RefasterSuppressionHelper.suppressions(node, state);
+    if (suppressions == null && classSym == null) {
+      return ImmutableList.of();
+    }
+    List<Integer> newlyDisabled = ImmutableList.of();
+    for (int i = 0; i < rules.size(); i++) {
+      if (disabled[i]) {
+        continue;
+      }
+      RefasterRule<?, ?> rule = rules.get(i);
+      if ((classSym != null
+              && classSym.getQualifiedName().contentEquals(rule.qualifiedTemplateClass()))
+          || (suppressions != null
+              && RefasterSuppressionHelper.suppressed(rule, suppressions, state))) {
+        if (newlyDisabled.isEmpty()) {
+          newlyDisabled = new ArrayList<>();
+        }
+        disabled[i] = true;
+        enabledCount--;
+        newlyDisabled.add(i);
+      }
+    }
+    return newlyDisabled;
+  }
+
+  private void enable(List<Integer> rules) {
+    for (int i : rules) {
+      disabled[i] = false;
+      enabledCount++;
     }
-    return super.visitVariable(node, context);
   }
 
   @Override
@@ -101,35 +197,172 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
     if (tree == null) {
       return null;
     }
-    JCCompilationUnit compilationUnit = context.get(JCCompilationUnit.class);
-    for (T beforeTemplate : rule().beforeTemplates()) {
-      matchLoop:
-      for (M match : beforeTemplate.match((JCTree) tree, context)) {
-        if (rule().rejectMatchesWithComments()) {
-          String matchContents = match.getRange(compilationUnit);
-          if (stringContainsComments(matchContents, context)) {
-            continue matchLoop;
-          }
-        }
-        Description.Builder builder =
-            Description.builder(
-                match.getLocation(),
-                rule().qualifiedTemplateClass(),
-                "",
-                SeverityLevel.WARNING,
-                "");
-
-        if (rule().afterTemplates().isEmpty()) {
-          builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
-        } else {
-          for (T afterTemplate : rule().afterTemplates()) {
+    treeCount++;
+    for (RuleTemplate candidate : templateIndex.candidates((JCTree) tree)) {
+      if (!disabled[candidate.rule]) {
+        describeMatches(rules.get(candidate.rule), candidate, (JCTree) tree);
+      }
+    }
+    return super.scan(tree, context);
+  }
+
+  /**
+   * Reports the matches found by the scan, grouped by rule in the order of the rules, and then in
+   * the order in which each rule would have found them on its own.
+   */
+  void reportMatches() {
+    pending.sort(
+        Comparator.comparingInt((PendingDescription d) -> d.rule)
+            .thenComparingInt(d -> d.tree)
+            .thenComparingInt(d -> d.template));
+    for (PendingDescription match : pending) {
+      listener.onDescribed(match.description);
+    }
+    pending.clear();
+  }
+
+  private <M extends TemplateMatch, T extends Template<M>> void describeMatches(
+      RefasterRule<M, T> rule, RuleTemplate candidate, JCTree tree) {
+    if (!hasIdentifiers(rule, candidate)) {
+      return;
+    }
+    T beforeTemplate = rule.beforeTemplates().get(candidate.template);
+    if (!classes.canResolveRequiredClasses(beforeTemplate)) {
+      // Nothing in this compilation can match a template naming a class that isn't on the
+      // classpath.
+      return;
+    }
+    TemplateProfile profile = profile(rule, candidate);
+    profile.attempts.increment();
+    if (!beforeTemplate.couldMatch(tree)) {
+      return;
+    }
+    profile.shapeMatches.increment();
+    ImmutableList<M> matches;
+    currentProfile.profile = profile;
+    profile.match.start();
+    try {
+      matches = ImmutableList.copyOf(beforeTemplate.match(tree, ruleContext(candidate.rule)));
+    } finally {
+      profile.match.stop();
+      currentProfile.profile = null;
+    }
+    profile.matches.add(matches.size());
+    JCCompilationUnit compilationUnit = fileContext.get(JCCompilationUnit.class);
+    matchLoop:
+    for (M match : matches) {
+      if (rule.rejectMatchesWithComments()
+          && containsComments(match, compilationUnit, fileContext)) {
+        continue matchLoop;
+      }
+      Description.Builder builder =
+          Description.builder(
+              match.getLocation(), rule.qualifiedTemplateClass(), "", SeverityLevel.WARNING, "");
+
+      if (rule.afterTemplates().isEmpty()) {
+        builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
+      } else {
+        profile.inline.start();
+        try {
+          for (T afterTemplate : rule.afterTemplates()) {
             builder.addFix(afterTemplate.replace(match));
           }
+        } finally {
+          profile.inline.stop();
         }
-        listener().onDescribed(builder.build());
       }
+      pending.add(new PendingDescription(candidate, treeCount, builder.build()));
+    }
+  }
+
+  /**
+   * Returns true if the file contains the identifiers that the given template requires. This is
+   * checked before the template is loaded, so lazily loaded rules that can't match anything in the
+   * file are never decoded.
+   */
+  private boolean hasIdentifiers(RefasterRule<?, ?> rule, RuleTemplate candidate) {
+    Boolean[] ruleChecks = hasIdentifiers[candidate.rule];
+    if (ruleChecks == null) {
+      ruleChecks = new Boolean[rule.beforeTemplateKeys().size()];
+      hasIdentifiers[candidate.rule] = ruleChecks;
+    }
+    Boolean result = ruleChecks[candidate.template];
+    if (result == null) {
+      if (fileIdentifiers == null) {
+        fileIdentifiers = RequiredIdentifiers.in(fileContext.get(JCCompilationUnit.class));
+      }
+      result =
+          RequiredIdentifiers.containsAll(
+              fileIdentifiers,
+              rule.beforeTemplateIdentifiers().get(candidate.template),
+              Names.instance(fileContext));
+      ruleChecks[candidate.template] = result;
+    }
+    return result;
+  }
+
+  /** Returns the profile of the given template, which is named after its template method. */
+  private TemplateProfile profile(RefasterRule<?, ?> rule, RuleTemplate candidate) {
+    TemplateProfile[] ruleProfiles = profiles[candidate.rule];
+    if (ruleProfiles == null) {
+      ruleProfiles = new TemplateProfile[rule.beforeTemplates().size()];
+      profiles[candidate.rule] = ruleProfiles;
+    }
+    TemplateProfile profile = ruleProfiles[candidate.template];
+    if (profile == null) {
+      profile =
+          new TemplateProfile(
+              timings,
+              rule.qualifiedTemplateClass()
+                  + "."
+                  + rule.beforeTemplateNames().get(candidate.template));
+      ruleProfiles[candidate.template] = profile;
+    }
+    return profile;
+  }
+
+  /**
+   * Returns the context to match the given rule in. Rules without type variables share the context
+   * of the file.
+   */
+  private Context ruleContext(int ruleIndex) {
+    Context context = ruleContexts[ruleIndex];
+    if (context == null) {
+      ImmutableList<UTypeVar> typeVariables = rules.get(ruleIndex).typeVariables();
+      if (typeVariables.isEmpty()) {
+        context = fileContext;
+      } else {
+        context = new SubContext(fileContext);
+        context.put(RefasterRule.RULE_TYPE_VARS, typeVariables);
+      }
+      ruleContexts[ruleIndex] = context;
+    }
+    return context;
+  }
+
+  private static boolean containsComments(
+      TemplateMatch match, JCCompilationUnit compilationUnit, Context context) {
+    JCTree location = match.getLocation();
+    return context
+        .get(RefasterRule.COMPILATION_UNIT_TOKENS)
+        .get()
+        .containsComments(
+            location.getStartPosition(), location.getEndPosition(compilationUnit.endPositions));
+  }
+
+  /** A match that hasn't been reported yet, with the rule, tree and template that produced it. */
+  private static final class PendingDescription {
+    final int rule;
+    final int tree;
+    final int template;
+    final Description description;
+
+    PendingDescription(RuleTemplate candidate, int tree, Description description) {
+      this.rule = candidate.rule;
+      this.tree = tree;
+      this.template = candidate.template;
+      this.description = description;
     }
-    return super.scan(tree, context);
   }
 
   private static final SimpleTreeVisitor<Tree, Void> SKIP_PARENS =
@@ -178,8 +411,4 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
     scan(node.getElseStatement(), context);
     return null;
   }
-
-  private boolean isSuppressed(Tree node, Context context) {
-    return RefasterSuppressionHelper.suppressed(rule(), node, context);
-  }
 }
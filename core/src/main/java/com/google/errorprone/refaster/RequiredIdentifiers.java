@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableSet;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCMemberReference;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The identifiers that a compilation unit must contain for a template to match anything in it.
+ *
+ * <p>A template that invokes a method, or selects a field, only matches code that spells out the
+ * name of that method or field, whether qualified or not. So a compilation unit that never mentions
+ * one of those names can be skipped without looking at any of its trees. Class names aren't
+ * required, because inherited members can be referred to without them.
+ */
+final class RequiredIdentifiers {
+
+  /** Returns the identifiers that any tree matching the given template must contain. */
+  static ImmutableSet<String> of(Template<?> template) {
+    ImmutableSet.Builder<String> identifiers = ImmutableSet.builder();
+    com.sun.source.util.TreeScanner<Void, Void> scanner =
+        new com.sun.source.util.TreeScanner<Void, Void>() {
+          @Override
+          public Void scan(Tree tree, Void v) {
+            // Each alternative of an anyOf only needs to match on its own, and the arguments of a
+            // placeholder may not be used by the code it matches.
+            if (tree instanceof UAnyOf || tree instanceof UPlaceholderExpression) {
+              return null;
+            }
+            if (tree instanceof UMemberSelect) {
+              identifiers.add(((UMemberSelect) tree).getIdentifier().contents());
+            } else if (tree instanceof UStaticIdent) {
+              identifiers.add(((UStaticIdent) tree).getName().contents());
+            } else if (tree instanceof UMemberReference) {
+              String name = ((UMemberReference) tree).getName().contents();
+              if (!name.equals("<init>")) {
+                identifiers.add(name);
+              }
+            }
+            return super.scan(tree, v);
+          }
+        };
+    if (template instanceof ExpressionTemplate) {
+      scanner.scan(((ExpressionTemplate) template).expression(), null);
+    } else if (template instanceof BlockTemplate) {
+      scanner.scan(((BlockTemplate) template).templateStatements(), null);
+    }
+    return identifiers.build();
+  }
+
+  /** Returns the names of the identifiers, member selects and member references in a tree. */
+  static Set<Name> in(JCTree tree) {
+    Set<Name> names = new HashSet<>();
+    new TreeScanner() {
+      @Override
+      public void visitIdent(JCIdent tree) {
+        names.add(tree.name);
+      }
+
+      @Override
+      public void visitSelect(JCFieldAccess tree) {
+        names.add(tree.name);
+        super.visitSelect(tree);
+      }
+
+      @Override
+      public void visitReference(JCMemberReference tree) {
+        names.add(tree.name);
+        super.visitReference(tree);
+      }
+    }.scan(tree);
+    return names;
+  }
+
+  /** Returns true if the given names, from {@link #in}, contain all of the given identifiers. */
+  static boolean containsAll(Set<Name> names, ImmutableSet<String> identifiers, Names table) {
+    for (String identifier : identifiers) {
+      if (!names.contains(table.fromString(identifier))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private RequiredIdentifiers() {}
+}
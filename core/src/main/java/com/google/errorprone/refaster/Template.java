@@ -97,6 +97,14 @@ public abstract class Template<M extends TemplateMatch> implements Serializable
 
   public abstract Iterable<M> match(JCTree tree, Context context);
 
+  /**
+   * Returns false if this template certainly doesn't match {@code tree}, judging only by its shape.
+   * {@link #match} checks this itself, so callers only need it to tell the two apart.
+   */
+  boolean couldMatch(JCTree tree) {
+    return true;
+  }
+
   public abstract Fix replace(M match);
 
   Iterable<UTypeVar> typeVariables(Context context) {
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCExpression;
+import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.Name;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An index of templates by the trees they could possibly match, so that a scanner only attempts to
+ * unify the templates that have a chance of matching each node.
+ *
+ * <p>Templates are keyed on the root of their pattern. A {@link UTree} only unifies with targets
+ * that dispatch to the same {@link com.sun.source.tree.TreeVisitor} method, so most templates are
+ * keyed on the tree interface of their root (e.g. {@link com.sun.source.tree.BinaryTree}), and
+ * templates rooted at a method invocation are further keyed on the name of the invoked method.
+ * Templates whose root can unify with more than one kind of tree, such as placeholders and free
+ * identifiers, are candidates for every expression.
+ *
+ * <p>Candidates are returned in the order their templates were added to the index.
+ *
+ * @param <V> the type of value associated with each template
+ */
+final class TemplateIndex<V> {
+
+  /**
+   * Roots that only ever unify with trees of their own kind. Other {@link UExpression}s may look
+   * through parentheses or match by symbol (e.g. {@link UParens}, {@link UStaticIdent}).
+   */
+  private static final ImmutableSet<Class<?>> SINGLE_KIND_ROOTS =
+      ImmutableSet.of(
+          UArrayAccess.class,
+          UAssign.class,
+          UAssignOp.class,
+          UBinary.class,
+          UConditional.class,
+          UInstanceOf.class,
+          ULambda.class,
+          ULiteral.class,
+          UMemberReference.class,
+          UMethodInvocation.class,
+          UNewArray.class,
+          UNewClass.class,
+          UTypeCast.class,
+          UUnary.class);
+
+  static <V> Builder<V> builder() {
+    return new Builder<>();
+  }
+
+  /** Returns an index of the given templates, each associated with itself. */
+  static <T extends Template<?>> TemplateIndex<T> create(Iterable<T> templates) {
+    Builder<T> builder = builder();
+    for (T template : templates) {
+      builder.add(template, template);
+    }
+    return builder.build();
+  }
+
+  /** Where a template is filed in the index, determined by the root of its pattern. */
+  @AutoValue
+  abstract static class Key {
+    // Stored by ordinal in RefasterRuleBundle, so new types must be added at the end.
+    enum Type {
+      /** Templates that only match trees of the {@link Tree.Kind} named by the value. */
+      TREE_KIND,
+      /** Templates that only match invocations of methods with the name given by the value. */
+      METHOD_NAME,
+      /** Templates that could match any expression. */
+      ANY_EXPRESSION,
+      /** Templates that could match any tree. */
+      ANY_TREE
+    }
+
+    abstract Type type();
+
+    /** The tree kind or method name, or the empty string for the other types. */
+    abstract String value();
+
+    static Key create(Type type, String value) {
+      return new AutoValue_TemplateIndex_Key(type, value);
+    }
+
+    /** Returns the key of the given template. */
+    static Key of(Template<?> template) {
+      if (template instanceof ExpressionTemplate) {
+        UExpression root = ((ExpressionTemplate) template).expression();
+        String methodName = methodName(root);
+        if (methodName != null) {
+          return create(Type.METHOD_NAME, methodName);
+        } else if (SINGLE_KIND_ROOTS.stream().anyMatch(c -> c.isInstance(root))) {
+          return create(Type.TREE_KIND, root.getKind().name());
+        } else {
+          return create(Type.ANY_EXPRESSION, "");
+        }
+      } else if (template instanceof BlockTemplate) {
+        return create(Type.TREE_KIND, Tree.Kind.BLOCK.name());
+      } else {
+        return create(Type.ANY_TREE, "");
+      }
+    }
+  }
+
+  static final class Builder<V> {
+    private final ImmutableListMultimap.Builder<Class<? extends Tree>, Entry<V>> byTreeType =
+        ImmutableListMultimap.builder();
+    private final ImmutableListMultimap.Builder<String, Entry<V>> byMethodName =
+        ImmutableListMultimap.builder();
+    private final ImmutableList.Builder<Entry<V>> anyExpression = ImmutableList.builder();
+    private final ImmutableList.Builder<Entry<V>> anyTree = ImmutableList.builder();
+    private int size = 0;
+
+    private Builder() {}
+
+    Builder<V> add(Template<?> template, V value) {
+      return add(Key.of(template), value);
+    }
+
+    Builder<V> add(Key key, V value) {
+      Entry<V> entry = new Entry<>(size++, value);
+      switch (key.type()) {
+        case TREE_KIND:
+          byTreeType.put(Tree.Kind.valueOf(key.value()).asInterface(), entry);
+          break;
+        case METHOD_NAME:
+          byMethodName.put(key.value(), entry);
+          break;
+        case ANY_EXPRESSION:
+          anyExpression.add(entry);
+          break;
+        case ANY_TREE:
+          anyTree.add(entry);
+          break;
+      }
+      return this;
+    }
+
+    TemplateIndex<V> build() {
+      return new TemplateIndex<>(
+          byTreeType.build(), byMethodName.build(), anyExpression.build(), anyTree.build());
+    }
+  }
+
+  private final ImmutableListMultimap<Class<? extends Tree>, Entry<V>> byTreeType;
+  private final ImmutableListMultimap<String, Entry<V>> byMethodName;
+  private final ImmutableList<Entry<V>> anyExpression;
+  private final ImmutableList<Entry<V>> anyTree;
+
+  private TemplateIndex(
+      ImmutableListMultimap<Class<? extends Tree>, Entry<V>> byTreeType,
+      ImmutableListMultimap<String, Entry<V>> byMethodName,
+      ImmutableList<Entry<V>> anyExpression,
+      ImmutableList<Entry<V>> anyTree) {
+    this.byTreeType = byTreeType;
+    this.byMethodName = byMethodName;
+    this.anyExpression = anyExpression;
+    this.anyTree = anyTree;
+  }
+
+  /** Returns the values of the templates that could match the given tree. */
+  List<V> candidates(JCTree tree) {
+    List<Entry<V>> byType = byTreeType.get(tree.getKind().asInterface());
+    List<Entry<V>> byName = ImmutableList.of();
+    if (tree instanceof JCMethodInvocation && !byMethodName.isEmpty()) {
+      Name name = TreeInfo.name(((JCMethodInvocation) tree).getMethodSelect());
+      if (name != null) {
+        byName = byMethodName.get(name.toString());
+      }
+    }
+    List<Entry<V>> expression = tree instanceof JCExpression ? anyExpression : ImmutableList.of();
+    if (byType.isEmpty() && byName.isEmpty() && expression.isEmpty() && anyTree.isEmpty()) {
+      return ImmutableList.of();
+    }
+    return merge(byType, byName, expression, anyTree);
+  }
+
+  /** Merges lists of entries, each of which is sorted by order, into a list of their values. */
+  @SafeVarargs
+  private static <V> List<V> merge(List<Entry<V>>... lists) {
+    int size = 0;
+    for (List<Entry<V>> list : lists) {
+      size += list.size();
+    }
+    List<V> result = new ArrayList<>(size);
+    int[] positions = new int[lists.length];
+    while (result.size() < size) {
+      int next = -1;
+      for (int i = 0; i < lists.length; i++) {
+        if (positions[i] < lists[i].size()
+            && (next == -1
+                || lists[i].get(positions[i]).order < lists[next].get(positions[next]).order)) {
+          next = i;
+        }
+      }
+      result.add(lists[next].get(positions[next]++).value);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the name of the method invoked by the given template root, or null if the root isn't a
+   * method invocation or can invoke methods of more than one name.
+   */
+  @Nullable
+  private static String methodName(UExpression root) {
+    if (!(root instanceof UMethodInvocation)) {
+      return null;
+    }
+    UExpression methodSelect = ((UMethodInvocation) root).getMethodSelect();
+    if (methodSelect instanceof UMemberSelect) {
+      return ((UMemberSelect) methodSelect).getIdentifier().contents();
+    }
+    if (methodSelect instanceof UStaticIdent) {
+      return ((UStaticIdent) methodSelect).getName().contents();
+    }
+    return null;
+  }
+
+  private static final class Entry<V> {
+    final int order;
+    final V value;
+
+    Entry(int order, V value) {
+      this.order = order;
+      this.value = value;
+    }
+  }
+}
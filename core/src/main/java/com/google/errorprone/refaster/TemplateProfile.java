@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.base.Stopwatch;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ErrorProneTimings.Counter;
+import com.sun.tools.javac.util.Context;
+import javax.annotation.Nullable;
+
+/**
+ * Counters and timers for one before template of a Refaster rule, which are reported through
+ * {@link ErrorProneTimings} as {@code refaster:<template class>.<template method>:<measure>}.
+ *
+ * <ul>
+ *   <li>{@code attempts}: how often the template was tried against a tree it is indexed under
+ *   <li>{@code shape-matches}: how many of those trees passed the structural pre-check of node
+ *       kinds, literals and names, and were unified with the template
+ *   <li>{@code matches}: how many matches were found
+ *   <li>{@code match}: the time spent unifying and type-checking, including {@code verify}
+ *   <li>{@code verify}: the time spent re-verifying placeholders after unification
+ *   <li>{@code inline}: the time spent inlining after templates to build fixes
+ * </ul>
+ */
+final class TemplateProfile {
+
+  /** Holds the profile of the template being matched, for code that only has a context. */
+  static final class Current {
+    @Nullable TemplateProfile profile;
+  }
+
+  static final Context.Key<Current> CURRENT = new Context.Key<>();
+
+  final Counter attempts;
+  final Counter shapeMatches;
+  final Counter matches;
+  final Stopwatch match;
+  final Stopwatch verify;
+  final Stopwatch inline;
+
+  TemplateProfile(ErrorProneTimings timings, String template) {
+    String prefix = ErrorProneTimings.REFASTER_TEMPLATE_PREFIX + template + ":";
+    this.attempts = timings.counter(prefix + "attempts");
+    this.shapeMatches = timings.counter(prefix + "shape-matches");
+    this.matches = timings.counter(prefix + "matches");
+    this.match = timings.timer(prefix + "match");
+    this.verify = timings.timer(prefix + "verify");
+    this.inline = timings.timer(prefix + "inline");
+  }
+
+  /**
+   * Returns the timer for placeholder verification of the template being matched in the given
+   * context, or null if it isn't being profiled.
+   */
+  @Nullable
+  static Stopwatch verifyTimer(Context context) {
+    Current current = context.get(CURRENT);
+    if (current == null || current.profile == null) {
+      return null;
+    }
+    Stopwatch timer = current.profile.verify;
+    // Verification isn't re-entrant, but don't fail the compilation if that changes.
+    return timer.isRunning() ? null : timer;
+  }
+}
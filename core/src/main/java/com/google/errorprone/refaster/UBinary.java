@@ -22,9 +22,11 @@ import static com.google.errorprone.refaster.Unifier.unifications;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableBiMap;
 import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.TreeVisitor;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCBinary;
+import javax.annotation.Nullable;
 
 /**
  * {@link UTree} version of {@link BinaryTree}.
@@ -96,6 +98,16 @@ abstract class UBinary extends UExpression implements BinaryTree {
         .thenChoose(unifications(getRightOperand(), binary.getRightOperand()));
   }
 
+  @Override
+  boolean couldUnify(@Nullable Tree target) {
+    if (!(target instanceof BinaryTree) || !getKind().equals(target.getKind())) {
+      return false;
+    }
+    BinaryTree binary = (BinaryTree) target;
+    return getLeftOperand().couldUnify(binary.getLeftOperand())
+        && getRightOperand().couldUnify(binary.getRightOperand());
+  }
+
   @Override
   public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
     return visitor.visitBinary(this, data);
@@ -38,7 +38,11 @@ import java.util.UUID;
 @AutoValue
 abstract class UBlank implements UStatement {
   static UBlank create() {
-    return new AutoValue_UBlank(UUID.randomUUID());
+    return create(UUID.randomUUID());
+  }
+
+  static UBlank create(UUID unique) {
+    return new AutoValue_UBlank(unique);
   }
 
   abstract UUID unique();
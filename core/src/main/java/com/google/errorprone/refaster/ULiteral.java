@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkState;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableBiMap;
 import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.TreeVisitor;
 import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.tree.JCTree.JCLiteral;
@@ -111,6 +112,11 @@ public abstract class ULiteral extends UExpression implements LiteralTree {
     return Choice.condition(match(getValue(), literal.getValue()), unifier);
   }
 
+  @Override
+  boolean couldUnify(@Nullable Tree target) {
+    return target instanceof LiteralTree && match(getValue(), ((LiteralTree) target).getValue());
+  }
+
   @Override
   public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
     return visitor.visitLiteral(this, data);
@@ -22,9 +22,11 @@ import com.google.auto.value.AutoValue;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.TreeVisitor;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
+import javax.annotation.Nullable;
 
 /**
  * {@link UTree} version of {@link MemberSelectTree}.
@@ -75,6 +77,17 @@ public abstract class UMemberSelect extends UExpression implements MemberSelectT
     return Choice.none();
   }
 
+  @Override
+  boolean couldUnify(@Nullable Tree target) {
+    if (target instanceof MemberSelectTree) {
+      MemberSelectTree fieldAccess = (MemberSelectTree) target;
+      return getIdentifier().contentEquals(fieldAccess.getIdentifier())
+          && getExpression().couldUnify(fieldAccess.getExpression());
+    }
+    return target instanceof IdentifierTree
+        && getIdentifier().contentEquals(((IdentifierTree) target).getName());
+  }
+
   @Override
   public Kind getKind() {
     return Kind.MEMBER_SELECT;
@@ -20,7 +20,9 @@ import static com.google.errorprone.refaster.Unifier.unifications;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.TreeVisitor;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
@@ -59,6 +61,29 @@ public abstract class UMethodInvocation extends UExpression implements MethodInv
                 getArguments(), methodInvocation.getArguments(), /* allowVarargs= */ true));
   }
 
+  @Override
+  boolean couldUnify(@Nullable Tree target) {
+    if (!(target instanceof MethodInvocationTree)) {
+      return false;
+    }
+    MethodInvocationTree methodInvocation = (MethodInvocationTree) target;
+    if (!getMethodSelect().couldUnify(methodInvocation.getMethodSelect())) {
+      return false;
+    }
+    List<? extends ExpressionTree> arguments = methodInvocation.getArguments();
+    for (int i = 0; i < getArguments().size(); i++) {
+      UExpression argument = getArguments().get(i);
+      if (argument instanceof URepeated) {
+        // Matches any number of the remaining arguments, as in Unifier#unifyList.
+        return true;
+      }
+      if (i >= arguments.size() || !argument.couldUnify(arguments.get(i))) {
+        return false;
+      }
+    }
+    return getArguments().size() == arguments.size();
+  }
+
   @Override
   public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
     return visitor.visitMethodInvocation(this, data);
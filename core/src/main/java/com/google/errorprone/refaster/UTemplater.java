@@ -627,13 +627,13 @@ public class UTemplater extends SimpleTreeVisitor<Tree, Void> {
   /**
    * Returns the {@link Class} instance for the {@link Matcher} associated with the provided {@link
    * Matches} annotation. This roundabout solution is recommended and explained by {@link
-   * Element#getAnnotation(Class)}.
+   * Element#getAnnotation(Class)}, although annotations decoded from a {@link RefasterRuleBundle}
+   * return the class directly.
    */
   static Class<? extends Matcher<? super ExpressionTree>> getValue(Matches matches) {
     String name;
     try {
-      matches.value();
-      throw new RuntimeException("unreachable");
+      return asSubclass(matches.value(), new TypeToken<Matcher<? super ExpressionTree>>() {});
     } catch (MirroredTypeException e) {
       DeclaredType type = (DeclaredType) e.getTypeMirror();
       name = ((TypeElement) type.asElement()).getQualifiedName().toString();
@@ -648,13 +648,13 @@ public class UTemplater extends SimpleTreeVisitor<Tree, Void> {
   /**
    * Returns the {@link Class} instance for the {@link Matcher} associated with the provided {@link
    * NotMatches} annotation. This roundabout solution is recommended and explained by {@link
-   * Element#getAnnotation(Class)}.
+   * Element#getAnnotation(Class)}, although annotations decoded from a {@link RefasterRuleBundle}
+   * return the class directly.
    */
   static Class<? extends Matcher<? super ExpressionTree>> getValue(NotMatches matches) {
     String name;
     try {
-      matches.value();
-      throw new RuntimeException("unreachable");
+      return asSubclass(matches.value(), new TypeToken<Matcher<? super ExpressionTree>>() {});
     } catch (MirroredTypeException e) {
       DeclaredType type = (DeclaredType) e.getTypeMirror();
       name = ((TypeElement) type.asElement()).getQualifiedName().toString();
@@ -947,7 +947,7 @@ public class UTemplater extends SimpleTreeVisitor<Tree, Void> {
 
   // Class.forName() needs nested classes as "foo.Bar$Baz$Quux", not "foo.Bar.Baz.Quux"
   // (which is what getQualifiedName() returns).
-  private static String classNameFrom(TypeElement type) {
+  static String classNameFrom(TypeElement type) {
     // Get the full type name (e.g. "foo.Bar.Baz.Quux") before walking up the hierarchy.
     String typeName = type.getQualifiedName().toString();
     // Find outermost enclosing type (e.g. "foo.Bar" in our example), possibly several levels up.
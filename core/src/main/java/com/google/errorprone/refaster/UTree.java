@@ -35,6 +35,16 @@ public abstract class UTree<T extends JCTree> extends SimpleTreeVisitor<Choice<U
     return (target != null) ? target.accept(this, unifier) : Choice.<Unifier>none();
   }
 
+  /**
+   * Returns false if this tree can't unify with {@code target}, judging only by the kinds of their
+   * nodes, their literals and their names. This is much cheaper than {@link #unify}, which explores
+   * every alternative unification, so it is checked first. Trees that can unify with targets of a
+   * different shape, such as free identifiers and placeholders, return true.
+   */
+  boolean couldUnify(@Nullable Tree target) {
+    return true;
+  }
+
   @Override
   protected Choice<Unifier> defaultAction(Tree node, Unifier unifier) {
     return Choice.none();
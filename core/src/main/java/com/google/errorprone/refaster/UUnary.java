@@ -73,6 +73,14 @@ abstract class UUnary extends UExpression implements UnaryTree {
             unifications(getExpression(), ASTHelpers.stripParentheses(unary.getExpression())));
   }
 
+  @Override
+  boolean couldUnify(@Nullable Tree target) {
+    return target instanceof UnaryTree
+        && getKind().equals(target.getKind())
+        && getExpression()
+            .couldUnify(ASTHelpers.stripParentheses(((UnaryTree) target).getExpression()));
+  }
+
   @Override
   public <R, D> R accept(TreeVisitor<R, D> visitor, D data) {
     return visitor.visitUnary(this, data);
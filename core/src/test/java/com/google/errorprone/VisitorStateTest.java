@@ -16,20 +16,41 @@
 
 package com.google.errorprone;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
+import com.google.errorprone.util.SubtypeCache;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
 import com.sun.tools.javac.api.BasicJavacTask;
 import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.util.Context;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 /** Tests for {@link VisitorState}. */
 @RunWith(JUnit4.class)
 public class VisitorStateTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Test
   public void symbolFromString_defaultPackage() {
@@ -57,6 +78,71 @@ public class VisitorStateTest {
         .isEqualTo("com.google.RegularClass$Nested");
   }
 
+  @Test
+  public void getSymbolFromString_modulePath() throws Exception {
+    Path modulePath = temporaryFolder.newFolder("modules").toPath();
+    compileModule(
+        modulePath.resolve("a"),
+        source("module-info.java", "module a { exports a.only; exports split; }"),
+        source("a/only/OnlyInA.java", "package a.only; public class OnlyInA {}"),
+        source("split/InA.java", "package split; public class InA {}"));
+    compileModule(
+        modulePath.resolve("b"),
+        source("module-info.java", "module b { exports split; }"),
+        source("split/InB.java", "package split; public class InB {}"));
+    // Module m only reads a, so the package split between a and b isn't a compilation error. The
+    // shared test file manager isn't used, since the module path would stay set for other tests.
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                JavacTool.create().getStandardFileManager(null, null, UTF_8),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of(
+                    "--module-path", modulePath.toString(), "--add-modules", "b"),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.of(
+                    source("module-info.java", "module m { requires a; }"),
+                    source("m/Test.java", "package m; class Test {}")));
+    task.analyze();
+    VisitorState state =
+        VisitorState.createForUtilityPurposes(((BasicJavacTask) task).getContext());
+    assertThat(state.getSymtab().getPackagesForName(state.getName("split"))).hasSize(2);
+
+    assertThat(moduleOf(state.getSymbolFromString("a.only.OnlyInA"))).isEqualTo("a");
+    assertThat(moduleOf(state.getSymbolFromString("split.InA"))).isEqualTo("a");
+    assertThat(moduleOf(state.getSymbolFromString("split.InB"))).isEqualTo("b");
+    assertThat(moduleOf(state.getSymbolFromString("java.lang.String"))).isEqualTo("java.base");
+    // No module has the package.
+    assertThat(state.getSymbolFromString("nowhere.Missing")).isNull();
+  }
+
+  private static void compileModule(Path output, JavaFileObject... sources) {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                JavacTool.create().getStandardFileManager(null, null, UTF_8),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of("-d", output.toString()),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.copyOf(sources));
+    assertThat(task.call()).isTrue();
+  }
+
+  private static JavaFileObject source(String path, String content) {
+    return new SimpleJavaFileObject(URI.create("file:///" + path), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+  }
+
+  private static String moduleOf(Symbol symbol) {
+    return symbol.packge().modle.getQualifiedName().toString();
+  }
+
   @Test
   public void getConstantExpression() {
     JavacTask task =
@@ -75,4 +161,134 @@ public class VisitorStateTest {
         .isEqualTo("\"hello \\n world\"");
     assertThat(visitorState.getConstantExpression('\'')).isEqualTo("'\\''");
   }
+
+  @Test
+  public void getTypeFromString_sharedAcrossCompilationUnits() {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                FileManagers.testFileManager(),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of(),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.of());
+    Context context = ((BasicJavacTask) task).getContext();
+    Map<String, Type> resolved = VisitorState.ResolvedTypes.instance(context).types;
+    VisitorState first = VisitorState.createForUtilityPurposes(context);
+
+    Type string = first.getTypeFromString("java.lang.String");
+    assertThat(resolved).containsEntry("java.lang.String", string);
+    // Later compilation units take the type from the shared map, rather than looking it up again.
+    Type standIn = first.getSymtab().objectType;
+    resolved.put("java.lang.String", standIn);
+    VisitorState second = VisitorState.createForUtilityPurposes(context);
+    assertThat(second.getTypeFromString("java.lang.String")).isSameInstanceAs(standIn);
+  }
+
+  @Test
+  public void getTypeFromString_missIsNotSharedAcrossCompilationUnits() {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                FileManagers.testFileManager(),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of(),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.of());
+    Context context = ((BasicJavacTask) task).getContext();
+    Map<String, Type> resolved = VisitorState.ResolvedTypes.instance(context).types;
+    VisitorState first = VisitorState.createForUtilityPurposes(context);
+
+    assertThat(first.getTypeFromString("com.example.Later")).isNull();
+    assertThat(resolved).doesNotContainKey("com.example.Later");
+
+    // Another compilation unit finds the type, e.g. because it was generated in the meantime.
+    Type later = first.getSymtab().objectType;
+    resolved.put("com.example.Later", later);
+    VisitorState second = VisitorState.createForUtilityPurposes(context);
+    assertThat(second.getTypeFromString("com.example.Later")).isSameInstanceAs(later);
+  }
+
+  @Test
+  public void memoizeForNode() {
+    JavaFileObject source =
+        new SimpleJavaFileObject(URI.create("file:///Test.java"), JavaFileObject.Kind.SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return "class Test { int x; int y; }";
+          }
+        };
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                FileManagers.testFileManager(),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of(),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.of(source));
+    CompilationUnitTree compilation = getOnlyElement(task.parse());
+    ClassTree classTree = (ClassTree) getOnlyElement(compilation.getTypeDecls());
+    TreePath classPath = new TreePath(new TreePath(compilation), classTree);
+    Tree x = classTree.getMembers().get(0);
+    Tree y = classTree.getMembers().get(1);
+    Context context = ((BasicJavacTask) task).getContext();
+    AtomicInteger computed = new AtomicInteger();
+    Function<Tree, Integer> compute = tree -> computed.incrementAndGet();
+
+    VisitorState state =
+        VisitorState.createForUtilityPurposes(context).withPath(new TreePath(classPath, x));
+    assertThat(state.memoizeForNode(x, compute)).isEqualTo(1);
+    assertThat(state.memoizeForNode(x, compute)).isEqualTo(1);
+    assertThat(state.memoizeForNode(y, compute)).isEqualTo(2);
+    // Another state for the same node shares the cache.
+    assertThat(state.withPath(new TreePath(classPath, x)).memoizeForNode(x, compute)).isEqualTo(1);
+    // Moving on to another node clears it.
+    VisitorState next = state.withPath(new TreePath(classPath, y));
+    assertThat(next.memoizeForNode(x, compute)).isEqualTo(3);
+    assertThat(next.memoizeForNode(y, compute)).isEqualTo(4);
+    assertThat(computed.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void subtypeCache() {
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                /* out= */ null,
+                FileManagers.testFileManager(),
+                /* diagnosticListener= */ null,
+                /* options= */ ImmutableList.of(),
+                /* classes= */ ImmutableList.of(),
+                /* compilationUnits= */ ImmutableList.of());
+    Context context = ((BasicJavacTask) task).getContext();
+    VisitorState state = VisitorState.createForUtilityPurposes(context);
+    Symtab symtab = state.getSymtab();
+    Types types = state.getTypes();
+    SubtypeCache cache = state.getSubtypeCache();
+
+    assertThat(cache.isSubtype(symtab.stringType, symtab.objectType, state)).isTrue();
+    assertThat(cache.isSubtype(symtab.stringType, symtab.objectType, state)).isTrue();
+    assertThat(cache.isSubtype(symtab.objectType, symtab.stringType, state)).isFalse();
+    assertThat(cache.isSubtype(symtab.stringType, symtab.comparableType, state)).isTrue();
+    // Array types aren't cached, since they all share the same symbol.
+    assertThat(
+            cache.isSubtype(
+                types.makeArrayType(symtab.stringType),
+                types.makeArrayType(symtab.objectType),
+                state))
+        .isTrue();
+    assertThat(
+            cache.isSubtype(
+                types.makeArrayType(symtab.objectType),
+                types.makeArrayType(symtab.stringType),
+                state))
+        .isFalse();
+    assertThat(cache.isSubtype(null, symtab.objectType, state)).isFalse();
+
+    assertThat(ErrorProneTimings.instance(context).counts())
+        .containsAtLeast("subtype-cache:hits", 1L, "subtype-cache:misses", 3L);
+  }
 }
@@ -18,10 +18,13 @@ package com.google.errorprone.matchers.method;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.matchers.Matchers.anyMethod;
+import static com.google.errorprone.matchers.Matchers.constructor;
 import static com.google.errorprone.matchers.Matchers.instanceMethod;
 import static com.google.errorprone.matchers.Matchers.staticMethod;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.VisitorState;
@@ -30,6 +33,10 @@ import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Rule;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Token;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.TokenType;
+import com.google.errorprone.scanner.ScannerSupplier;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import org.junit.Test;
@@ -60,6 +67,199 @@ public class MethodInvocationMatcherTest {
         .doTest();
   }
 
+  @Test
+  public void prefilter() {
+    CompilationTestHelper.newInstance(PrefilteredChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  public String toString() {",
+            "    System.out.println(\"Stringifying\");",
+            "    // BUG: Diagnostic contains: ",
+            "    String s = \"5\".toString();",
+            "    // BUG: Diagnostic contains: ",
+            "    int result = Integer.valueOf(5).compareTo(6);",
+            "    int hash = s.hashCode();",
+            "    // BUG: Diagnostic contains: ",
+            "    return String.valueOf(5);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void overlappingPrefilters() {
+    CompilationTestHelper.newInstance(
+            ScannerSupplier.fromBugCheckerClasses(
+                PrefilteredChecker.class, OverlappingPrefilteredChecker.class),
+            getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  public String toString() {",
+            "    System.out.println(\"Stringifying\");",
+            "    // BUG: Diagnostic contains: [PrefilteredChecker]",
+            "    // [OverlappingPrefilteredChecker]",
+            "    String s = \"5\".toString();",
+            "    // BUG: Diagnostic contains: [PrefilteredChecker]",
+            "    int result = Integer.valueOf(5).compareTo(6);",
+            "    // BUG: Diagnostic contains: [OverlappingPrefilteredChecker]",
+            "    int hash = s.hashCode();",
+            "    // BUG: Diagnostic contains: [PrefilteredChecker]",
+            "    return String.valueOf(5);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void receiverSupertypes() {
+    CompilationTestHelper.newInstance(ReceiverSupertypeChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "import java.util.ArrayList;",
+            "import java.util.List;",
+            "import java.util.Map;",
+            "import java.util.Set;",
+            "class Test {",
+            "  int f(List<String> l, Set<String> s, ArrayList<String> a, Map<String, String> m) {",
+            "    // BUG: Diagnostic contains: ",
+            "    int x = l.size();",
+            "    // BUG: Diagnostic contains: ",
+            "    x += l.size();",
+            "    // BUG: Diagnostic contains: ",
+            "    x += s.size();",
+            "    // BUG: Diagnostic contains: ",
+            "    x += a.size();",
+            "    x += m.size();",
+            "    // BUG: Diagnostic contains: ",
+            "    x += \"s\".length();",
+            "    x += l.hashCode();",
+            "    return x;",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void compiledAnyOf() {
+    CompilationTestHelper.newInstance(AnyOfChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "import java.util.List;",
+            "class Test {",
+            "  void f(List<String> l, String s, StringBuilder sb) {",
+            "    // BUG: Diagnostic contains: ",
+            "    l.size();",
+            "    // BUG: Diagnostic contains: ",
+            "    s.trim();",
+            "    // BUG: Diagnostic contains: ",
+            "    s.length();",
+            "    sb.length();",
+            "    // BUG: Diagnostic contains: ",
+            "    String.valueOf(1);",
+            "    // BUG: Diagnostic contains: ",
+            "    Math.max(1, 2);",
+            "    Math.min(1, 2);",
+            "    // BUG: Diagnostic contains: ",
+            "    s.hashCode();",
+            "    l.hashCode();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  /** A {@link BugChecker} that flags invocations matched by a long, compiled {@code anyOf}. */
+  @BugPattern(
+      summary = "Checker that flags invocations matched by any of a few matchers",
+      severity = ERROR)
+  public static class AnyOfChecker extends BugChecker implements MethodInvocationTreeMatcher {
+    private static final Matcher<ExpressionTree> MATCHER =
+        Matchers.anyOf(
+            instanceMethod().onDescendantOf("java.util.Collection").namedAnyOf("size", "isEmpty"),
+            instanceMethod().onExactClass("java.lang.String").named("trim"),
+            instanceMethod().onExactClass("java.lang.String").named("length"),
+            instanceMethod().onExactClass("java.lang.String").named("hashCode"),
+            staticMethod().onClass("java.lang.String").named("valueOf"),
+            staticMethod().onClass("java.lang.Math").named("max"),
+            staticMethod().onClass("java.lang.Math").named("abs"),
+            constructor().forClass("java.lang.String"));
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return MATCHER.matches(tree, state) ? describeMatch(tree) : Description.NO_MATCH;
+    }
+  }
+
+  /**
+   * A {@link BugChecker} that flags invocations of methods of the given names on subtypes of the
+   * given classes, with a matcher compiled from low-level rules.
+   */
+  @BugPattern(
+      summary = "Checker that flags invocations on subtypes of a few classes",
+      severity = ERROR)
+  public static class ReceiverSupertypeChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    private static final Matcher<ExpressionTree> MATCHER =
+        MethodInvocationMatcher.compile(
+            ImmutableList.of(
+                rule("java.util.Collection", "size"),
+                rule("java.util.List", "size"),
+                rule("java.lang.CharSequence", "length")));
+
+    private static Rule rule(String supertype, String name) {
+      return Rule.create(
+          ImmutableMap.of(
+              TokenType.RECEIVER_SUPERTYPE,
+              ImmutableSet.<Token>of(Token.ReceiverSupertype.create(supertype)),
+              TokenType.METHOD_NAME,
+              ImmutableSet.<Token>of(Token.MethodName.create(name))));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return MATCHER.matches(tree, state) ? describeMatch(tree) : Description.NO_MATCH;
+    }
+  }
+
+  /**
+   * A {@link BugChecker} that flags every method invocation it is called for, to test that the
+   * scanner only calls it for invocations that its prefilter matches.
+   */
+  @BugPattern(summary = "Checker that flags every method invocation it sees", severity = ERROR)
+  public static class PrefilteredChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+      return ImmutableList.of(
+          instanceMethod().anyClass().namedAnyOf("toString", "compareTo"),
+          staticMethod().anyClass().named("valueOf"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  /**
+   * Like {@link PrefilteredChecker}, with a prefilter that overlaps with its prefilter on {@code
+   * toString}.
+   */
+  @BugPattern(summary = "Checker that flags every method invocation it sees", severity = ERROR)
+  public static class OverlappingPrefilteredChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> methodInvocationPrefilter() {
+      return ImmutableList.of(instanceMethod().anyClass().namedAnyOf("toString", "hashCode"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
   /** A {@link BugChecker} for test. */
   @BugPattern(
       summary = "Checker that flags the given method invocation if the matcher matches",
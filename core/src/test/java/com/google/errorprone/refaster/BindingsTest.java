@@ -16,6 +16,7 @@
 
 package com.google.errorprone.refaster;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import com.google.common.testing.EqualsTester;
@@ -55,4 +56,26 @@ public class BindingsTest {
         .addEqualityGroup(new OtherKey("foo"))
         .testEquals();
   }
+
+  @Test
+  public void testCopiesAreIndependent() {
+    Bindings original = Bindings.create(new Key("foo"), "a");
+    Bindings copy = Bindings.create(original);
+    copy.putBinding(new Key("bar"), "b");
+    original.putBinding(new Key("baz"), "c");
+
+    assertThat(original).containsExactly(new Key("foo"), "a", new Key("baz"), "c");
+    assertThat(copy).containsExactly(new Key("foo"), "a", new Key("bar"), "b");
+  }
+
+  @Test
+  public void testUnmodifiableViewIsLive() {
+    Bindings bindings = Bindings.create(new Key("foo"), "a");
+    Bindings view = bindings.unmodifiable();
+    Bindings unused = Bindings.create(bindings);
+    bindings.putBinding(new Key("bar"), "b");
+
+    assertThat(view).containsExactly(new Key("foo"), "a", new Key("bar"), "b");
+    assertThrows(UnsupportedOperationException.class, () -> view.put(new Key("baz"), "c"));
+  }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.Tree.Kind;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RefasterEngine}. */
+@RunWith(JUnit4.class)
+public class RefasterEngineTest extends CompilerBasedTest {
+
+  @Test
+  public void reportsMatchesOfEachRule() {
+    compile(
+        "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+        "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+        "class Foo {",
+        "  static class IsEmpty {",
+        "    @BeforeTemplate boolean beforeIsEmpty(String s) { return s.length() == 0; }",
+        "    @AfterTemplate boolean afterIsEmpty(String s) { return s.isEmpty(); }",
+        "  }",
+        "  static class PlusOne {",
+        "    @BeforeTemplate int beforePlusOne(int a) { return a + 1; }",
+        "    @AfterTemplate int afterPlusOne(int a) { return 1 + a; }",
+        "  }",
+        "  boolean f(String s) {",
+        "    return s.length() == 0;",
+        "  }",
+        "  @SuppressWarnings(\"PlusOne\")",
+        "  int g(int x) {",
+        "    return x + 1;",
+        "  }",
+        "  int h(String s) {",
+        "    return s.length() + 1;",
+        "  }",
+        "}");
+    JCCompilationUnit compilationUnit = Iterables.getOnlyElement(compilationUnits);
+    List<CodeTransformer> rules = new ArrayList<>();
+    for (Tree member :
+        ((ClassTree) Iterables.getOnlyElement(compilationUnit.getTypeDecls())).getMembers()) {
+      if (member instanceof ClassTree) {
+        rules.addAll(RefasterRuleBuilderScanner.extractRules((ClassTree) member, context));
+      }
+    }
+
+    CodeTransformer engine = RefasterEngine.create(rules);
+    List<Description> descriptions = new ArrayList<>();
+    engine.apply(new TreePath(compilationUnit), context, descriptions::add);
+
+    assertThat(engine).isInstanceOf(RefasterEngine.class);
+    assertThat(descriptions.stream().map(d -> d.checkName).collect(toImmutableList()))
+        .containsExactly("Foo.IsEmpty", "Foo.PlusOne")
+        .inOrder();
+  }
+
+  @Test
+  public void reportsOverlappingMatchesInRuleOrder() {
+    compile(
+        "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+        "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+        "class Foo {",
+        "  static class PlusOne {",
+        "    @BeforeTemplate int beforePlusOne(int a) { return a + 1; }",
+        "    @AfterTemplate int afterPlusOne(int a) { return 1 + a; }",
+        "  }",
+        "  static class TimesTwo {",
+        "    @BeforeTemplate int beforeTimesTwo(int a) { return a * 2; }",
+        "    @AfterTemplate int afterTimesTwo(int a) { return a << 1; }",
+        "  }",
+        "  int f(int x) {",
+        "    return (x + 1) * 2;",
+        "  }",
+        "  int g(int x) {",
+        "    return x + 1;",
+        "  }",
+        "}");
+    JCCompilationUnit compilationUnit = Iterables.getOnlyElement(compilationUnits);
+    List<CodeTransformer> rules = new ArrayList<>();
+    for (Tree member :
+        ((ClassTree) Iterables.getOnlyElement(compilationUnit.getTypeDecls())).getMembers()) {
+      if (member instanceof ClassTree) {
+        rules.addAll(RefasterRuleBuilderScanner.extractRules((ClassTree) member, context));
+      }
+    }
+
+    List<Description> fromEngine = new ArrayList<>();
+    RefasterEngine.create(rules).apply(new TreePath(compilationUnit), context, fromEngine::add);
+    List<Description> fromComposite = new ArrayList<>();
+    for (CodeTransformer rule : rules) {
+      rule.apply(new TreePath(compilationUnit), context, fromComposite::add);
+    }
+
+    // TimesTwo matches the enclosing tree, which is scanned first, but PlusOne's fix to the tree
+    // inside it comes first, so it wins when the fixes are applied.
+    assertThat(fromEngine.stream().map(d -> d.checkName).collect(toImmutableList()))
+        .containsExactly("Foo.PlusOne", "Foo.PlusOne", "Foo.TimesTwo")
+        .inOrder();
+    assertThat(startPositions(fromEngine))
+        .containsExactlyElementsIn(startPositions(fromComposite))
+        .inOrder();
+  }
+
+  @Test
+  public void profilesEachTemplate() {
+    compile(
+        "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+        "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+        "class Foo {",
+        "  static class IsEmpty {",
+        "    @BeforeTemplate boolean beforeIsEmpty(String s) { return s.length() == 0; }",
+        "    @AfterTemplate boolean afterIsEmpty(String s) { return s.isEmpty(); }",
+        "  }",
+        "  boolean f(String s, int i) {",
+        "    return s.length() == 0 || i == 1;",
+        "  }",
+        "}");
+    JCCompilationUnit compilationUnit = Iterables.getOnlyElement(compilationUnits);
+    ClassTree rule =
+        (ClassTree)
+            ((ClassTree) Iterables.getOnlyElement(compilationUnit.getTypeDecls()))
+                .getMembers()
+                .get(0);
+    CodeTransformer engine =
+        RefasterEngine.create(RefasterRuleBuilderScanner.extractRules(rule, context));
+
+    engine.apply(new TreePath(compilationUnit), context, d -> {});
+
+    ErrorProneTimings timings = ErrorProneTimings.instance(context);
+    String prefix = "refaster:Foo.IsEmpty.beforeIsEmpty:";
+    assertThat(timings.counts())
+        .containsAtLeast(
+            prefix + "attempts", 2L, prefix + "shape-matches", 1L, prefix + "matches", 1L);
+    assertThat(timings.timings()).containsKey(prefix + "match");
+  }
+
+  @Test
+  public void skipsTemplatesWhoseIdentifiersAreMissingFromFile() {
+    compile("class Foo {", "  boolean f(int i) {", "    return i == 0;", "  }", "}");
+    // s.length() == 0
+    RefasterRule<?, ?> isEmpty =
+        RefasterRule.create(
+            "Foo.IsEmpty",
+            ImmutableList.of(
+                ExpressionTemplate.create(
+                    ImmutableMap.of("s", UClassType.create("java.lang.String")),
+                    UBinary.create(
+                        Kind.EQUAL_TO,
+                        UMethodInvocation.create(
+                            UMemberSelect.create(
+                                UFreeIdent.create("s"),
+                                "length",
+                                UMethodType.create(UPrimitiveType.INT))),
+                        ULiteral.intLit(0)),
+                    UPrimitiveType.BOOLEAN)),
+            ImmutableList.of());
+    CodeTransformer engine = RefasterEngine.create(ImmutableList.of(isEmpty));
+
+    engine.apply(new TreePath(Iterables.getOnlyElement(compilationUnits)), context, d -> {});
+
+    assertThat(isEmpty.beforeTemplateIdentifiers()).containsExactly(ImmutableSet.of("length"));
+    assertThat(ErrorProneTimings.instance(context).counts())
+        .doesNotContainKey("refaster:Foo.IsEmpty.before0:attempts");
+  }
+
+  @Test
+  public void skipsTemplatesWithClassesMissingFromClasspath() {
+    compile("class Foo {", "  int f() {", "    return 1;", "  }", "}");
+    RefasterRule<?, ?> missing =
+        RefasterRule.create(
+            "Foo.Missing",
+            ImmutableList.of(
+                ExpressionTemplate.create(
+                    ImmutableMap.of("x", UClassType.create("com.example.Missing")),
+                    ULiteral.intLit(1),
+                    UPrimitiveType.INT)),
+            ImmutableList.of());
+    RefasterRule<?, ?> present =
+        RefasterRule.create(
+            "Foo.Present",
+            ImmutableList.of(
+                ExpressionTemplate.create(
+                    ImmutableMap.of("x", UClassType.create("java.lang.String")),
+                    ULiteral.intLit(1),
+                    UPrimitiveType.INT)),
+            ImmutableList.of());
+    CodeTransformer engine = RefasterEngine.create(ImmutableList.of(missing, present));
+
+    engine.apply(new TreePath(Iterables.getOnlyElement(compilationUnits)), context, d -> {});
+
+    assertThat(ClassSymbolCache.get(context).resolve("com.example.Missing").isPresent()).isFalse();
+    assertThat(ErrorProneTimings.instance(context).counts())
+        .doesNotContainKey("refaster:Foo.Missing.before0:attempts");
+    assertThat(ErrorProneTimings.instance(context).counts())
+        .containsEntry("refaster:Foo.Present.before0:attempts", 1L);
+  }
+
+  @Test
+  public void flattensCompositeTransformers() {
+    RefasterRule<?, ?> first =
+        RefasterRule.create(
+            "Foo.First",
+            ImmutableList.of(ExpressionTemplate.create(ULiteral.intLit(1), UPrimitiveType.INT)),
+            ImmutableList.of());
+    RefasterRule<?, ?> second =
+        RefasterRule.create(
+            "Foo.Second",
+            ImmutableList.of(ExpressionTemplate.create(ULiteral.intLit(2), UPrimitiveType.INT)),
+            ImmutableList.of());
+
+    CodeTransformer engine =
+        RefasterEngine.create(
+            ImmutableList.of(first, CompositeCodeTransformer.compose(second, first)));
+
+    assertThat(((RefasterEngine) engine).rules()).containsExactly(first, second, first).inOrder();
+  }
+
+  private static ImmutableList<Integer> startPositions(List<Description> descriptions) {
+    return descriptions.stream().map(d -> d.position.getStartPosition()).collect(toImmutableList());
+  }
+}
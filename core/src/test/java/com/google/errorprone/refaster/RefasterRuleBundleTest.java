@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CodeTransformerLoader;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.sun.source.tree.Tree.Kind;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RefasterRuleBundle}. */
+@RunWith(JUnit4.class)
+public class RefasterRuleBundleTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final RefasterRule<?, ?> PLUS =
+      RefasterRule.create(
+          "Foo.Plus",
+          ImmutableList.of(
+              ExpressionTemplate.create(
+                  UBinary.create(Kind.PLUS, UFreeIdent.create("a"), ULiteral.intLit(1)),
+                  UPrimitiveType.INT)),
+          ImmutableList.of(
+              ExpressionTemplate.create(
+                  UBinary.create(Kind.PLUS, ULiteral.intLit(1), UFreeIdent.create("a")),
+                  UPrimitiveType.INT)));
+
+  private static final RefasterRule<?, ?> ANY =
+      RefasterRule.create(
+          "Foo.Any",
+          ImmutableList.of(ExpressionTemplate.create(UFreeIdent.create("x"), UPrimitiveType.INT)),
+          ImmutableList.of());
+
+  @Test
+  public void roundTrip() throws IOException {
+    Path path = temporaryFolder.newFile("rules.bundle").toPath();
+    try (OutputStream out = Files.newOutputStream(path)) {
+      RefasterRuleBundle.write(ImmutableList.of(PLUS, ANY), out);
+    }
+
+    CodeTransformer transformer = CodeTransformerLoader.load(path);
+
+    assertThat(transformer).isInstanceOf(RefasterEngine.class);
+    ImmutableList<RefasterRule<?, ?>> rules = ((RefasterEngine) transformer).rules();
+    assertThat(rules).hasSize(2);
+    assertThat(rules.get(0)).isInstanceOf(LazyRefasterRule.class);
+    assertThat(rules.get(0).qualifiedTemplateClass()).isEqualTo("Foo.Plus");
+    assertThat(rules.get(0).beforeTemplateKeys()).isEqualTo(PLUS.beforeTemplateKeys());
+    assertThat(rules.get(1).beforeTemplateKeys()).isEqualTo(ANY.beforeTemplateKeys());
+    assertThat(rules.get(0).beforeTemplates()).isEqualTo(PLUS.beforeTemplates());
+    assertThat(rules.get(0).afterTemplates()).isEqualTo(PLUS.afterTemplates());
+    assertThat(rules.get(1).beforeTemplates()).isEqualTo(ANY.beforeTemplates());
+  }
+
+  @Test
+  public void rulesAreDecodedFromTheContentsThatWereRead() throws IOException {
+    Path path = temporaryFolder.newFile("rules.bundle").toPath();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RefasterRuleBundle.write(ImmutableList.of(PLUS, ANY), bytes);
+    RefasterRuleBundle.replace(path, bytes.toByteArray());
+
+    CodeTransformer transformer = RefasterRuleBundle.read(path);
+    // Recompiling the rules replaces the file before the rules are first decoded.
+    RefasterRuleBundle.replace(path, new byte[] {'E', 'P', 'R', 'B'});
+
+    ImmutableList<RefasterRule<?, ?>> rules = ((RefasterEngine) transformer).rules();
+    assertThat(rules.get(0).beforeTemplates()).isEqualTo(PLUS.beforeTemplates());
+    assertThat(rules.get(1).beforeTemplates()).isEqualTo(ANY.beforeTemplates());
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(path.getParent())) {
+      assertThat(files).containsExactly(path);
+    }
+  }
+
+  @Test
+  public void legacySerializedRules() throws Exception {
+    Path path = temporaryFolder.newFile("rules.ser").toPath();
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+      out.writeObject(CompositeCodeTransformer.compose(PLUS, ANY));
+    }
+
+    CodeTransformer transformer = CodeTransformerLoader.load(path);
+
+    assertThat(((CompositeCodeTransformer) transformer).transformers())
+        .containsExactly(PLUS, ANY)
+        .inOrder();
+  }
+
+  @Test
+  public void unsupportedVersion() throws IOException {
+    Path path = temporaryFolder.newFile("rules.bundle").toPath();
+    Files.write(path, new byte[] {'E', 'P', 'R', 'B', 0, 99});
+
+    IOException e = assertThrows(IOException.class, () -> CodeTransformerLoader.load(path));
+    assertThat(e).hasMessageThat().contains("version 99");
+  }
+}
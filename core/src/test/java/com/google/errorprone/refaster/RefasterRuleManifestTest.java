@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CodeTransformerLoader;
+import com.google.errorprone.refaster.RefasterRuleManifest.Shard;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RefasterRuleManifest}. */
+@RunWith(JUnit4.class)
+public class RefasterRuleManifestTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final RefasterRule<?, ?> ONE =
+      RefasterRule.create(
+          "Foo.One",
+          ImmutableList.of(ExpressionTemplate.create(ULiteral.intLit(1), UPrimitiveType.INT)),
+          ImmutableList.of());
+
+  private static final RefasterRule<?, ?> TWO =
+      RefasterRule.create(
+          "Bar.Two",
+          ImmutableList.of(ExpressionTemplate.create(ULiteral.intLit(2), UPrimitiveType.INT)),
+          ImmutableList.of());
+
+  @Test
+  public void mergesShards() throws IOException {
+    Path directory = temporaryFolder.newFolder().toPath();
+    Shard one = writeShard(directory, "Foo.refaster", ONE, "file:///Foo.java");
+    Shard two = writeShard(directory, "Bar.refaster", TWO, "file:///Bar.java");
+    Path manifest = directory.resolve("refaster.manifest");
+    RefasterRuleManifest.write(ImmutableList.of(one, two), manifest);
+
+    CodeTransformer transformer = CodeTransformerLoader.load(manifest);
+
+    assertThat(RefasterRuleManifest.readShards(manifest)).containsExactly(two, one).inOrder();
+    assertThat(transformer).isInstanceOf(RefasterEngine.class);
+    assertThat(
+            ((RefasterEngine) transformer)
+                .rules().stream().map(RefasterRule::qualifiedTemplateClass))
+        .containsExactly("Bar.Two", "Foo.One")
+        .inOrder();
+  }
+
+  @Test
+  public void unchangedManifestIsNotRewritten() throws IOException {
+    Path directory = temporaryFolder.newFolder().toPath();
+    Shard one = writeShard(directory, "Foo.refaster", ONE, "file:///Foo.java");
+    Path manifest = directory.resolve("refaster.manifest");
+    RefasterRuleManifest.write(ImmutableList.of(one), manifest);
+    FileTime written = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(manifest, written);
+
+    RefasterRuleManifest.write(ImmutableList.of(one), manifest);
+
+    assertThat(Files.getLastModifiedTime(manifest)).isEqualTo(written);
+  }
+
+  @Test
+  public void unsupportedVersion() throws IOException {
+    Path manifest = temporaryFolder.newFile("refaster.manifest").toPath();
+    Files.write(manifest, ImmutableList.of("EPRM 99"), UTF_8);
+
+    IOException e = assertThrows(IOException.class, () -> CodeTransformerLoader.load(manifest));
+    assertThat(e).hasMessageThat().contains("version 99");
+  }
+
+  @Test
+  public void shardThatDoesNotMatchTheManifest() throws IOException {
+    Path directory = temporaryFolder.newFolder().toPath();
+    Shard one = writeShard(directory, "Foo.refaster", ONE, "file:///Foo.java");
+    Path manifest = directory.resolve("refaster.manifest");
+    RefasterRuleManifest.write(ImmutableList.of(one), manifest);
+    writeShard(directory, "Foo.refaster", TWO, "file:///Foo.java");
+
+    IOException e = assertThrows(IOException.class, () -> CodeTransformerLoader.load(manifest));
+    assertThat(e).hasMessageThat().contains("doesn't match the manifest");
+  }
+
+  private static Shard writeShard(
+      Path directory, String file, RefasterRule<?, ?> rule, String source) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RefasterRuleBundle.write(ImmutableList.of(rule), bytes);
+    Files.write(directory.resolve(file), bytes.toByteArray());
+    return Shard.create(file, bytes.toByteArray(), source);
+  }
+}
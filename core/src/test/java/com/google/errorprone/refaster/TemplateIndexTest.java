@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.source.tree.Tree.Kind;
+import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.JCTree.JCReturn;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TemplateIndex}. */
+@RunWith(JUnit4.class)
+public class TemplateIndexTest extends CompilerBasedTest {
+  private static final ExpressionTemplate LENGTH =
+      ExpressionTemplate.create(
+          UMethodInvocation.create(
+              UMemberSelect.create(
+                  UFreeIdent.create("s"), "length", UMethodType.create(UPrimitiveType.INT))),
+          UPrimitiveType.INT);
+
+  private static final ExpressionTemplate PLUS =
+      ExpressionTemplate.create(
+          UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b")),
+          UPrimitiveType.INT);
+
+  private static final ExpressionTemplate ANY =
+      ExpressionTemplate.create(UFreeIdent.create("x"), UPrimitiveType.INT);
+
+  private static final BlockTemplate BLOCK =
+      BlockTemplate.create(UReturn.create(UFreeIdent.create("x")));
+
+  @Test
+  public void candidates() {
+    compile(
+        "class Foo {", //
+        "  int f(String s) {",
+        "    return s.length() + s.hashCode();",
+        "  }",
+        "}");
+    JCMethodDecl method = getMethodDeclaration("f");
+    JCReturn ret = (JCReturn) method.getBody().getStatements().get(0);
+    JCBinary plus = (JCBinary) ret.getExpression();
+
+    TemplateIndex<Template<?>> index =
+        TemplateIndex.create(ImmutableList.<Template<?>>of(LENGTH, PLUS, ANY, BLOCK));
+
+    assertThat(index.candidates(plus)).containsExactly(PLUS, ANY).inOrder();
+    assertThat(index.candidates(plus.lhs)).containsExactly(LENGTH, ANY).inOrder();
+    assertThat(index.candidates(plus.rhs)).containsExactly(ANY);
+    assertThat(index.candidates(ret)).isEmpty();
+    assertThat(index.candidates(method.getBody())).containsExactly(BLOCK);
+  }
+}
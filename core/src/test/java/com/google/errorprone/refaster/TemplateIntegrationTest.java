@@ -25,16 +25,22 @@ import static org.junit.Assert.assertThrows;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.CodeTransformer;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import javax.tools.JavaFileObject;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -45,6 +51,8 @@ import org.junit.runners.JUnit4;
  */
 @RunWith(JUnit4.class)
 public class TemplateIntegrationTest extends CompilerBasedTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private CodeTransformer extractRefasterRule(JavaFileObject object) {
     compile(object);
     ClassTree classTree =
@@ -86,6 +94,16 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
     JavaFileObject input = forResource(String.format("%s/%sExample.java", INPUT_DIR, testName));
     JavaFileObject output = forResource(String.format("%s/%sExample.java", OUTPUT_DIR, testName));
     expectTransforms(transformer, input, output);
+    expectTransforms(roundTrip(transformer), input, output);
+  }
+
+  /** Writes the rule to a {@link RefasterRuleBundle} and reads it back. */
+  private CodeTransformer roundTrip(CodeTransformer transformer) throws IOException {
+    Path path = temporaryFolder.newFile().toPath();
+    try (OutputStream out = Files.newOutputStream(path)) {
+      RefasterRuleBundle.write(ImmutableList.of(transformer), out);
+    }
+    return RefasterRuleBundle.read(path);
   }
 
   @Test
@@ -20,12 +20,19 @@ import com.google.auto.service.AutoService;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.Plugin;
 import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Iterator;
 
 /**
- * A javac plugin that compiles Refaster rules to a {@code .analyzer} file.
+ * A javac plugin that compiles Refaster rules to a {@code .analyzer} file, given as {@code --out
+ * <path>}, or to a bundle per rule class and a {@code refaster.manifest} in the directory given as
+ * {@code --shards <directory>}.
  *
  * @author lowasser@google.com
  */
@@ -40,16 +47,32 @@ public class RefasterRuleCompiler implements Plugin {
   public void init(JavacTask javacTask, String... args) {
     Iterator<String> itr = Arrays.asList(args).iterator();
     String path = null;
+    String shards = null;
     while (itr.hasNext()) {
-      if (itr.next().equals("--out")) {
+      String arg = itr.next();
+      if (arg.equals("--out")) {
         path = itr.next();
-        break;
+      } else if (arg.equals("--shards")) {
+        shards = itr.next();
       }
     }
-    checkArgument(path != null, "No --out specified");
+    checkArgument(path != null || shards != null, "No --out or --shards specified");
+    checkArgument(
+        path == null || shards == null, "Only one of --out and --shards may be specified");
 
-    javacTask.addTaskListener(
-        new RefasterRuleCompilerAnalyzer(
-            ((BasicJavacTask) javacTask).getContext(), FileSystems.getDefault().getPath(path)));
+    Context context = ((BasicJavacTask) javacTask).getContext();
+    if (shards != null) {
+      Path directory = FileSystems.getDefault().getPath(shards);
+      try {
+        Files.createDirectories(directory);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      javacTask.addTaskListener(
+          new RefasterRuleCompilerAnalyzer(context, directory, /* sharded= */ true));
+    } else {
+      javacTask.addTaskListener(
+          new RefasterRuleCompilerAnalyzer(context, FileSystems.getDefault().getPath(path)));
+    }
   }
 }
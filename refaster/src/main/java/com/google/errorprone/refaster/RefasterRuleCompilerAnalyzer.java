@@ -14,8 +14,9 @@
 
 package com.google.errorprone.refaster;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.CodeTransformer;
-import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.refaster.RefasterRuleManifest.Shard;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskEvent.Kind;
@@ -24,54 +25,165 @@ import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.util.Context;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.TypeElement;
 
 /**
- * TaskListener that receives compilation of a Refaster rule class and outputs a serialized analyzer
- * to the specified path.
+ * TaskListener that receives compilation of Refaster rule classes and outputs them as {@link
+ * RefasterRuleBundle}s.
+ *
+ * <p>By default, the rules of every class in the compilation are written to a single bundle at the
+ * specified path once the compilation finishes. When compiling to a shard directory instead, the
+ * rules of each top-level class are written to their own bundle, and a {@link
+ * RefasterRuleManifest} lists the bundles. Shards of classes that aren't part of the compilation
+ * are kept, so a build only needs to recompile the rule classes that changed. Either way, nothing
+ * is written unless the compilation succeeds.
  */
 public class RefasterRuleCompilerAnalyzer implements TaskListener {
+  /** The name of the manifest in a shard directory. */
+  static final String MANIFEST = "refaster.manifest";
+
+  private static final String SHARD_SUFFIX = ".refaster";
+
   private final Context context;
   private final Path destinationPath;
+  private final boolean sharded;
+
+  private final List<CodeTransformer> rules = new ArrayList<>();
+  // The shards of this compilation and their contents, by file name, which are only written once
+  // the compilation succeeds.
+  private final Map<String, Shard> shards = new LinkedHashMap<>();
+  private final Map<String, byte[]> contents = new LinkedHashMap<>();
+  private final Set<String> sources = new HashSet<>();
 
   RefasterRuleCompilerAnalyzer(Context context, Path destinationPath) {
+    this(context, destinationPath, /* sharded= */ false);
+  }
+
+  /**
+   * Creates an analyzer that writes a single bundle to {@code destinationPath}, or if {@code
+   * sharded} is true, a bundle per rule class and a manifest to the directory at {@code
+   * destinationPath}.
+   */
+  RefasterRuleCompilerAnalyzer(Context context, Path destinationPath, boolean sharded) {
     this.context = context;
     this.destinationPath = destinationPath;
+    this.sharded = sharded;
   }
 
   @Override
   public void finished(TaskEvent taskEvent) {
-    if (taskEvent.getKind() != Kind.ANALYZE) {
-      return;
-    }
     if (JavaCompiler.instance(context).errorCount() > 0) {
       return;
     }
-    ClassTree tree = JavacTrees.instance(context).getTree(taskEvent.getTypeElement());
+    if (taskEvent.getKind() == Kind.ANALYZE) {
+      analyze(taskEvent);
+    } else if (taskEvent.getKind() == Kind.COMPILATION) {
+      try {
+        if (sharded) {
+          writeManifest();
+        } else {
+          writeBundle();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private void analyze(TaskEvent taskEvent) {
+    TypeElement element = taskEvent.getTypeElement();
+    ClassTree tree = JavacTrees.instance(context).getTree(element);
     if (tree == null) {
       return;
     }
-    List<CodeTransformer> rules = new ArrayList<>();
+    List<CodeTransformer> classRules = new ArrayList<>();
     new TreeScanner<Void, Context>() {
       @Override
       public Void visitClass(ClassTree node, Context context) {
-        rules.addAll(RefasterRuleBuilderScanner.extractRules(node, context));
+        classRules.addAll(RefasterRuleBuilderScanner.extractRules(node, context));
         return super.visitClass(node, context);
       }
     }.scan(tree, context);
+    if (!sharded) {
+      rules.addAll(classRules);
+      return;
+    }
+    String source = taskEvent.getSourceFile().toUri().toString();
+    sources.add(source);
+    if (classRules.isEmpty()) {
+      // Classes without templates, like helpers of rule classes, don't get a shard.
+      return;
+    }
+    String file = element.getQualifiedName() + SHARD_SUFFIX;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      RefasterRuleBundle.write(classRules, bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    shards.put(file, Shard.create(file, bytes.toByteArray(), source));
+    contents.put(file, bytes.toByteArray());
+  }
+
+  private void writeBundle() throws IOException {
     if (rules.isEmpty()) {
       throw new IllegalArgumentException("Did not find any Refaster templates");
     }
-    try (ObjectOutputStream output =
-        new ObjectOutputStream(Files.newOutputStream(destinationPath))) {
-      output.writeObject(CompositeCodeTransformer.compose(rules));
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    // Replace the file rather than writing over it, since other compilations may be reading it.
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RefasterRuleBundle.write(rules, bytes);
+    RefasterRuleBundle.replace(destinationPath, bytes.toByteArray());
+  }
+
+  /**
+   * Writes the shards of this compilation, and updates the manifest with them. Shards previously
+   * compiled from the same sources are replaced, and shards whose source file was deleted are
+   * removed once the manifest no longer lists them.
+   */
+  private void writeManifest() throws IOException {
+    Path manifest = destinationPath.resolve(MANIFEST);
+    Map<String, Shard> merged = new LinkedHashMap<>();
+    Set<String> removed = new HashSet<>();
+    if (Files.exists(manifest)) {
+      for (Shard shard : RefasterRuleManifest.readShards(manifest)) {
+        if (sources.contains(shard.source()) || isDeleted(shard.source())) {
+          removed.add(shard.file());
+        } else {
+          merged.put(shard.file(), shard);
+        }
+      }
+    }
+    for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+      Path path = destinationPath.resolve(entry.getKey());
+      // Leave unchanged shards alone, so cached engines for them stay valid.
+      if (!Files.exists(path) || !Arrays.equals(Files.readAllBytes(path), entry.getValue())) {
+        RefasterRuleBundle.replace(path, entry.getValue());
+      }
     }
+    merged.putAll(shards);
+    RefasterRuleManifest.write(ImmutableList.copyOf(merged.values()), manifest);
+    removed.removeAll(merged.keySet());
+    for (String file : removed) {
+      Files.deleteIfExists(destinationPath.resolve(file));
+    }
+  }
+
+  private static boolean isDeleted(String source) {
+    URI uri = URI.create(source);
+    return "file".equals(uri.getScheme()) && !Files.exists(Paths.get(uri));
   }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.CodeTransformerLoader;
+import com.google.errorprone.refaster.RefasterRuleManifest.Shard;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RefasterRuleCompilerAnalyzer}. */
+@RunWith(JUnit4.class)
+public class RefasterRuleCompilerAnalyzerTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path sources;
+  private Path classes;
+  private Path shards;
+
+  @Before
+  public void setUp() throws IOException {
+    sources = temporaryFolder.newFolder().toPath();
+    classes = temporaryFolder.newFolder().toPath();
+    shards = temporaryFolder.newFolder().toPath();
+  }
+
+  @Test
+  public void recompiledShardIsReplaced() throws IOException {
+    Path foo = writeRule("Foo", "x + 1", "1 + x");
+    Path bar = writeRule("Bar", "x * 2", "2 * x");
+    assertThat(compile(foo, bar)).isTrue();
+    byte[] before = Files.readAllBytes(shards.resolve("Foo.refaster"));
+
+    writeRule("Foo", "x - 1", "-1 + x");
+    assertThat(compile(foo)).isTrue();
+
+    assertThat(shardFiles()).containsExactly("Bar.refaster", "Foo.refaster").inOrder();
+    assertThat(Arrays.equals(Files.readAllBytes(shards.resolve("Foo.refaster")), before))
+        .isFalse();
+    assertThat(CodeTransformerLoader.load(shards.resolve(RefasterRuleCompilerAnalyzer.MANIFEST)))
+        .isInstanceOf(RefasterEngine.class);
+  }
+
+  @Test
+  public void shardOfDeletedSourceIsRemoved() throws IOException {
+    Path foo = writeRule("Foo", "x + 1", "1 + x");
+    Path bar = writeRule("Bar", "x * 2", "2 * x");
+    assertThat(compile(foo, bar)).isTrue();
+
+    Files.delete(bar);
+    assertThat(compile(foo)).isTrue();
+
+    assertThat(shardFiles()).containsExactly("Foo.refaster");
+    assertThat(Files.exists(shards.resolve("Bar.refaster"))).isFalse();
+  }
+
+  @Test
+  public void failedCompilationLeavesShardsAlone() throws IOException {
+    Path foo = writeRule("Foo", "x + 1", "1 + x");
+    assertThat(compile(foo)).isTrue();
+    Path manifest = shards.resolve(RefasterRuleCompilerAnalyzer.MANIFEST);
+    byte[] shard = Files.readAllBytes(shards.resolve("Foo.refaster"));
+    byte[] listed = Files.readAllBytes(manifest);
+
+    writeRule("Foo", "x - 1", "-1 + x");
+    Path broken = sources.resolve("Broken.java");
+    Files.write(broken, ImmutableList.of("class Broken {", "  int x = \"s\";", "}"), UTF_8);
+    assertThat(compile(foo, broken)).isFalse();
+
+    assertThat(Arrays.equals(Files.readAllBytes(shards.resolve("Foo.refaster")), shard)).isTrue();
+    assertThat(Arrays.equals(Files.readAllBytes(manifest), listed)).isTrue();
+  }
+
+  private Path writeRule(String name, String before, String after) throws IOException {
+    Path source = sources.resolve(name + ".java");
+    Files.write(
+        source,
+        ImmutableList.of(
+            "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+            "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+            "class " + name + " {",
+            "  @BeforeTemplate",
+            "  int before(int x) {",
+            "    return " + before + ";",
+            "  }",
+            "  @AfterTemplate",
+            "  int after(int x) {",
+            "    return " + after + ";",
+            "  }",
+            "}"),
+        UTF_8);
+    return source;
+  }
+
+  private boolean compile(Path... files) {
+    JavacFileManager fileManager = new JavacFileManager(new Context(), false, UTF_8);
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    CharStreams.nullWriter(),
+                    fileManager,
+                    null,
+                    ImmutableList.of(
+                        "-classpath",
+                        System.getProperty("java.class.path"),
+                        "-d",
+                        classes.toString(),
+                        "-proc:none"),
+                    null,
+                    fileManager.getJavaFileObjects(files));
+    task.addTaskListener(
+        new RefasterRuleCompilerAnalyzer(task.getContext(), shards, /* sharded= */ true));
+    return task.call();
+  }
+
+  private ImmutableList<String> shardFiles() throws IOException {
+    return RefasterRuleManifest.readShards(shards.resolve(RefasterRuleCompilerAnalyzer.MANIFEST))
+        .stream()
+        .map(Shard::file)
+        .collect(toImmutableList());
+  }
+}